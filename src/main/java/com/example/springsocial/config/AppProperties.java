@@ -9,10 +9,32 @@ import java.util.List;
 public class AppProperties {
     private final Auth auth = new Auth();
     private final OAuth2 oauth2 = new OAuth2();
+    private final TokenCache tokenCache = new TokenCache();
+    private final NegativeTokenCache negativeTokenCache = new NegativeTokenCache();
+    private final UserCache userCache = new UserCache();
+    private final SecondLevelCache secondLevelCache = new SecondLevelCache();
+    private final TokenRevocation tokenRevocation = new TokenRevocation();
+    private final AuthFailureLog authFailureLog = new AuthFailureLog();
+    private final PasswordHashing passwordHashing = new PasswordHashing();
+    private final LoginThrottle loginThrottle = new LoginThrottle();
+    private final BulkImport bulkImport = new BulkImport();
+    private final UserExport userExport = new UserExport();
+    private final Admin admin = new Admin();
+    private final UserIds userIds = new UserIds();
+    private final ReadReplicas readReplicas = new ReadReplicas();
+    private final SqlRecorder sqlRecorder = new SqlRecorder();
+    private final ProfileRefresh profileRefresh = new ProfileRefresh();
+    private final AuthEvents authEvents = new AuthEvents();
+    private final EmailFilter emailFilter = new EmailFilter();
 
     public static class Auth {
         private String tokenSecret;
         private long tokenExpirationMsec;
+        private boolean statelessPrincipal;
+        private String signingAlgorithm = "HS512";
+        private long keyRotationMsec = 86400000;
+        private long keyRefreshMsec = 60000;
+        private String signingKeySecret;
 
         public String getTokenSecret() {
             return tokenSecret;
@@ -29,6 +51,46 @@ public class AppProperties {
         public void setTokenExpirationMsec(long tokenExpirationMsec) {
             this.tokenExpirationMsec = tokenExpirationMsec;
         }
+
+        public boolean isStatelessPrincipal() {
+            return statelessPrincipal;
+        }
+
+        public void setStatelessPrincipal(boolean statelessPrincipal) {
+            this.statelessPrincipal = statelessPrincipal;
+        }
+
+        public String getSigningAlgorithm() {
+            return signingAlgorithm;
+        }
+
+        public void setSigningAlgorithm(String signingAlgorithm) {
+            this.signingAlgorithm = signingAlgorithm;
+        }
+
+        public long getKeyRotationMsec() {
+            return keyRotationMsec;
+        }
+
+        public void setKeyRotationMsec(long keyRotationMsec) {
+            this.keyRotationMsec = keyRotationMsec;
+        }
+
+        public long getKeyRefreshMsec() {
+            return keyRefreshMsec;
+        }
+
+        public void setKeyRefreshMsec(long keyRefreshMsec) {
+            this.keyRefreshMsec = keyRefreshMsec;
+        }
+
+        public String getSigningKeySecret() {
+            return signingKeySecret;
+        }
+
+        public void setSigningKeySecret(String signingKeySecret) {
+            this.signingKeySecret = signingKeySecret;
+        }
     }
 
     public static final class OAuth2 {
@@ -44,6 +106,661 @@ public class AppProperties {
         }
     }
 
+    public static class TokenCache {
+        private boolean enabled = true;
+        private int maxEntries = 10000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+    }
+
+    public static class NegativeTokenCache {
+        private boolean enabled = true;
+        private int maxEntries = 4096;
+        private long ttlMsec = 30000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public long getTtlMsec() {
+            return ttlMsec;
+        }
+
+        public void setTtlMsec(long ttlMsec) {
+            this.ttlMsec = ttlMsec;
+        }
+    }
+
+    public static class UserCache {
+        private boolean enabled = true;
+        private int maxEntries = 10000;
+        private long ttlMsec = 60000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public long getTtlMsec() {
+            return ttlMsec;
+        }
+
+        public void setTtlMsec(long ttlMsec) {
+            this.ttlMsec = ttlMsec;
+        }
+    }
+
+    public static class SecondLevelCache {
+        private boolean enabled = true;
+        private int maxEntries = 10000;
+        private long ttlMsec = 60000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public long getTtlMsec() {
+            return ttlMsec;
+        }
+
+        public void setTtlMsec(long ttlMsec) {
+            this.ttlMsec = ttlMsec;
+        }
+    }
+
+    public static class TokenRevocation {
+        private boolean enabled = true;
+        private long bucketMsec = 86400000;
+        private long expectedRevocationsPerBucket = 100000;
+        private double falsePositiveRate = 0.01;
+        private long pollMsec = 30000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getBucketMsec() {
+            return bucketMsec;
+        }
+
+        public void setBucketMsec(long bucketMsec) {
+            this.bucketMsec = bucketMsec;
+        }
+
+        public long getExpectedRevocationsPerBucket() {
+            return expectedRevocationsPerBucket;
+        }
+
+        public void setExpectedRevocationsPerBucket(long expectedRevocationsPerBucket) {
+            this.expectedRevocationsPerBucket = expectedRevocationsPerBucket;
+        }
+
+        public double getFalsePositiveRate() {
+            return falsePositiveRate;
+        }
+
+        public void setFalsePositiveRate(double falsePositiveRate) {
+            this.falsePositiveRate = falsePositiveRate;
+        }
+
+        public long getPollMsec() {
+            return pollMsec;
+        }
+
+        public void setPollMsec(long pollMsec) {
+            this.pollMsec = pollMsec;
+        }
+    }
+
+    public static class AuthFailureLog {
+        private int samplesPerWindow = 5;
+        private long windowMsec = 60000;
+
+        public int getSamplesPerWindow() {
+            return samplesPerWindow;
+        }
+
+        public void setSamplesPerWindow(int samplesPerWindow) {
+            this.samplesPerWindow = samplesPerWindow;
+        }
+
+        public long getWindowMsec() {
+            return windowMsec;
+        }
+
+        public void setWindowMsec(long windowMsec) {
+            this.windowMsec = windowMsec;
+        }
+    }
+
+    public static class PasswordHashing {
+        private int threads;
+        private int queueCapacity = 64;
+        private long retryAfterSeconds = 1;
+        private long targetMsec = 100;
+        private int minCost = 10;
+        private int maxCost = 14;
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+
+        public void setRetryAfterSeconds(long retryAfterSeconds) {
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public long getTargetMsec() {
+            return targetMsec;
+        }
+
+        public void setTargetMsec(long targetMsec) {
+            this.targetMsec = targetMsec;
+        }
+
+        public int getMinCost() {
+            return minCost;
+        }
+
+        public void setMinCost(int minCost) {
+            this.minCost = minCost;
+        }
+
+        public int getMaxCost() {
+            return maxCost;
+        }
+
+        public void setMaxCost(int maxCost) {
+            this.maxCost = maxCost;
+        }
+    }
+
+    public static class LoginThrottle {
+        private boolean enabled = true;
+        private String store = "memory";
+        private int emailBurst = 5;
+        private int emailPerMinute = 5;
+        private int addressBurst = 50;
+        private int addressPerMinute = 60;
+        private int lookupBurst = 20;
+        private int lookupPerMinute = 30;
+        private long idleMsec = 600000;
+        private long sweepMsec = 10000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getStore() {
+            return store;
+        }
+
+        public void setStore(String store) {
+            this.store = store;
+        }
+
+        public int getEmailBurst() {
+            return emailBurst;
+        }
+
+        public void setEmailBurst(int emailBurst) {
+            this.emailBurst = emailBurst;
+        }
+
+        public int getEmailPerMinute() {
+            return emailPerMinute;
+        }
+
+        public void setEmailPerMinute(int emailPerMinute) {
+            this.emailPerMinute = emailPerMinute;
+        }
+
+        public int getAddressBurst() {
+            return addressBurst;
+        }
+
+        public void setAddressBurst(int addressBurst) {
+            this.addressBurst = addressBurst;
+        }
+
+        public int getAddressPerMinute() {
+            return addressPerMinute;
+        }
+
+        public void setAddressPerMinute(int addressPerMinute) {
+            this.addressPerMinute = addressPerMinute;
+        }
+
+        public int getLookupBurst() {
+            return lookupBurst;
+        }
+
+        public void setLookupBurst(int lookupBurst) {
+            this.lookupBurst = lookupBurst;
+        }
+
+        public int getLookupPerMinute() {
+            return lookupPerMinute;
+        }
+
+        public void setLookupPerMinute(int lookupPerMinute) {
+            this.lookupPerMinute = lookupPerMinute;
+        }
+
+        public long getIdleMsec() {
+            return idleMsec;
+        }
+
+        public void setIdleMsec(long idleMsec) {
+            this.idleMsec = idleMsec;
+        }
+
+        public long getSweepMsec() {
+            return sweepMsec;
+        }
+
+        public void setSweepMsec(long sweepMsec) {
+            this.sweepMsec = sweepMsec;
+        }
+    }
+
+    public static class BulkImport {
+        private int chunkSize = 1000;
+        private int hashingThreads;
+        private int maxReportedRejections = 1000;
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        public int getHashingThreads() {
+            return hashingThreads;
+        }
+
+        public void setHashingThreads(int hashingThreads) {
+            this.hashingThreads = hashingThreads;
+        }
+
+        public int getMaxReportedRejections() {
+            return maxReportedRejections;
+        }
+
+        public void setMaxReportedRejections(int maxReportedRejections) {
+            this.maxReportedRejections = maxReportedRejections;
+        }
+    }
+
+    public static class UserExport {
+        private int pageSize = 1000;
+        private long timeoutMsec = 3600000;
+
+        public int getPageSize() {
+            return pageSize;
+        }
+
+        public void setPageSize(int pageSize) {
+            this.pageSize = pageSize;
+        }
+
+        public long getTimeoutMsec() {
+            return timeoutMsec;
+        }
+
+        public void setTimeoutMsec(long timeoutMsec) {
+            this.timeoutMsec = timeoutMsec;
+        }
+    }
+
+    public static class UserIds {
+        private String strategy = "pooled";
+        private int blockSize = 50;
+        // Required for time-ordered ids, since two nodes sharing one would hand out the same ids
+        private Integer nodeId;
+
+        public String getStrategy() {
+            return strategy;
+        }
+
+        public void setStrategy(String strategy) {
+            this.strategy = strategy;
+        }
+
+        public int getBlockSize() {
+            return blockSize;
+        }
+
+        public void setBlockSize(int blockSize) {
+            this.blockSize = blockSize;
+        }
+
+        public Integer getNodeId() {
+            return nodeId;
+        }
+
+        public void setNodeId(Integer nodeId) {
+            this.nodeId = nodeId;
+        }
+    }
+
+    public static class ReadReplicas {
+        private boolean enabled;
+        private List<String> urls = new ArrayList<>();
+        private String username;
+        private String password;
+        private int maxPoolSize = 10;
+        private long stickyMsec = 2000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public List<String> getUrls() {
+            return urls;
+        }
+
+        public void setUrls(List<String> urls) {
+            this.urls = urls;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+
+        public int getMaxPoolSize() {
+            return maxPoolSize;
+        }
+
+        public void setMaxPoolSize(int maxPoolSize) {
+            this.maxPoolSize = maxPoolSize;
+        }
+
+        public long getStickyMsec() {
+            return stickyMsec;
+        }
+
+        public void setStickyMsec(long stickyMsec) {
+            this.stickyMsec = stickyMsec;
+        }
+    }
+
+    public static class SqlRecorder {
+        private boolean enabled = true;
+        private boolean responseHeaders;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public boolean isResponseHeaders() {
+            return responseHeaders;
+        }
+
+        public void setResponseHeaders(boolean responseHeaders) {
+            this.responseHeaders = responseHeaders;
+        }
+    }
+
+    public static class ProfileRefresh {
+        private boolean enabled = true;
+        private long flushMsec = 1000;
+        private int batchSize = 200;
+        private int maxPending = 10000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getFlushMsec() {
+            return flushMsec;
+        }
+
+        public void setFlushMsec(long flushMsec) {
+            this.flushMsec = flushMsec;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getMaxPending() {
+            return maxPending;
+        }
+
+        public void setMaxPending(int maxPending) {
+            this.maxPending = maxPending;
+        }
+    }
+
+    public static class AuthEvents {
+        private boolean enabled = true;
+        private int capacity = 8192;
+        private double lowPriorityFill = 0.75;
+        private int batchSize = 500;
+        private long flushMsec = 500;
+        private long partitionCheckMsec = 3600000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public double getLowPriorityFill() {
+            return lowPriorityFill;
+        }
+
+        public void setLowPriorityFill(double lowPriorityFill) {
+            this.lowPriorityFill = lowPriorityFill;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public long getFlushMsec() {
+            return flushMsec;
+        }
+
+        public void setFlushMsec(long flushMsec) {
+            this.flushMsec = flushMsec;
+        }
+
+        public long getPartitionCheckMsec() {
+            return partitionCheckMsec;
+        }
+
+        public void setPartitionCheckMsec(long partitionCheckMsec) {
+            this.partitionCheckMsec = partitionCheckMsec;
+        }
+    }
+
+    public static class EmailFilter {
+        private boolean enabled = true;
+        private long expectedEmails = 1000000;
+        private double falsePositiveRate = 0.01;
+        private long rebuildMsec = 900000;
+        private long pollMsec = 1000;
+        private long pollOverlapMsec = 60000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getExpectedEmails() {
+            return expectedEmails;
+        }
+
+        public void setExpectedEmails(long expectedEmails) {
+            this.expectedEmails = expectedEmails;
+        }
+
+        public double getFalsePositiveRate() {
+            return falsePositiveRate;
+        }
+
+        public void setFalsePositiveRate(double falsePositiveRate) {
+            this.falsePositiveRate = falsePositiveRate;
+        }
+
+        public long getRebuildMsec() {
+            return rebuildMsec;
+        }
+
+        public void setRebuildMsec(long rebuildMsec) {
+            this.rebuildMsec = rebuildMsec;
+        }
+
+        public long getPollMsec() {
+            return pollMsec;
+        }
+
+        public void setPollMsec(long pollMsec) {
+            this.pollMsec = pollMsec;
+        }
+
+        public long getPollOverlapMsec() {
+            return pollOverlapMsec;
+        }
+
+        public void setPollOverlapMsec(long pollOverlapMsec) {
+            this.pollOverlapMsec = pollOverlapMsec;
+        }
+    }
+
+    public static final class Admin {
+        private List<String> emails = new ArrayList<>();
+
+        public List<String> getEmails() {
+            return emails;
+        }
+
+        public void setEmails(List<String> emails) {
+            this.emails = emails;
+        }
+    }
+
     public Auth getAuth() {
         return auth;
     }
@@ -51,4 +768,72 @@ public class AppProperties {
     public OAuth2 getOauth2() {
         return oauth2;
     }
+
+    public TokenCache getTokenCache() {
+        return tokenCache;
+    }
+
+    public NegativeTokenCache getNegativeTokenCache() {
+        return negativeTokenCache;
+    }
+
+    public UserCache getUserCache() {
+        return userCache;
+    }
+
+    public SecondLevelCache getSecondLevelCache() {
+        return secondLevelCache;
+    }
+
+    public TokenRevocation getTokenRevocation() {
+        return tokenRevocation;
+    }
+
+    public AuthFailureLog getAuthFailureLog() {
+        return authFailureLog;
+    }
+
+    public PasswordHashing getPasswordHashing() {
+        return passwordHashing;
+    }
+
+    public LoginThrottle getLoginThrottle() {
+        return loginThrottle;
+    }
+
+    public BulkImport getBulkImport() {
+        return bulkImport;
+    }
+
+    public UserExport getUserExport() {
+        return userExport;
+    }
+
+    public Admin getAdmin() {
+        return admin;
+    }
+
+    public UserIds getUserIds() {
+        return userIds;
+    }
+
+    public ReadReplicas getReadReplicas() {
+        return readReplicas;
+    }
+
+    public SqlRecorder getSqlRecorder() {
+        return sqlRecorder;
+    }
+
+    public ProfileRefresh getProfileRefresh() {
+        return profileRefresh;
+    }
+
+    public AuthEvents getAuthEvents() {
+        return authEvents;
+    }
+
+    public EmailFilter getEmailFilter() {
+        return emailFilter;
+    }
 }
@@ -0,0 +1,60 @@
+package com.example.springsocial.config;
+
+import com.example.springsocial.repository.ReadYourWrites;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the auto-configured data source with one that routes read-only transactions to the
+ * {@code app.readReplicas} pools. Without {@code app.readReplicas.enabled} nothing here is created
+ * and Spring Boot configures the single {@code spring.datasource} pool as usual.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.readReplicas", name = "enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Bean(destroyMethod = "close")
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties dataSourceProperties,
+                                                             AppProperties appProperties, ReadYourWrites readYourWrites) {
+        AppProperties.ReadReplicas readReplicas = appProperties.getReadReplicas();
+
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        primary.setPoolName("primary");
+
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : readReplicas.getUrls()) {
+            HikariDataSource replica = dataSourceProperties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(url)
+                    .build();
+            if (StringUtils.hasText(readReplicas.getUsername())) {
+                replica.setUsername(readReplicas.getUsername());
+                replica.setPassword(readReplicas.getPassword());
+            }
+            replica.setPoolName(ReplicaRoutingDataSource.REPLICA + replicas.size());
+            replica.setMaximumPoolSize(readReplicas.getMaxPoolSize());
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+
+        return new ReplicaRoutingDataSource(primary, replicas, readYourWrites);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+}
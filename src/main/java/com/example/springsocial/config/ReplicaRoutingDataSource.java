@@ -0,0 +1,94 @@
+package com.example.springsocial.config;
+
+import com.example.springsocial.repository.ReadYourWrites;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends read-only transactions to the replicas, round robin, and everything else to the primary.
+ *
+ * The lookup happens when a connection is actually taken, so this must sit behind a
+ * {@code LazyConnectionDataSourceProxy}: the transaction manager asks for a connection before it
+ * marks the transaction read-only, and only the proxy defers the real checkout until the first
+ * statement. Reads pinned by {@link ReadYourWrites} stay on the primary.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements MeterBinder, Closeable {
+
+    static final String PRIMARY = "primary";
+    static final String REPLICA = "replica-";
+
+    private final ReadYourWrites readYourWrites;
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final LongAdder primaryCheckouts = new LongAdder();
+    private final LongAdder replicaCheckouts = new LongAdder();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, ReadYourWrites readYourWrites) {
+        this.primary = primary;
+        this.replicas = new ArrayList<>(replicas);
+        this.readYourWrites = readYourWrites;
+
+        Map<Object, Object> targets = new LinkedHashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(REPLICA + i, replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicas.isEmpty() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || readYourWrites.isPinnedToPrimary()) {
+            primaryCheckouts.increment();
+            return PRIMARY;
+        }
+
+        replicaCheckouts.increment();
+        return REPLICA + Math.floorMod(next.getAndIncrement(), replicas.size());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("db.routing.connections", primaryCheckouts, LongAdder::sum)
+                .tag("target", "primary")
+                .description("Connections checked out through the routing data source")
+                .register(registry);
+        FunctionCounter.builder("db.routing.connections", replicaCheckouts, LongAdder::sum)
+                .tag("target", "replica")
+                .description("Connections checked out through the routing data source")
+                .register(registry);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (DataSource replica : replicas) {
+            closeIfCloseable(replica);
+        }
+        closeIfCloseable(primary);
+    }
+
+    private static void closeIfCloseable(DataSource dataSource) throws IOException {
+        if (dataSource instanceof Closeable) {
+            ((Closeable) dataSource).close();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.springsocial.config;
+
+import com.example.springsocial.model.User;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Backs Hibernate's second-level cache with local Caffeine caches, one per region, sized and
+ * expired from {@code app.secondLevelCache}. Every region is created here and Hibernate is told
+ * to fail on any other, so no region ever runs with unbounded defaults.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+    static final List<String> REGIONS = Arrays.asList(User.CACHE_REGION, User.NATURAL_ID_CACHE_REGION);
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "app.secondLevelCache", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public CacheManager secondLevelCacheManager(AppProperties appProperties) {
+        // A manager of its own rather than the provider's default, which every application context
+        // in the JVM would share and the first one to close would shut down
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        CacheManager cacheManager = provider.getCacheManager(
+                URI.create("urn:spring-social:second-level-cache:" + UUID.randomUUID()), provider.getDefaultClassLoader());
+        for (String region : REGIONS) {
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setMaximumSize(OptionalLong.of(appProperties.getSecondLevelCache().getMaxEntries()));
+            configuration.setExpireAfterWrite(OptionalLong.of(
+                    TimeUnit.MILLISECONDS.toNanos(appProperties.getSecondLevelCache().getTtlMsec())));
+            configuration.setStatisticsEnabled(true);
+            cacheManager.createCache(region, configuration);
+        }
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheHibernateProperties(ObjectProvider<CacheManager> cacheManager) {
+        return properties -> {
+            CacheManager secondLevelCacheManager = cacheManager.getIfAvailable();
+            if (secondLevelCacheManager == null) {
+                properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, false);
+                return;
+            }
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    /**
+     * Publishes {@code cache.gets} (hit/miss), {@code cache.puts}, {@code cache.removals} and
+     * {@code cache.evictions} for each region, tagged {@code cache=<region>}.
+     */
+    @Bean
+    public MeterBinder secondLevelCacheMetrics(ObjectProvider<CacheManager> cacheManager) {
+        return registry -> cacheManager.ifAvailable(secondLevelCacheManager -> {
+            for (String region : REGIONS) {
+                JCacheMetrics.monitor(registry, secondLevelCacheManager.getCache(region), Tags.of("layer", "hibernate"));
+            }
+        });
+    }
+}
@@ -16,12 +16,15 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.client.web.AuthorizationRequestRepository;
 import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 @Configuration
 @EnableWebSecurity
 @EnableGlobalMethodSecurity(
@@ -31,6 +34,21 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 )
 public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
+    private static final String[] STATIC_RESOURCE_PATTERNS = {
+            "/",
+            "/error",
+            "/favicon.ico",
+            "/**/*.png",
+            "/**/*.gif",
+            "/**/*.svg",
+            "/**/*.jpg",
+            "/**/*.html",
+            "/**/*.css",
+            "/**/*.js"
+    };
+
+    private static final String[] PUBLIC_ENDPOINT_PATTERNS = {"/auth/**", "/oauth2/**", "/.well-known/**"};
+
     @Autowired
     private CustomUserDetailsService customUserDetailsService;
 
@@ -46,11 +64,28 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
     @Autowired
     private HttpCookieOAuth2AuthorizationRequestRepository httpCookieOAuth2AuthorizationRequestRepository;
 
+    @Autowired
+    private AuthFailureMonitor authFailureMonitor;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
     @Bean
     public TokenAuthenticationFilter tokenAuthenticationFilter() {
         return new TokenAuthenticationFilter();
     }
 
+    /*
+      Compiled from the same patterns as the permitAll rules below, so the token filter can
+      skip requests that never need an authenticated principal.
+    */
+    @Bean
+    public PublicPathMatcher publicPathMatcher() {
+        List<String> patterns = new ArrayList<>(Arrays.asList(STATIC_RESOURCE_PATTERNS));
+        patterns.addAll(Arrays.asList(PUBLIC_ENDPOINT_PATTERNS));
+        return new PublicPathMatcher(patterns);
+    }
+
     /*
       By default, Spring OAuth2 uses HttpSessionOAuth2AuthorizationRequestRepository to save
       the authorization request. But, since our service is stateless, we can't save it in
@@ -65,12 +100,16 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
     public void configure(AuthenticationManagerBuilder authenticationManagerBuilder) throws Exception {
         authenticationManagerBuilder
                 .userDetailsService(customUserDetailsService)
-                .passwordEncoder(passwordEncoder());
+                .passwordEncoder(passwordEncoder);
     }
 
+    /*
+      Static so that calibrating the encoder does not depend on this configuration instance,
+      which itself needs the encoder for the authentication manager.
+    */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public static PasswordEncoder passwordEncoder(AppProperties appProperties) {
+        return PasswordEncoderCalibrator.create(appProperties.getPasswordHashing());
     }
 
 
@@ -95,21 +134,12 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
                 .httpBasic()
                     .disable()
                 .exceptionHandling()
-                    .authenticationEntryPoint(new RestAuthenticationEntryPoint())
+                    .authenticationEntryPoint(new RestAuthenticationEntryPoint(authFailureMonitor))
                     .and()
                 .authorizeRequests()
-                    .antMatchers("/",
-                        "/error",
-                        "/favicon.ico",
-                        "/**/*.png",
-                        "/**/*.gif",
-                        "/**/*.svg",
-                        "/**/*.jpg",
-                        "/**/*.html",
-                        "/**/*.css",
-                        "/**/*.js")
+                    .antMatchers(STATIC_RESOURCE_PATTERNS)
                         .permitAll()
-                    .antMatchers("/auth/**", "/oauth2/**")
+                    .antMatchers(PUBLIC_ENDPOINT_PATTERNS)
                         .permitAll()
                     .anyRequest()
                         .authenticated()
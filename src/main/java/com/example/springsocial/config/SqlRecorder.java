@@ -0,0 +1,239 @@
+package com.example.springsocial.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts and times JDBC statements and connection checkouts.
+ *
+ * Data sources are proxied by {@link SqlRecorderConfig}, and every connection they hand out
+ * records how long it was held and how long its statements took to execute. Each checkout is
+ * timed on its own in {@code db.connection.hold}, which with the checkout rate gives the pool
+ * size actually needed. While a request is being served the same numbers are also added up for
+ * it, see {@link SqlRecordingFilter}. Work handed to another thread is only counted against the
+ * request if that thread {@link #attach attaches} the request's stats, as the password hashing
+ * pool does.
+ *
+ * The meters are bound late, like any other {@link MeterBinder}, because the data source is
+ * needed before the registry exists; connections taken before then are not timed.
+ */
+@Component
+public class SqlRecorder implements MeterBinder {
+
+    private static final ThreadLocal<RequestStats> CURRENT = new ThreadLocal<>();
+
+    private final Map<String, RequestMeters> requestMeters = new ConcurrentHashMap<>();
+    private volatile MeterRegistry meterRegistry;
+    private volatile Timer connectionHold;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.meterRegistry = registry;
+        this.connectionHold = Timer.builder("db.connection.hold")
+                .description("Time from checking a connection out of the pool to returning it")
+                .register(registry);
+    }
+
+    /**
+     * The stats of the request being served on this thread, or null.
+     */
+    public static RequestStats current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Makes {@code stats} the current request's stats on this thread and returns the ones it replaces.
+     */
+    public static RequestStats attach(RequestStats stats) {
+        RequestStats previous = CURRENT.get();
+        if (stats != null) {
+            CURRENT.set(stats);
+        } else {
+            CURRENT.remove();
+        }
+        return previous;
+    }
+
+    /**
+     * Publishes the totals of a finished request under its handler's URI pattern.
+     */
+    public void record(RequestStats stats, String uri) {
+        if (meterRegistry == null) {
+            return;
+        }
+        RequestMeters meters = requestMeters.computeIfAbsent(uri, RequestMeters::new);
+        meters.statements.record(stats.getStatementCount());
+        meters.statementTime.record(stats.statementNanos.sum(), TimeUnit.NANOSECONDS);
+        meters.connectionHold.record(stats.connectionHoldNanos.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    DataSource wrap(DataSource dataSource) {
+        ProxyFactory proxyFactory = new ProxyFactory(dataSource);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice((MethodInterceptor) invocation -> {
+            Object result = invocation.proceed();
+            return result instanceof Connection && invocation.getMethod().getName().equals("getConnection")
+                    ? wrap((Connection) result)
+                    : result;
+        });
+        return (DataSource) proxyFactory.getProxy();
+    }
+
+    private Connection wrap(Connection connection) {
+        long checkedOutAt = System.nanoTime();
+        RequestStats stats = CURRENT.get();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                new ConnectionHandler(connection, checkedOutAt, stats));
+    }
+
+    public static final class RequestStats {
+        private final LongAdder statements = new LongAdder();
+        private final LongAdder statementNanos = new LongAdder();
+        private final LongAdder connectionHoldNanos = new LongAdder();
+
+        public long getStatementCount() {
+            return statements.sum();
+        }
+
+        public long getStatementMsec() {
+            return TimeUnit.NANOSECONDS.toMillis(statementNanos.sum());
+        }
+
+        public long getConnectionHoldMsec() {
+            return TimeUnit.NANOSECONDS.toMillis(connectionHoldNanos.sum());
+        }
+    }
+
+    private final class RequestMeters {
+        private final DistributionSummary statements;
+        private final Timer statementTime;
+        private final Timer connectionHold;
+
+        private RequestMeters(String uri) {
+            this.statements = DistributionSummary.builder("db.request.statements")
+                    .tag("uri", uri)
+                    .description("JDBC statements executed per request")
+                    .register(meterRegistry);
+            this.statementTime = Timer.builder("db.request.time")
+                    .tag("uri", uri)
+                    .description("Time per request spent executing JDBC statements")
+                    .register(meterRegistry);
+            this.connectionHold = Timer.builder("db.request.connection.hold")
+                    .tag("uri", uri)
+                    .description("Time per request spent holding pooled connections")
+                    .register(meterRegistry);
+        }
+    }
+
+    /*
+      The stats are taken from the thread that checked the connection out, so statements run on
+      it are counted against that request even if the connection is later used elsewhere.
+    */
+    private final class ConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+        private final long checkedOutAt;
+        private final RequestStats stats;
+        private boolean closed;
+
+        private ConnectionHandler(Connection connection, long checkedOutAt, RequestStats stats) {
+            this.connection = connection;
+            this.checkedOutAt = checkedOutAt;
+            this.stats = stats;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (isIdentityMethod(method)) {
+                return identity(proxy, method, args);
+            }
+            if (method.getName().equals("close") && !closed) {
+                closed = true;
+                long held = System.nanoTime() - checkedOutAt;
+                Timer timer = connectionHold;
+                if (timer != null) {
+                    timer.record(held, TimeUnit.NANOSECONDS);
+                }
+                if (stats != null) {
+                    stats.connectionHoldNanos.add(held);
+                }
+            }
+
+            Object result = invokeTarget(connection, method, args);
+            if (result instanceof Statement) {
+                Class<?> type = result instanceof CallableStatement ? CallableStatement.class
+                        : result instanceof PreparedStatement ? PreparedStatement.class
+                        : Statement.class;
+                return Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{type},
+                        new StatementHandler((Statement) result, stats));
+            }
+            return result;
+        }
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final RequestStats stats;
+
+        private StatementHandler(Statement statement, RequestStats stats) {
+            this.statement = statement;
+            this.stats = stats;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (isIdentityMethod(method)) {
+                return identity(proxy, method, args);
+            }
+            if (stats == null || !method.getName().startsWith("execute")) {
+                return invokeTarget(statement, method, args);
+            }
+
+            long startedAt = System.nanoTime();
+            try {
+                return invokeTarget(statement, method, args);
+            } finally {
+                stats.statements.increment();
+                stats.statementNanos.add(System.nanoTime() - startedAt);
+            }
+        }
+    }
+
+    private static boolean isIdentityMethod(Method method) {
+        return method.getDeclaringClass() == Object.class && !method.getName().equals("toString");
+    }
+
+    // Proxies are equal only to themselves, as Spring's connection holders expect
+    private static Object identity(Object proxy, Method method, Object[] args) {
+        if (method.getName().equals("equals")) {
+            return proxy == args[0];
+        }
+        return System.identityHashCode(proxy);
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getTargetException();
+        }
+    }
+}
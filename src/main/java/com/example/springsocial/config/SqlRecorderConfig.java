@@ -0,0 +1,47 @@
+package com.example.springsocial.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+
+/**
+ * Puts {@link SqlRecorder} between the application and its connection pools.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.sqlRecorder", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class SqlRecorderConfig {
+
+    /*
+      Only data sources that hand out pooled connections themselves are wrapped. A delegating one,
+      such as the lazy proxy in front of the replica routing, would otherwise count every
+      connection twice, and would time a connection from before it is actually checked out.
+    */
+    @Bean
+    public static BeanPostProcessor sqlRecordingDataSources(ObjectProvider<SqlRecorder> sqlRecorder) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof DelegatingDataSource)) {
+                    return sqlRecorder.getObject().wrap((DataSource) bean);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<SqlRecordingFilter> sqlRecordingFilter(SqlRecorder sqlRecorder,
+                                                                         AppProperties appProperties) {
+        FilterRegistrationBean<SqlRecordingFilter> registration = new FilterRegistrationBean<>(
+                new SqlRecordingFilter(sqlRecorder, appProperties.getSqlRecorder().isResponseHeaders()));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.springsocial.config;
+
+import org.springframework.security.web.util.OnCommittedResponseWrapper;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Collects {@link SqlRecorder.RequestStats} for each request and publishes them once it is done.
+ *
+ * Registered ahead of the security filters so that loading the user for a bearer token is
+ * counted too. Requests that complete asynchronously keep their stats in a request attribute
+ * until the async dispatch finishes.
+ */
+public class SqlRecordingFilter extends OncePerRequestFilter {
+
+    public static final String STATEMENTS_HEADER = "X-Db-Statements";
+    public static final String TIME_HEADER = "X-Db-Time-Ms";
+    public static final String CONNECTION_HOLD_HEADER = "X-Db-Connection-Hold-Ms";
+
+    private static final String STATS_ATTRIBUTE = SqlRecordingFilter.class.getName() + ".stats";
+    private static final String UNKNOWN_URI = "UNKNOWN";
+
+    private final SqlRecorder sqlRecorder;
+    private final boolean responseHeaders;
+
+    public SqlRecordingFilter(SqlRecorder sqlRecorder, boolean responseHeaders) {
+        this.sqlRecorder = sqlRecorder;
+        this.responseHeaders = responseHeaders;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        SqlRecorder.RequestStats stats = (SqlRecorder.RequestStats) request.getAttribute(STATS_ATTRIBUTE);
+        if (stats == null) {
+            stats = new SqlRecorder.RequestStats();
+            request.setAttribute(STATS_ATTRIBUTE, stats);
+        }
+        if (responseHeaders && !isAsyncDispatch(request)) {
+            response = new StatsHeaderResponse(response, stats);
+        }
+
+        SqlRecorder.RequestStats previous = SqlRecorder.attach(stats);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            SqlRecorder.attach(previous);
+            if (!request.isAsyncStarted()) {
+                Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                sqlRecorder.record(stats, pattern != null ? pattern.toString() : UNKNOWN_URI);
+            }
+        }
+    }
+
+    private static final class StatsHeaderResponse extends OnCommittedResponseWrapper {
+        private final SqlRecorder.RequestStats stats;
+
+        private StatsHeaderResponse(HttpServletResponse response, SqlRecorder.RequestStats stats) {
+            super(response);
+            this.stats = stats;
+        }
+
+        @Override
+        protected void onResponseCommitted() {
+            setHeader(STATEMENTS_HEADER, Long.toString(stats.getStatementCount()));
+            setHeader(TIME_HEADER, Long.toString(stats.getStatementMsec()));
+            setHeader(CONNECTION_HOLD_HEADER, Long.toString(stats.getConnectionHoldMsec()));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.springsocial.config;
+
+import com.example.springsocial.model.UserIdGenerator;
+import com.example.springsocial.util.IdAllocator;
+import com.example.springsocial.util.PooledIdAllocator;
+import com.example.springsocial.util.TimeOrderedIdGenerator;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.id.SequenceMismatchStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+/**
+ * Hands the {@code app.userIds} settings to {@link UserIdGenerator}, which Hibernate instantiates itself.
+ * The pooled and time-ordered strategies get an {@link IdAllocator} bean, shared with the native
+ * user inserts so that every insert takes its id from the same place.
+ */
+@Configuration
+public class UserIdConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserIdConfig.class);
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.userIds", name = "strategy", havingValue = UserIdGenerator.TIME_ORDERED)
+    public TimeOrderedIdGenerator timeOrderedIdGenerator(AppProperties appProperties) {
+        Integer nodeId = appProperties.getUserIds().getNodeId();
+        if (nodeId == null) {
+            throw new IllegalStateException("app.userIds.nodeId must be set, uniquely per node, for time-ordered user ids");
+        }
+        return new TimeOrderedIdGenerator(nodeId);
+    }
+
+    @Bean
+    @DependsOn("userIdSequenceIncrement")
+    @ConditionalOnProperty(prefix = "app.userIds", name = "strategy", havingValue = UserIdGenerator.POOLED, matchIfMissing = true)
+    public PooledIdAllocator pooledUserIds(JdbcTemplate jdbcTemplate, AppProperties appProperties) {
+        return new PooledIdAllocator(appProperties.getUserIds().getBlockSize(), () -> jdbcTemplate.queryForObject(
+                "select nextval('" + UserIdGenerator.SEQUENCE_NAME + "')", Long.class));
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer userIdHibernateProperties(AppProperties appProperties,
+                                                                   ObjectProvider<IdAllocator> userIds) {
+        return properties -> {
+            properties.put(UserIdGenerator.STRATEGY, appProperties.getUserIds().getStrategy());
+            properties.put(UserIdGenerator.BLOCK_SIZE, appProperties.getUserIds().getBlockSize());
+            userIds.ifAvailable(ids -> properties.put(UserIdGenerator.ID_ALLOCATOR, ids));
+            // Logs instead of failing should users_id_seq still step by another increment than this strategy's
+            properties.put(AvailableSettings.SEQUENCE_INCREMENT_SIZE_MISMATCH_STRATEGY, SequenceMismatchStrategy.LOG);
+        };
+    }
+
+    /*
+      Pooled-lo hands out nextval .. nextval + blockSize - 1, which is only safe while the sequence
+      itself steps by blockSize. The JdbcTemplate waits for the Flyway migrations, and Hibernate
+      waits for this, so it starts against (and validates) a sequence that already steps by blockSize.
+    */
+    @Bean
+    @ConditionalOnProperty(prefix = "app.userIds", name = "strategy", havingValue = UserIdGenerator.POOLED, matchIfMissing = true)
+    public InitializingBean userIdSequenceIncrement(JdbcTemplate jdbcTemplate, AppProperties appProperties) {
+        return () -> {
+            int blockSize = appProperties.getUserIds().getBlockSize();
+            List<Long> increments = jdbcTemplate.queryForList(
+                    "select cast(increment as bigint) from information_schema.sequences " +
+                    "where sequence_schema = current_schema() and sequence_name = ?", Long.class, UserIdGenerator.SEQUENCE_NAME);
+            if (!increments.isEmpty() && increments.get(0) != blockSize) {
+                jdbcTemplate.execute("alter sequence " + UserIdGenerator.SEQUENCE_NAME + " increment by " + blockSize);
+                logger.info("Changed the increment of {} from {} to {}", UserIdGenerator.SEQUENCE_NAME, increments.get(0), blockSize);
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.userIds", name = "strategy", havingValue = UserIdGenerator.POOLED, matchIfMissing = true)
+    public static EntityManagerFactoryDependsOnPostProcessor entityManagerFactoryDependsOnUserIdSequence() {
+        return new EntityManagerFactoryDependsOnPostProcessor("userIdSequenceIncrement");
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.springsocial.controller;
+
+import com.example.springsocial.config.AppProperties;
+import com.example.springsocial.config.SqlRecorder;
+import com.example.springsocial.payload.UserImportResult;
+import com.example.springsocial.service.UserExportService;
+import com.example.springsocial.service.UserImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @Autowired
+    private UserExportService userExportService;
+
+    @Autowired
+    private AppProperties appProperties;
+
+    /**
+     * Imports local users from NDJSON lines or CSV with a {@code name,email,password} header.
+     * The body is streamed, so it is never held in memory as a whole.
+     */
+    @PostMapping(value = "/users/import", consumes = {UserImportService.NDJSON, UserImportService.CSV})
+    @PreAuthorize("@adminAuthorizer.isAdmin(principal)")
+    public UserImportResult importUsers(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                        InputStream body) throws IOException {
+        return userImportService.importUsers(body, contentType);
+    }
+
+    /**
+     * Streams all users with an id greater than {@code after}, in id order, as NDJSON or, if the
+     * client accepts {@code text/csv}, as CSV. Passing the last id received resumes an export.
+     *
+     * Returned as a task with a timeout of its own, {@code app.userExport.timeoutMsec}, so only
+     * the export outlives the default async request timeout.
+     */
+    @GetMapping(value = "/users/export", produces = {UserImportService.NDJSON, UserImportService.CSV})
+    @PreAuthorize("@adminAuthorizer.isAdmin(principal)")
+    public WebAsyncTask<Void> exportUsers(
+            @RequestHeader(value = HttpHeaders.ACCEPT, defaultValue = UserImportService.NDJSON) String accept,
+            @RequestParam(defaultValue = "0") long after, HttpServletResponse response) {
+        boolean csv = accept.toLowerCase(Locale.ROOT).contains(UserImportService.CSV);
+        response.setContentType(new MediaType(MediaType.parseMediaType(csv ? UserImportService.CSV : UserImportService.NDJSON),
+                StandardCharsets.UTF_8).toString());
+        SqlRecorder.RequestStats requestStats = SqlRecorder.current();
+        return new WebAsyncTask<>(appProperties.getUserExport().getTimeoutMsec(), () -> {
+            SqlRecorder.RequestStats previous = SqlRecorder.attach(requestStats);
+            try {
+                userExportService.exportUsers(response.getOutputStream(), csv, after);
+                response.flushBuffer();
+            } finally {
+                SqlRecorder.attach(previous);
+            }
+            return null;
+        });
+    }
+}
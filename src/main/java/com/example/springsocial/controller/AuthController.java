@@ -1,26 +1,41 @@
 package com.example.springsocial.controller;
 
 import com.example.springsocial.exception.BadRequestException;
+import com.example.springsocial.exception.TooManyRequestsException;
 import com.example.springsocial.model.AuthProvider;
 import com.example.springsocial.model.User;
 import com.example.springsocial.payload.ApiResponse;
 import com.example.springsocial.payload.AuthResponse;
+import com.example.springsocial.payload.EmailAvailabilityResponse;
 import com.example.springsocial.payload.LoginRequest;
 import com.example.springsocial.payload.SignUpRequest;
+import com.example.springsocial.repository.RegisteredEmails;
 import com.example.springsocial.repository.UserRepository;
+import com.example.springsocial.security.AuthEvent;
+import com.example.springsocial.security.AuthEventLog;
+import com.example.springsocial.security.LoginThrottle;
+import com.example.springsocial.security.PasswordHashingExecutor;
+import com.example.springsocial.security.PasswordUpgradeService;
 import com.example.springsocial.security.TokenProvider;
+import com.example.springsocial.security.TokenRevocationService;
+import com.example.springsocial.security.UserPrincipal;
+import com.example.springsocial.security.VerifiedToken;
+import com.example.springsocial.security.UserPrincipalCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
-import java.net.URI;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/auth")
@@ -38,45 +53,130 @@ public class AuthController {
     @Autowired
     private TokenProvider tokenProvider;
 
-    @PostMapping("/login")
-    public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
 
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                        loginRequest.getEmail(),
-                        loginRequest.getPassword()
-                )
-        );
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
 
-        SecurityContextHolder.getContext().setAuthentication(authentication);
+    @Autowired
+    private PasswordHashingExecutor passwordHashingExecutor;
 
-        String token = tokenProvider.createToken(authentication);
-        return ResponseEntity.ok(new AuthResponse(token));
-    }
+    @Autowired
+    private PasswordUpgradeService passwordUpgradeService;
 
-    @PostMapping("/signup")
-    public ResponseEntity<?> registerUser(@Valid @RequestBody SignUpRequest signUpRequest) {
-        if(userRepository.existsByEmail(signUpRequest.getEmail())) {
-            throw new BadRequestException("Email address already in use.");
+    @Autowired
+    private LoginThrottle loginThrottle;
+
+    @Autowired
+    private AuthEventLog authEventLog;
+
+    @Autowired
+    private RegisteredEmails registeredEmails;
+
+    @PostMapping("/login")
+    public CompletableFuture<ResponseEntity<?>> authenticateUser(@Valid @RequestBody LoginRequest loginRequest,
+                                                                 HttpServletRequest request) {
+        String remoteAddress = request.getRemoteAddr();
+        try {
+            loginThrottle.check(loginRequest.getEmail(), remoteAddress);
+        } catch (TooManyRequestsException ex) {
+            authEventLog.record(AuthEvent.Type.LOGIN_THROTTLED, null, loginRequest.getEmail(), remoteAddress, null);
+            throw ex;
         }
 
-        // Creating user's account
-        User user = new User();
-        user.setName(signUpRequest.getName());
-        user.setEmail(signUpRequest.getEmail());
-        user.setPassword(signUpRequest.getPassword());
-        user.setProvider(AuthProvider.local);
+        // BCrypt runs on the hashing pool. The token is stateless, so nothing is put in the
+        // SecurityContextHolder of a pool thread.
+        return passwordHashingExecutor.submit("login", () -> {
+            Authentication authentication;
+            try {
+                authentication = authenticationManager.authenticate(
+                        new UsernamePasswordAuthenticationToken(
+                                loginRequest.getEmail(),
+                                loginRequest.getPassword()
+                        )
+                );
+            } catch (AuthenticationException ex) {
+                authEventLog.record(AuthEvent.Type.LOGIN_FAILED, null, loginRequest.getEmail(), remoteAddress,
+                        ex.getMessage());
+                throw ex;
+            }
+            Long userId = authentication.getPrincipal() instanceof UserPrincipal
+                    ? ((UserPrincipal) authentication.getPrincipal()).getId()
+                    : null;
+            authEventLog.record(AuthEvent.Type.LOGIN_SUCCEEDED, userId, loginRequest.getEmail(), remoteAddress, null);
+
+            passwordUpgradeService.upgradeIfNeeded(authentication.getPrincipal(), loginRequest.getPassword());
+
+            String token = tokenProvider.createToken(authentication);
+            return ResponseEntity.ok(new AuthResponse(token));
+        });
+    }
 
-        user.setPassword(passwordEncoder.encode(user.getPassword()));
+    @PostMapping("/signup")
+    public CompletableFuture<ResponseEntity<?>> registerUser(@Valid @RequestBody SignUpRequest signUpRequest,
+                                                             HttpServletRequest request) {
+        // Request attributes are not available on the hashing pool
+        UriComponentsBuilder location = ServletUriComponentsBuilder
+                .fromCurrentContextPath().path("/user/me");
+        String remoteAddress = request.getRemoteAddr();
+
+        return passwordHashingExecutor.submit("signup", () -> {
+            // Creating user's account
+            User user = new User();
+            user.setName(signUpRequest.getName());
+            user.setEmail(signUpRequest.getEmail());
+            user.setPassword(signUpRequest.getPassword());
+            user.setProvider(AuthProvider.local);
+
+            user.setPassword(passwordEncoder.encode(user.getPassword()));
+
+            // A single insert-if-absent: a taken email, even one taken by a concurrent signup,
+            // comes back empty instead of as a constraint violation. Local users have no
+            // provider id, so the email is the only thing that can conflict.
+            Long id = userRepository.insertIfAbsent(user)
+                    .orElseThrow(() -> new BadRequestException("Email address already in use."));
+            user.setId(id);
+            userPrincipalCache.invalidate(user);
+            authEventLog.record(AuthEvent.Type.SIGNUP, id, user.getEmail(), remoteAddress, null);
+
+            return ResponseEntity.created(location.buildAndExpand(id).toUri())
+                    .body(new ApiResponse(true, "User registered successfully@"));
+        });
+    }
 
-        User result = userRepository.save(user);
+    /*
+      For signup forms checking an address as it is typed. Most addresses asked about are free,
+      and the Bloom filter answers those without a query; only possible matches hit the unique
+      index. Every answer says whether an address is registered, so lookups are throttled per
+      client address first. The signup insert still decides.
+    */
+    @GetMapping("/email-available")
+    public ResponseEntity<?> checkEmailAvailability(@RequestParam String email, HttpServletRequest request) {
+        loginThrottle.checkLookup(request.getRemoteAddr());
+        if (!StringUtils.hasText(email)) {
+            throw new BadRequestException("An email address is required.");
+        }
+
+        boolean registered = registeredEmails.isRegistered(email,
+                candidate -> Boolean.TRUE.equals(userRepository.existsByEmail(candidate)));
+        return ResponseEntity.ok(new EmailAvailabilityResponse(email, !registered));
+    }
 
-        URI location = ServletUriComponentsBuilder
-                .fromCurrentContextPath().path("/user/me")
-                .buildAndExpand(result.getId()).toUri();
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader(value = "Authorization", required = false) String authorization) {
+        // /auth/** is not authenticated by the filter chain, so the bearer token is verified here
+        VerifiedToken verifiedToken = StringUtils.hasText(authorization) && authorization.startsWith("Bearer ")
+                ? tokenProvider.verifyToken(authorization.substring(7))
+                : null;
+        if (verifiedToken == null) {
+            throw new BadRequestException("A valid bearer token is required.");
+        }
+        if (!tokenRevocationService.revoke(verifiedToken)) {
+            throw new BadRequestException("This token cannot be revoked and will expire on its own.");
+        }
 
-        return ResponseEntity.created(location)
-                .body(new ApiResponse(true, "User registered successfully@"));
+        return ResponseEntity.ok(new ApiResponse(true, "Logged out successfully"));
     }
 
 }
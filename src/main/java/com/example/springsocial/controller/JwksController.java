@@ -0,0 +1,34 @@
+package com.example.springsocial.controller;
+
+import com.example.springsocial.config.AppProperties;
+import com.example.springsocial.security.SigningKeyRing;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+public class JwksController {
+
+    @Autowired
+    private SigningKeyRing signingKeyRing;
+
+    @Autowired
+    private AppProperties appProperties;
+
+    /**
+     * Public keys for verifying ES256 tokens locally. Each key is published one rotation before
+     * it signs anything, so verifiers may cache the set for up to half a rotation period.
+     */
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, Object>> getKeySet() {
+        long maxAgeMsec = appProperties.getAuth().getKeyRotationMsec() / 2;
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(maxAgeMsec, TimeUnit.MILLISECONDS).cachePublic())
+                .body(signingKeyRing.toJwkSet());
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.springsocial.model;
+
+import javax.persistence.*;
+
+@Entity
+@Table(name = "login_throttle_buckets", indexes = {
+        @Index(name = "idx_login_throttle_buckets_used_at", columnList = "usedAt")
+})
+public class LoginThrottleBucket {
+    @Id
+    @Column(length = 400)
+    private String bucketKey;
+
+    @Column(nullable = false)
+    private double tokens;
+
+    @Column(nullable = false)
+    private long usedAt;
+
+    public String getBucketKey() {
+        return bucketKey;
+    }
+
+    public void setBucketKey(String bucketKey) {
+        this.bucketKey = bucketKey;
+    }
+
+    public double getTokens() {
+        return tokens;
+    }
+
+    public void setTokens(double tokens) {
+        this.tokens = tokens;
+    }
+
+    public long getUsedAt() {
+        return usedAt;
+    }
+
+    public void setUsedAt(long usedAt) {
+        this.usedAt = usedAt;
+    }
+}
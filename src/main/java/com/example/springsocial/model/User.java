@@ -1,5 +1,10 @@
 package com.example.springsocial.model;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import javax.persistence.*;
 import javax.validation.constraints.Email;
@@ -7,17 +12,26 @@ import javax.validation.constraints.NotNull;
 
 @Entity
 @Table(name = "users", uniqueConstraints = {
-        @UniqueConstraint(columnNames = "email")
+        @UniqueConstraint(columnNames = "email"),
+        @UniqueConstraint(name = "uk_users_provider_account", columnNames = {"provider", "providerId"})
 })
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
+@NaturalIdCache(region = User.NATURAL_ID_CACHE_REGION)
 public class User {
+    public static final String CACHE_REGION = "users";
+    public static final String NATURAL_ID_CACHE_REGION = "users-by-email";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "user-id")
+    @GenericGenerator(name = "user-id", strategy = "com.example.springsocial.model.UserIdGenerator")
     private Long id;
 
     @Column(nullable = false)
     private String name;
 
     @Email
+    @NaturalId
     @Column(nullable = false)
     private String email;
 
@@ -35,6 +49,11 @@ public class User {
 
     private String providerId;
 
+    @JsonIgnore
+    @Version
+    @Column(columnDefinition = "bigint default 0 not null")
+    private Long version;
+
     public Long getId() {
         return id;
     }
@@ -98,4 +117,12 @@ public class User {
     public void setProviderId(String providerId) {
         this.providerId = providerId;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,100 @@
+package com.example.springsocial.model;
+
+import com.example.springsocial.util.IdAllocator;
+import com.example.springsocial.util.PooledIdAllocator;
+import com.example.springsocial.util.TimeOrderedIdGenerator;
+import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
+import org.hibernate.boot.model.relational.Database;
+import org.hibernate.boot.model.relational.ExportableProducer;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.Configurable;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Assigns {@link User} ids before the insert, so Hibernate can batch user inserts
+ * ({@code hibernate.jdbc.batch_size} in application.yml).
+ *
+ * The strategy comes from the Hibernate settings that {@code UserIdConfig} copies from
+ * {@code app.userIds}:
+ * <ul>
+ *     <li>{@code sequence}: one {@code nextval} of {@code users_id_seq} per user, the same ids the
+ *     old identity column produced. Used when {@code UserIdConfig} passes no strategy.</li>
+ *     <li>{@code pooled} (the default of {@code app.userIds.strategy}): ids from a {@link PooledIdAllocator},
+ *     blocks of {@code blockSize} ids per {@code nextval}, so only one insert in a block waits on the sequence.</li>
+ *     <li>{@code time-ordered}: ids from a {@link TimeOrderedIdGenerator}, with no database round trip.</li>
+ * </ul>
+ * For the last two, the {@link IdAllocator} is the application's own bean, which the native user
+ * inserts draw from as well.
+ * {@code users_id_seq} is kept in the schema whatever the strategy, so switching back is always possible.
+ */
+public class UserIdGenerator implements IdentifierGenerator, Configurable, ExportableProducer {
+
+    public static final String STRATEGY = "app.user_ids.strategy";
+    public static final String BLOCK_SIZE = "app.user_ids.block_size";
+    public static final String ID_ALLOCATOR = "app.user_ids.id_allocator";
+
+    public static final String SEQUENCE_NAME = "users_id_seq";
+
+    public static final String SEQUENCE = "sequence";
+    public static final String POOLED = "pooled";
+    public static final String TIME_ORDERED = "time-ordered";
+
+    private final SequenceStyleGenerator sequenceGenerator = new SequenceStyleGenerator();
+    private IdAllocator ids;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        Map<Object, Object> settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+        String strategy = String.valueOf(settings.getOrDefault(STRATEGY, SEQUENCE)).toLowerCase(Locale.ROOT);
+
+        Properties sequenceParams = new Properties();
+        sequenceParams.putAll(params);
+        sequenceParams.put(SequenceStyleGenerator.SEQUENCE_PARAM, SEQUENCE_NAME);
+        switch (strategy) {
+            case SEQUENCE:
+                sequenceParams.put(SequenceStyleGenerator.INCREMENT_PARAM, "1");
+                break;
+            case POOLED:
+                sequenceParams.put(SequenceStyleGenerator.INCREMENT_PARAM, String.valueOf(settings.get(BLOCK_SIZE)));
+                // Still declared, so the schema checks see the increment the allocator relies on
+                sequenceParams.put(SequenceStyleGenerator.OPT_PARAM, "pooled-lo");
+                ids = idAllocator(settings, strategy);
+                break;
+            case TIME_ORDERED:
+                sequenceParams.put(SequenceStyleGenerator.INCREMENT_PARAM, "1");
+                ids = idAllocator(settings, strategy);
+                break;
+            default:
+                throw new MappingException("Unknown user id strategy: " + strategy);
+        }
+        sequenceGenerator.configure(type, sequenceParams, serviceRegistry);
+    }
+
+    @Override
+    public void registerExportables(Database database) {
+        sequenceGenerator.registerExportables(database);
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
+        return ids != null ? ids.nextId() : sequenceGenerator.generate(session, object);
+    }
+
+    private static IdAllocator idAllocator(Map<Object, Object> settings, String strategy) {
+        IdAllocator ids = (IdAllocator) settings.get(ID_ALLOCATOR);
+        if (ids == null) {
+            throw new MappingException("No IdAllocator configured for " + strategy + " user ids");
+        }
+        return ids;
+    }
+}
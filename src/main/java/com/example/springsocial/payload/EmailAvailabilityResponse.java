@@ -0,0 +1,27 @@
+package com.example.springsocial.payload;
+
+public class EmailAvailabilityResponse {
+    private String email;
+    private boolean available;
+
+    public EmailAvailabilityResponse(String email, boolean available) {
+        this.email = email;
+        this.available = available;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public void setAvailable(boolean available) {
+        this.available = available;
+    }
+}
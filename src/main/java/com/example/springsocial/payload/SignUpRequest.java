@@ -2,6 +2,7 @@ package com.example.springsocial.payload;
 
 import javax.validation.constraints.Email;
 import javax.validation.constraints.NotBlank;
+import java.util.Locale;
 
 /**
  * Created by rajeevkumarsingh on 02/08/17.
@@ -30,8 +31,12 @@ public class SignUpRequest {
         return email;
     }
 
+    /*
+      Lowercased on the way in so that every lookup matches the lower(email) index. Surrounding
+      whitespace is left alone and fails @Email as before.
+    */
     public void setEmail(String email) {
-        this.email = email;
+        this.email = email == null ? null : email.toLowerCase(Locale.ROOT);
     }
 
     public String getPassword() {
@@ -0,0 +1,76 @@
+package com.example.springsocial.payload;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class UserImportResult {
+    private long imported;
+    private long conflicts;
+    private long invalid;
+    private boolean rejectionsTruncated;
+    private List<Rejection> rejections = new ArrayList<>();
+
+    public long getImported() {
+        return imported;
+    }
+
+    public void setImported(long imported) {
+        this.imported = imported;
+    }
+
+    public long getConflicts() {
+        return conflicts;
+    }
+
+    public void setConflicts(long conflicts) {
+        this.conflicts = conflicts;
+    }
+
+    public long getInvalid() {
+        return invalid;
+    }
+
+    public void setInvalid(long invalid) {
+        this.invalid = invalid;
+    }
+
+    public boolean isRejectionsTruncated() {
+        return rejectionsTruncated;
+    }
+
+    public void setRejectionsTruncated(boolean rejectionsTruncated) {
+        this.rejectionsTruncated = rejectionsTruncated;
+    }
+
+    public List<Rejection> getRejections() {
+        return rejections;
+    }
+
+    public void setRejections(List<Rejection> rejections) {
+        this.rejections = rejections;
+    }
+
+    public static class Rejection {
+        private long line;
+        private String email;
+        private String reason;
+
+        public Rejection(long line, String email, String reason) {
+            this.line = line;
+            this.email = email;
+            this.reason = reason;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+    }
+}
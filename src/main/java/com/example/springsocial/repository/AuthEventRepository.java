@@ -0,0 +1,72 @@
+package com.example.springsocial.repository;
+
+import com.example.springsocial.security.AuthEvent;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Appends to the monthly-partitioned {@code auth_events} table.
+ */
+@Repository
+public class AuthEventRepository {
+
+    private static final String INSERT =
+            "insert into auth_events (occurred_at, event_type, user_id, email, remote_address, detail) " +
+            "values (?, ?, ?, ?, ?, ?)";
+
+    private static final String CREATE_PARTITION =
+            "create table if not exists %s partition of auth_events for values from ('%s') to ('%s')";
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AuthEventRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Inserts the events as one JDBC batch.
+     */
+    @Transactional
+    public void insertAll(List<AuthEvent> events) {
+        jdbcTemplate.batchUpdate(INSERT, events, events.size(), (statement, event) -> {
+            statement.setTimestamp(1, Timestamp.from(event.getOccurredAt()));
+            statement.setString(2, event.getType().name());
+            if (event.getUserId() != null) {
+                statement.setLong(3, event.getUserId());
+            } else {
+                statement.setNull(3, Types.BIGINT);
+            }
+            statement.setString(4, event.getEmail());
+            statement.setString(5, event.getRemoteAddress());
+            statement.setString(6, event.getDetail());
+        });
+    }
+
+    /**
+     * Creates the partition for {@code month} unless it exists, and returns its name. This fails
+     * if the default partition already holds rows for that month, which is why partitions are
+     * created ahead of the month they cover.
+     */
+    @Transactional
+    public String createPartition(YearMonth month) {
+        String name = partitionName(month);
+        LocalDate from = month.atDay(1);
+        jdbcTemplate.execute(String.format(CREATE_PARTITION, name, from, from.plusMonths(1)));
+        return name;
+    }
+
+    public static String partitionName(YearMonth month) {
+        return "auth_events_" + month.format(PARTITION_SUFFIX);
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.springsocial.repository;
+
+import com.example.springsocial.model.LoginThrottleBucket;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface LoginThrottleRepository extends JpaRepository<LoginThrottleBucket, String> {
+
+    /**
+     * Refills the bucket for the time since it was last used and takes one token, in a single
+     * statement. Returns the tokens left, or nothing if the bucket is empty, in which case the
+     * row is left untouched so the refill keeps counting from its last use.
+     */
+    @Transactional
+    @Query(value = "insert into login_throttle_buckets as b (bucket_key, tokens, used_at) " +
+            "values (:key, :capacity - 1, :now) " +
+            "on conflict (bucket_key) do update " +
+            "set tokens = least(:capacity, b.tokens + (:now - b.used_at) * :tokensPerMsec) - 1, used_at = :now " +
+            "where least(:capacity, b.tokens + (:now - b.used_at) * :tokensPerMsec) >= 1 " +
+            "returning b.tokens", nativeQuery = true)
+    List<Double> tryAcquire(@Param("key") String key, @Param("capacity") double capacity,
+                            @Param("tokensPerMsec") double tokensPerMsec, @Param("now") long now);
+
+    @Transactional
+    @Modifying
+    @Query("delete from LoginThrottleBucket b where b.usedAt < :before")
+    int deleteIdle(@Param("before") long before);
+}
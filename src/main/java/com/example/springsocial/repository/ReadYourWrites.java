@@ -0,0 +1,104 @@
+package com.example.springsocial.repository;
+
+import com.example.springsocial.config.AppProperties;
+import com.example.springsocial.model.User;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Keeps a user's reads on the primary for a short while after that user was written.
+ *
+ * Replicas apply the primary's writes with some lag, so a user who has just signed up or had
+ * their profile updated could otherwise be looked up on a replica that does not have the row yet.
+ * Writes are recorded by id and email for {@code stickyMsec}; a read for a recently written user
+ * pins the current thread to the primary, which {@code ReplicaRoutingDataSource} honours even for
+ * read-only transactions.
+ */
+@Component
+public class ReadYourWrites {
+
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    private final boolean enabled;
+    private final long stickyMsec;
+
+    private final Map<Long, Long> writtenById = new ConcurrentHashMap<>();
+    private final Map<String, Long> writtenByEmail = new ConcurrentHashMap<>();
+
+    public ReadYourWrites(AppProperties appProperties) {
+        this.enabled = appProperties.getReadReplicas().isEnabled();
+        this.stickyMsec = appProperties.getReadReplicas().getStickyMsec();
+    }
+
+    public void recordWrite(User user) {
+        if (!enabled) {
+            return;
+        }
+
+        Long stickyUntil = System.currentTimeMillis() + stickyMsec;
+        if (user.getId() != null) {
+            writtenById.put(user.getId(), stickyUntil);
+        }
+        if (user.getEmail() != null) {
+            writtenByEmail.put(emailKey(user.getEmail()), stickyUntil);
+        }
+    }
+
+    public <T> T readById(Long id, Supplier<T> read) {
+        return read(enabled && id != null && isRecent(writtenById, id), read);
+    }
+
+    public <T> T readByEmail(String email, Supplier<T> read) {
+        return read(enabled && email != null && isRecent(writtenByEmail, emailKey(email)), read);
+    }
+
+    /**
+     * For reads that must see every committed write, such as the lookup after an insert lost a race.
+     */
+    public <T> T readFromPrimary(Supplier<T> read) {
+        return read(enabled, read);
+    }
+
+    public boolean isPinnedToPrimary() {
+        return PINNED.get() != null;
+    }
+
+    @Scheduled(fixedDelayString = "${app.readReplicas.stickyMsec:2000}",
+            initialDelayString = "${app.readReplicas.stickyMsec:2000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        writtenById.values().removeIf(stickyUntil -> stickyUntil <= now);
+        writtenByEmail.values().removeIf(stickyUntil -> stickyUntil <= now);
+    }
+
+    public int size() {
+        return writtenById.size() + writtenByEmail.size();
+    }
+
+    private <T> T read(boolean onPrimary, Supplier<T> read) {
+        if (!onPrimary || isPinnedToPrimary()) {
+            return read.get();
+        }
+
+        PINNED.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            PINNED.remove();
+        }
+    }
+
+    private static <K> boolean isRecent(Map<K, Long> written, K key) {
+        Long stickyUntil = written.get(key);
+        return stickyUntil != null && stickyUntil > System.currentTimeMillis();
+    }
+
+    private static String emailKey(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+}
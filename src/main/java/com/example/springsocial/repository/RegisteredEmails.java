@@ -0,0 +1,226 @@
+package com.example.springsocial.repository;
+
+import com.example.springsocial.config.AppProperties;
+import com.example.springsocial.util.BloomFilter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Bloom filter of every registered email, so that most checks for a free address never reach
+ * the database.
+ *
+ * The filter is built from {@code users} in one streamed pass on the scheduler, so startup does
+ * not wait for it, and rebuilt every {@code rebuildMsec} to keep it sized to the table. Until the
+ * first build every check goes to the database. The user repositories {@link #add} each email
+ * they insert, and every {@code pollMsec} the rows other nodes inserted are read by
+ * {@code created_at}, so a miss means the email was not registered as of the last poll. A hit
+ * may be a false positive and is confirmed against the {@code lower(email)} unique index.
+ */
+@Component
+public class RegisteredEmails implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(RegisteredEmails.class);
+
+    private static final String SELECT_EMAILS = "select email from users";
+    private static final String SELECT_EMAILS_SINCE = "select email from users where created_at >= ?";
+    private static final String SELECT_NOW = "select now()";
+    private static final int FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+    private final long expectedEmails;
+    private final double falsePositiveRate;
+    private final long pollOverlapMsec;
+
+    // Null until the first build, when every email is treated as possibly registered
+    private volatile BloomFilter filter;
+    // Set while a rebuild reads the table, so that emails added meanwhile are not lost in the swap
+    private volatile BloomFilter building;
+    private volatile long lastBuildSize;
+    // Database time as of which every committed insert is in the filter
+    private volatile Timestamp polledUpTo;
+
+    private final LongAdder absent = new LongAdder();
+    private final LongAdder confirmed = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    public RegisteredEmails(DataSource dataSource, PlatformTransactionManager transactionManager,
+                            AppProperties appProperties) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+        // Read-write, so the scan runs on the primary and sees every committed signup. The
+        // transaction is what lets the driver fetch through a cursor instead of all at once.
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = appProperties.getEmailFilter().isEnabled();
+        this.expectedEmails = Math.max(1, appProperties.getEmailFilter().getExpectedEmails());
+        this.falsePositiveRate = appProperties.getEmailFilter().getFalsePositiveRate();
+        this.pollOverlapMsec = appProperties.getEmailFilter().getPollOverlapMsec();
+    }
+
+    /**
+     * Records a newly inserted email. Inside a transaction it is added again after commit, in
+     * case a rebuild read the table between the insert and the commit.
+     */
+    public void add(String email) {
+        if (!enabled || email == null) {
+            return;
+        }
+
+        String key = emailKey(email);
+        put(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    put(key);
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns whether {@code email} is registered, asking {@code lookup} only when the filter
+     * cannot rule it out.
+     */
+    public boolean isRegistered(String email, Predicate<String> lookup) {
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(emailKey(email))) {
+            absent.increment();
+            return false;
+        }
+
+        boolean registered = lookup.test(email);
+        if (current != null) {
+            (registered ? confirmed : falsePositives).increment();
+        }
+        return registered;
+    }
+
+    /**
+     * Adds the emails inserted since the last poll, on any node. Inserts are found by the start
+     * of their transaction, so the window reaches back {@code pollOverlapMsec} further to take in
+     * transactions that were still open at the last poll. Builds the filter instead if there is
+     * none yet.
+     */
+    @Scheduled(fixedDelayString = "${app.emailFilter.pollMsec:1000}", initialDelay = 0)
+    public synchronized void poll() {
+        if (!enabled) {
+            return;
+        }
+        if (filter == null) {
+            rebuild();
+            return;
+        }
+
+        Timestamp since = new Timestamp(polledUpTo.getTime() - pollOverlapMsec);
+        try {
+            polledUpTo = transactionTemplate.execute(status -> {
+                Timestamp now = jdbcTemplate.queryForObject(SELECT_NOW, Timestamp.class);
+                jdbcTemplate.query(SELECT_EMAILS_SINCE, resultSet -> {
+                    put(emailKey(resultSet.getString(1)));
+                }, since);
+                return now;
+            });
+        } catch (RuntimeException ex) {
+            logger.warn("Could not read new users into the registered email filter, will retry", ex);
+        }
+    }
+
+    /**
+     * Reads every email into a new filter and swaps it in. A table that outgrew the last filter
+     * gets one sized for twice its rows, so the false positive rate does not creep up.
+     */
+    @Scheduled(fixedDelayString = "${app.emailFilter.rebuildMsec:900000}",
+            initialDelayString = "${app.emailFilter.rebuildMsec:900000}")
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+
+        long startedAt = System.currentTimeMillis();
+        BloomFilter next = new BloomFilter(Math.max(expectedEmails, 2 * lastBuildSize), falsePositiveRate);
+        building = next;
+        LongAdder rows = new LongAdder();
+        try {
+            // now() is read before the scan, so the next poll starts no later than the scan's snapshot
+            Timestamp builtAt = transactionTemplate.execute(status -> {
+                Timestamp now = jdbcTemplate.queryForObject(SELECT_NOW, Timestamp.class);
+                jdbcTemplate.query(SELECT_EMAILS, resultSet -> {
+                    next.put(emailKey(resultSet.getString(1)));
+                    rows.increment();
+                });
+                return now;
+            });
+            // Swapped in before building is cleared, so an add() in between reaches one or the other
+            polledUpTo = builtAt;
+            filter = next;
+        } catch (RuntimeException ex) {
+            logger.warn("Could not build the registered email filter, keeping the previous one", ex);
+            return;
+        } finally {
+            building = null;
+        }
+
+        lastBuildSize = rows.sum();
+        logger.info("Built the registered email filter from {} users in {} ms",
+                lastBuildSize, System.currentTimeMillis() - startedAt);
+    }
+
+    public boolean isReady() {
+        return filter != null;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("users.email.filter.checks", absent, LongAdder::sum)
+                .tag("result", "absent")
+                .description("Email checks answered by the Bloom filter alone")
+                .register(registry);
+        FunctionCounter.builder("users.email.filter.checks", confirmed, LongAdder::sum)
+                .tag("result", "registered")
+                .description("Email checks the Bloom filter passed on and the database confirmed")
+                .register(registry);
+        FunctionCounter.builder("users.email.filter.checks", falsePositives, LongAdder::sum)
+                .tag("result", "false_positive")
+                .description("Email checks the Bloom filter passed on for an unregistered email")
+                .register(registry);
+        Gauge.builder("users.email.filter.size", this, emails -> emails.lastBuildSize)
+                .description("Emails read into the filter by its last rebuild")
+                .register(registry);
+    }
+
+    // building is read first: if a rebuild has already cleared it, its filter is the current one
+    private void put(String key) {
+        BloomFilter next = building;
+        if (next != null) {
+            next.put(key);
+        }
+        BloomFilter current = filter;
+        if (current != null) {
+            current.put(key);
+        }
+    }
+
+    private static String emailKey(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.springsocial.repository;
+
+import com.example.springsocial.model.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+
+    @Query("select r.tokenId as tokenId, r.expiresAt as expiresAt from RevokedToken r " +
+            "where r.expiresAt > :now")
+    List<RevocationEntry> findUnexpired(@Param("now") Instant now);
+
+    @Query("select r.tokenId as tokenId, r.expiresAt as expiresAt from RevokedToken r " +
+            "where r.revokedAt >= :since and r.expiresAt > :now")
+    List<RevocationEntry> findRevokedSince(@Param("since") Instant since, @Param("now") Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("delete from RevokedToken r where r.expiresAt <= :now")
+    int deleteExpired(@Param("now") Instant now);
+
+    interface RevocationEntry {
+        String getTokenId();
+
+        Instant getExpiresAt();
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.springsocial.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The ES256 key ring shared by every node, in {@code signing_keys}. Private keys are stored
+ * encrypted by {@code SigningKeyRing}; this class only moves bytes.
+ */
+@Repository
+public class SigningKeyRepository {
+
+    private static final String SELECT_ALL =
+            "select kid, not_before, public_key, private_key from signing_keys order by not_before";
+
+    private static final String INSERT =
+            "insert into signing_keys (kid, not_before, public_key, private_key) values (?, ?, ?, ?)";
+
+    // Held until the surrounding transaction ends, so only one node changes the ring at a time
+    private static final String LOCK = "select pg_advisory_xact_lock(hashtext('signing_keys'))";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // The auto-configured template, which only exists once Flyway has created signing_keys
+    public SigningKeyRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Waits for any other node changing the ring. Only meaningful inside a transaction.
+     */
+    public void lock() {
+        jdbcTemplate.query(LOCK, resultSet -> {
+        });
+    }
+
+    public List<StoredKey> findAll() {
+        return jdbcTemplate.query(SELECT_ALL, (resultSet, rowNum) -> new StoredKey(
+                resultSet.getString(1),
+                Instant.ofEpochMilli(resultSet.getLong(2)),
+                resultSet.getBytes(3),
+                resultSet.getBytes(4)));
+    }
+
+    public void insert(StoredKey key) {
+        jdbcTemplate.update(INSERT, key.getKid(), key.getNotBefore().toEpochMilli(), key.getPublicKey(),
+                key.getPrivateKey());
+    }
+
+    public void deleteAll(Collection<String> kids) {
+        jdbcTemplate.batchUpdate("delete from signing_keys where kid = ?", kids, kids.size(),
+                (statement, kid) -> statement.setString(1, kid));
+    }
+
+    public static final class StoredKey {
+        private final String kid;
+        private final Instant notBefore;
+        private final byte[] publicKey;
+        private final byte[] privateKey;
+
+        public StoredKey(String kid, Instant notBefore, byte[] publicKey, byte[] privateKey) {
+            this.kid = kid;
+            this.notBefore = notBefore;
+            this.publicKey = publicKey;
+            this.privateKey = privateKey;
+        }
+
+        public String getKid() {
+            return kid;
+        }
+
+        /**
+         * When the key starts signing. Until then it is only published.
+         */
+        public Instant getNotBefore() {
+            return notBefore;
+        }
+
+        /**
+         * X.509 SubjectPublicKeyInfo encoding.
+         */
+        public byte[] getPublicKey() {
+            return publicKey;
+        }
+
+        /**
+         * PKCS#8 encoding, encrypted.
+         */
+        public byte[] getPrivateKey() {
+            return privateKey;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.springsocial.repository;
+
+import com.example.springsocial.model.UserIdGenerator;
+import com.example.springsocial.util.IdAllocator;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Loads local users in bulk through the PostgreSQL COPY protocol.
+ *
+ * Rows are copied into a temporary staging table and moved into {@code users} with a single
+ * {@code INSERT ... ON CONFLICT (email) DO NOTHING}, so an email that already exists, or that
+ * appears twice in the same chunk, skips that row instead of aborting the whole COPY.
+ */
+@Repository
+public class UserCopyRepository {
+
+    private static final String CREATE_STAGING =
+            "create temp table users_import (line bigint not null, id bigint, name text not null, email text not null, " +
+            "password text not null) on commit drop";
+
+    private static final String COPY_STAGING = "copy users_import (line, id, name, email, password) from stdin with (format csv)";
+
+    // DISTINCT ON keeps the first line for an email that is repeated within the chunk. Rows
+    // without an app-side id, under the sequence strategy, take one from the sequence.
+    // The conflict target is left open so that both the email constraint and the lower(email)
+    // index turn a taken address into a skipped row rather than an error.
+    private static final String MOVE_STAGED_ROWS =
+            "insert into users (id, name, email, password, email_verified, provider, version) " +
+            "select distinct on (email) coalesce(id, nextval('" + UserIdGenerator.SEQUENCE_NAME + "')), " +
+            "name, email, password, false, 'local', 0 from users_import order by email, line " +
+            "on conflict do nothing returning email";
+
+    private final DataSource dataSource;
+    private final IdAllocator userIds;
+    private final ObjectProvider<RegisteredEmails> registeredEmails;
+
+    public UserCopyRepository(DataSource dataSource, ObjectProvider<IdAllocator> userIds,
+                              ObjectProvider<RegisteredEmails> registeredEmails) {
+        this.dataSource = dataSource;
+        this.userIds = userIds.getIfAvailable();
+        this.registeredEmails = registeredEmails;
+    }
+
+    /**
+     * Inserts the rows and returns the emails that were inserted. Any other row was a conflict.
+     */
+    @Transactional
+    public Set<String> copyLocalUsers(List<Row> rows) throws SQLException, IOException {
+        Set<String> inserted = new HashSet<>();
+        if (rows.isEmpty()) {
+            return inserted;
+        }
+
+        StringBuilder csv = new StringBuilder(rows.size() * 128);
+        for (Row row : rows) {
+            csv.append(row.getLine()).append(',');
+            if (userIds != null) {
+                csv.append(userIds.nextId());
+            }
+            csv.append(',');
+            appendQuoted(csv, row.getName()).append(',');
+            appendQuoted(csv, row.getEmail()).append(',');
+            appendQuoted(csv, row.getPasswordHash()).append('\n');
+        }
+
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_STAGING);
+            connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_STAGING, new StringReader(csv.toString()));
+            try (ResultSet resultSet = statement.executeQuery(MOVE_STAGED_ROWS)) {
+                while (resultSet.next()) {
+                    inserted.add(resultSet.getString(1));
+                }
+            }
+            statement.execute("drop table users_import");
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+        registeredEmails.ifAvailable(emails -> inserted.forEach(emails::add));
+        return inserted;
+    }
+
+    private static StringBuilder appendQuoted(StringBuilder csv, String value) {
+        return csv.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    public static final class Row {
+        private final long line;
+        private final String name;
+        private final String email;
+        private final String passwordHash;
+
+        public Row(long line, String name, String email, String passwordHash) {
+            this.line = line;
+            this.name = name;
+            this.email = email;
+            this.passwordHash = passwordHash;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        public String getPasswordHash() {
+            return passwordHash;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.springsocial.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.util.List;
+
+/**
+ * Reads users for export one keyset page at a time.
+ *
+ * Each page is its own short read-only query, {@code id > :after order by id limit :pageSize},
+ * answered from the primary key index however deep into the table it starts. No connection or
+ * transaction is held between pages, so an export that takes minutes does not pin a pooled
+ * connection, and the last id a client received is all it needs to resume.
+ */
+@Repository
+public class UserExportRepository {
+
+    private static final String PAGE_AFTER =
+            "select id, name, email, email_verified, image_url, provider, provider_id from users " +
+            "where id > ? order by id limit ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UserExportRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Row> findPageAfter(long afterId, int pageSize) {
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(PAGE_AFTER);
+            statement.setFetchSize(pageSize);
+            statement.setLong(1, afterId);
+            statement.setInt(2, pageSize);
+            return statement;
+        }, (resultSet, rowNum) -> new Row(
+                resultSet.getLong("id"),
+                resultSet.getString("name"),
+                resultSet.getString("email"),
+                resultSet.getBoolean("email_verified"),
+                resultSet.getString("image_url"),
+                resultSet.getString("provider"),
+                resultSet.getString("provider_id")));
+    }
+
+    public static final class Row {
+        private final long id;
+        private final String name;
+        private final String email;
+        private final boolean emailVerified;
+        private final String imageUrl;
+        private final String provider;
+        private final String providerId;
+
+        public Row(long id, String name, String email, boolean emailVerified, String imageUrl,
+                   String provider, String providerId) {
+            this.id = id;
+            this.name = name;
+            this.email = email;
+            this.emailVerified = emailVerified;
+            this.imageUrl = imageUrl;
+            this.provider = provider;
+            this.providerId = providerId;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        public boolean isEmailVerified() {
+            return emailVerified;
+        }
+
+        public String getImageUrl() {
+            return imageUrl;
+        }
+
+        public String getProvider() {
+            return provider;
+        }
+
+        public String getProviderId() {
+            return providerId;
+        }
+    }
+}
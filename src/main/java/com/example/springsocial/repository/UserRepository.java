@@ -1,16 +1,53 @@
 package com.example.springsocial.repository;
 
+import com.example.springsocial.model.AuthProvider;
 import com.example.springsocial.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
 
-    Optional<User> findByEmail(String email);
+    /*
+      Emails are compared through lower(email) so that lookups hit the users_email_lower_key
+      index and casing variants of a registered address still match. Declared queries get no
+      transaction from SimpleJpaRepository, so the lookups are marked read-only here, which is
+      what lets the routing data source send them to a replica.
+    */
+    @Transactional(readOnly = true)
+    @Query("select case when count(u) > 0 then true else false end from User u " +
+            "where lower(u.email) = lower(:email)")
+    Boolean existsByEmail(@Param("email") String email);
 
-    Boolean existsByEmail(String email);
+    /**
+     * Loads only what authentication needs. The result is a projection, not a managed entity,
+     * so nothing is tracked for dirty checking.
+     */
+    @Transactional(readOnly = true)
+    @Query("select u.id as id, u.email as email, u.password as password, u.version as version " +
+            "from User u where lower(u.email) = lower(:email)")
+    Optional<Credentials> findCredentialsByEmail(@Param("email") String email);
 
-}
\ No newline at end of file
+    @Transactional(readOnly = true)
+    @Query("select u.id as id, u.email as email, u.password as password, u.version as version " +
+            "from User u where u.id = :id")
+    Optional<Credentials> findCredentialsById(@Param("id") Long id);
+
+    @Transactional(readOnly = true)
+    Optional<User> findByProviderAndProviderId(AuthProvider provider, String providerId);
+
+    interface Credentials {
+        Long getId();
+
+        String getEmail();
+
+        String getPassword();
+
+        Long getVersion();
+    }
+}
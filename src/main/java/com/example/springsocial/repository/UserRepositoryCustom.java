@@ -0,0 +1,70 @@
+package com.example.springsocial.repository;
+
+import com.example.springsocial.model.User;
+
+import java.util.Collection;
+import java.util.Optional;
+
+public interface UserRepositoryCustom {
+
+    /**
+     * Inserts the user unless the email or the provider account is already registered, in one
+     * statement. Returns the new id, or empty if either was taken, including by a concurrent insert.
+     */
+    Optional<Long> insertIfAbsent(User user);
+
+    /**
+     * Looks the user up by the email natural id, which the second-level cache can answer without a
+     * query. Falls back to a case-insensitive match for rows stored before emails were normalized.
+     */
+    Optional<User> findByEmail(String email);
+
+    /**
+     * Writes the profile fields that come from an OAuth2 provider and bumps the version.
+     */
+    int updateProviderProfile(Long id, String name, String imageUrl, String providerId);
+
+    /**
+     * Writes the name and picture of each profile in one JDBC batch, bumping the version of the
+     * rows that actually change; returns the number of rows updated.
+     */
+    int updateProviderProfiles(Collection<ProviderProfile> profiles);
+
+    /**
+     * Replaces the password hash only if it is still {@code expectedHash}; returns the number of rows updated.
+     */
+    int updatePasswordIfUnchanged(Long id, String expectedHash, String newHash);
+
+    /**
+     * The profile fields an OAuth2 provider refreshes on every login.
+     */
+    final class ProviderProfile {
+        private final Long id;
+        private final String email;
+        private final String name;
+        private final String imageUrl;
+
+        public ProviderProfile(Long id, String email, String name, String imageUrl) {
+            this.id = id;
+            this.email = email;
+            this.name = name;
+            this.imageUrl = imageUrl;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getImageUrl() {
+            return imageUrl;
+        }
+    }
+}
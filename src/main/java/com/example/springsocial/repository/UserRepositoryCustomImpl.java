@@ -0,0 +1,193 @@
+package com.example.springsocial.repository;
+
+import com.example.springsocial.model.User;
+import com.example.springsocial.model.UserIdGenerator;
+import com.example.springsocial.util.IdAllocator;
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.BooleanType;
+import org.hibernate.type.LongType;
+import org.hibernate.type.StringType;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/*
+  ON CONFLICT DO NOTHING turns a duplicate email or provider account into an empty result instead
+  of a constraint violation, and RETURNING hands back the id without a second query. The id comes
+  from the IdAllocator that UserIdGenerator uses, or from the sequence under the sequence strategy.
+
+  Hibernate clears every cached User when it runs a bulk update, so the updates here are native
+  statements declared against a query space of their own, and only the one entry they changed is
+  evicted from the second-level cache.
+*/
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+    private static final String INSERT_IF_ABSENT =
+            "insert into users (id, name, email, image_url, email_verified, password, provider, provider_id, version) " +
+            "values (%s, :name, :email, :imageUrl, :emailVerified, :password, :provider, :providerId, 0) " +
+            "on conflict do nothing returning id";
+
+    private static final String UPDATE_PROVIDER_PROFILE =
+            "update users set name = :name, image_url = :imageUrl, provider_id = :providerId, " +
+            "version = version + 1 where id = :id";
+
+    // Rows whose name and picture are already current are left alone, version included
+    private static final String UPDATE_PROVIDER_PROFILE_IF_CHANGED =
+            "update users set name = ?, image_url = ?, version = version + 1 " +
+            "where id = ? and (name is distinct from ? or image_url is distinct from ?)";
+
+    private static final String UPDATE_PASSWORD_IF_UNCHANGED =
+            "update users set password = :newHash, version = version + 1 " +
+            "where id = :id and password = :expectedHash";
+
+    private static final String FIND_BY_LOWER_EMAIL = "select u from User u where lower(u.email) = lower(:email)";
+
+    static final String WRITE_QUERY_SPACE = "users_writes";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final IdAllocator userIds;
+    private final ObjectProvider<RegisteredEmails> registeredEmails;
+    private final String insertSql;
+
+    public UserRepositoryCustomImpl(ObjectProvider<IdAllocator> userIds,
+                                    ObjectProvider<RegisteredEmails> registeredEmails) {
+        this.userIds = userIds.getIfAvailable();
+        this.registeredEmails = registeredEmails;
+        this.insertSql = String.format(INSERT_IF_ABSENT,
+                this.userIds != null ? ":id" : "nextval('" + UserIdGenerator.SEQUENCE_NAME + "')");
+    }
+
+    @Override
+    @Transactional
+    public Optional<Long> insertIfAbsent(User user) {
+        // Typed parameters, so that null image URLs, passwords and provider ids bind as text
+        NativeQuery<?> query = entityManager.createNativeQuery(insertSql).unwrap(NativeQuery.class)
+                .setParameter("name", user.getName(), StringType.INSTANCE)
+                .setParameter("email", user.getEmail(), StringType.INSTANCE)
+                .setParameter("imageUrl", user.getImageUrl(), StringType.INSTANCE)
+                .setParameter("emailVerified", Boolean.TRUE.equals(user.getEmailVerified()), BooleanType.INSTANCE)
+                .setParameter("password", user.getPassword(), StringType.INSTANCE)
+                .setParameter("provider", user.getProvider().name(), StringType.INSTANCE)
+                .setParameter("providerId", user.getProviderId(), StringType.INSTANCE);
+        if (userIds != null) {
+            query.setParameter("id", userIds.nextId(), LongType.INSTANCE);
+        }
+
+        List<?> ids = query.getResultList();
+        if (ids.isEmpty()) {
+            return Optional.empty();
+        }
+        registeredEmails.ifAvailable(emails -> emails.add(user.getEmail()));
+        return Optional.of(((Number) ids.get(0)).longValue());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<User> findByEmail(String email) {
+        User user = entityManager.unwrap(Session.class).bySimpleNaturalId(User.class)
+                .load(email.toLowerCase(Locale.ROOT));
+        if (user != null) {
+            return Optional.of(user);
+        }
+        return entityManager.createQuery(FIND_BY_LOWER_EMAIL, User.class)
+                .setParameter("email", email)
+                .getResultStream()
+                .findFirst();
+    }
+
+    @Override
+    @Transactional
+    public int updateProviderProfile(Long id, String name, String imageUrl, String providerId) {
+        int updated = writeQuery(UPDATE_PROVIDER_PROFILE)
+                .setParameter("id", id, LongType.INSTANCE)
+                .setParameter("name", name, StringType.INSTANCE)
+                .setParameter("imageUrl", imageUrl, StringType.INSTANCE)
+                .setParameter("providerId", providerId, StringType.INSTANCE)
+                .executeUpdate();
+        evict(id);
+        return updated;
+    }
+
+    @Override
+    @Transactional
+    public int updateProviderProfiles(Collection<ProviderProfile> profiles) {
+        if (profiles.isEmpty()) {
+            return 0;
+        }
+
+        entityManager.flush();
+        int updated = entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(UPDATE_PROVIDER_PROFILE_IF_CHANGED)) {
+                for (ProviderProfile profile : profiles) {
+                    statement.setString(1, profile.getName());
+                    statement.setString(2, profile.getImageUrl());
+                    statement.setLong(3, profile.getId());
+                    statement.setString(4, profile.getName());
+                    statement.setString(5, profile.getImageUrl());
+                    statement.addBatch();
+                }
+                int rows = 0;
+                for (int count : statement.executeBatch()) {
+                    rows += Math.max(count, 0);
+                }
+                return rows;
+            }
+        });
+        for (ProviderProfile profile : profiles) {
+            evict(profile.getId());
+        }
+        return updated;
+    }
+
+    @Override
+    @Transactional
+    public int updatePasswordIfUnchanged(Long id, String expectedHash, String newHash) {
+        int updated = writeQuery(UPDATE_PASSWORD_IF_UNCHANGED)
+                .setParameter("id", id, LongType.INSTANCE)
+                .setParameter("expectedHash", expectedHash, StringType.INSTANCE)
+                .setParameter("newHash", newHash, StringType.INSTANCE)
+                .executeUpdate();
+        if (updated > 0) {
+            evict(id);
+        }
+        return updated;
+    }
+
+    private NativeQuery<?> writeQuery(String sql) {
+        // The made-up query space also keeps Hibernate from auto-flushing pending User changes first
+        entityManager.flush();
+        return entityManager.createNativeQuery(sql).unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace(WRITE_QUERY_SPACE);
+    }
+
+    /*
+      Evicted now and again once the transaction completes, so that a concurrent read between the
+      two cannot leave the pre-update row cached. The email natural id never changes, so its
+      cached resolution stays valid.
+    */
+    private void evict(Long id) {
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        cache.evict(User.class, id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.evict(User.class, id);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.springsocial.security;
+
+import com.example.springsocial.config.AppProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Decides who may call the /admin endpoints, for use in {@code @PreAuthorize} expressions.
+ *
+ * Users carry no roles beyond {@code ROLE_USER}, so administrators are the signed-in users whose
+ * email is listed in {@code app.admin.emails}. An empty list leaves the endpoints closed to everyone.
+ */
+@Component
+public class AdminAuthorizer {
+
+    private final Set<String> adminEmails;
+
+    public AdminAuthorizer(AppProperties appProperties) {
+        this.adminEmails = appProperties.getAdmin().getEmails().stream()
+                .map(email -> email.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+    }
+
+    public boolean isAdmin(Object principal) {
+        return principal instanceof UserPrincipal
+                && ((UserPrincipal) principal).getEmail() != null
+                && adminEmails.contains(((UserPrincipal) principal).getEmail().toLowerCase(Locale.ROOT));
+    }
+}
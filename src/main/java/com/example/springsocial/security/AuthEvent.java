@@ -0,0 +1,76 @@
+package com.example.springsocial.security;
+
+import java.time.Instant;
+
+/**
+ * One entry of the authentication audit trail, see {@link AuthEventLog}.
+ */
+public final class AuthEvent {
+
+    public enum Type {
+        LOGIN_SUCCEEDED(false),
+        LOGIN_FAILED(false),
+        LOGIN_THROTTLED(true),
+        SIGNUP(false),
+        OAUTH2_LOGIN_SUCCEEDED(false),
+        OAUTH2_LOGIN_FAILED(false),
+        TOKEN_REJECTED(true),
+        TOKEN_REVOKED(true);
+
+        private final boolean lowPriority;
+
+        Type(boolean lowPriority) {
+            this.lowPriority = lowPriority;
+        }
+
+        /**
+         * Low-priority events are the ones an attacker can produce at will; they are the first to
+         * be dropped when the log falls behind.
+         */
+        public boolean isLowPriority() {
+            return lowPriority;
+        }
+    }
+
+    static final int MAX_DETAIL_LENGTH = 255;
+
+    private final Type type;
+    private final Instant occurredAt;
+    private final Long userId;
+    private final String email;
+    private final String remoteAddress;
+    private final String detail;
+
+    public AuthEvent(Type type, Instant occurredAt, Long userId, String email, String remoteAddress, String detail) {
+        this.type = type;
+        this.occurredAt = occurredAt;
+        this.userId = userId;
+        this.email = email;
+        this.remoteAddress = remoteAddress;
+        this.detail = detail != null && detail.length() > MAX_DETAIL_LENGTH ? detail.substring(0, MAX_DETAIL_LENGTH) : detail;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Instant getOccurredAt() {
+        return occurredAt;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    public String getDetail() {
+        return detail;
+    }
+}
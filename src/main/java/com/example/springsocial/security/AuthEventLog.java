@@ -0,0 +1,212 @@
+package com.example.springsocial.security;
+
+import com.example.springsocial.config.AppProperties;
+import com.example.springsocial.repository.AuthEventRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Audit trail of authentication events, written behind the requests that produce them.
+ *
+ * {@link #record} only puts the event into a fixed-size ring buffer, so it costs the login,
+ * callback or filter no database round trip. A background flush drains the buffer into
+ * {@code auth_events} in JDBC batches. When the buffer fills up, because the database is slow or
+ * an attack is under way, low-priority events such as rejected tokens stop being accepted once
+ * the buffer is {@code lowPriorityFill} full, which keeps the rest of it free for logins and
+ * signups. Anything that still does not fit is dropped and counted rather than blocking the caller.
+ */
+@Component
+public class AuthEventLog implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthEventLog.class);
+
+    private final AuthEventRepository authEventRepository;
+    private final Clock clock;
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final int lowPriorityLimit;
+    private final ArrayBlockingQueue<AuthEvent> buffer;
+
+    // A batch that failed to write, retried before anything newer
+    private volatile List<AuthEvent> unwritten;
+    private volatile Instant oldestUnwritten;
+    private boolean failing;
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder droppedLowPriority = new LongAdder();
+    private final LongAdder droppedHighPriority = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    @Autowired
+    public AuthEventLog(AuthEventRepository authEventRepository, AppProperties appProperties) {
+        this(authEventRepository, appProperties, Clock.systemDefaultZone());
+    }
+
+    AuthEventLog(AuthEventRepository authEventRepository, AppProperties appProperties, Clock clock) {
+        AppProperties.AuthEvents settings = appProperties.getAuthEvents();
+        this.authEventRepository = authEventRepository;
+        this.clock = clock;
+        this.enabled = settings.isEnabled();
+        this.batchSize = Math.max(1, settings.getBatchSize());
+        this.buffer = new ArrayBlockingQueue<>(Math.max(1, settings.getCapacity()));
+        this.lowPriorityLimit = (int) (buffer.remainingCapacity() * settings.getLowPriorityFill());
+    }
+
+    public void record(AuthEvent.Type type, Long userId, String email, String remoteAddress, String detail) {
+        record(new AuthEvent(type, clock.instant(), userId, email, remoteAddress, detail));
+    }
+
+    /**
+     * Queues the event without blocking. Returns false if it was dropped.
+     */
+    public boolean record(AuthEvent event) {
+        if (!enabled) {
+            return false;
+        }
+        if (event.getType().isLowPriority() && buffer.size() >= lowPriorityLimit) {
+            droppedLowPriority.increment();
+            return false;
+        }
+        if (!buffer.offer(event)) {
+            (event.getType().isLowPriority() ? droppedLowPriority : droppedHighPriority).increment();
+            return false;
+        }
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${app.authEvents.flushMsec:500}",
+            initialDelayString = "${app.authEvents.flushMsec:500}")
+    public synchronized void flush() {
+        if (unwritten != null) {
+            if (!write(unwritten)) {
+                return;
+            }
+            unwritten = null;
+            oldestUnwritten = null;
+        }
+
+        List<AuthEvent> batch = new ArrayList<>(batchSize);
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            if (!write(batch)) {
+                unwritten = batch;
+                oldestUnwritten = batch.get(0).getOccurredAt();
+                return;
+            }
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+
+    /**
+     * Creates the partitions for this month and the next, so that each month's partition exists
+     * before its first event and the default partition stays empty.
+     */
+    @Scheduled(fixedDelayString = "${app.authEvents.partitionCheckMsec:3600000}", initialDelay = 0)
+    public void createPartitions() {
+        if (!enabled) {
+            return;
+        }
+        YearMonth month = YearMonth.now(clock);
+        for (YearMonth partition : new YearMonth[]{month, month.plusMonths(1)}) {
+            try {
+                authEventRepository.createPartition(partition);
+            } catch (RuntimeException ex) {
+                logger.warn("Could not create audit partition {}; its events go to the default partition",
+                        AuthEventRepository.partitionName(partition), ex);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        int left = buffer.size() + (unwritten != null ? unwritten.size() : 0);
+        if (left > 0) {
+            logger.warn("Dropping {} authentication events that could not be written on shutdown", left);
+        }
+    }
+
+    public int getPendingCount() {
+        List<AuthEvent> retry = unwritten;
+        return buffer.size() + (retry != null ? retry.size() : 0);
+    }
+
+    /**
+     * How long the oldest event not yet written has been waiting, or 0 if there is none.
+     */
+    public long getLagMsec() {
+        Instant oldest = oldestUnwritten;
+        if (oldest == null) {
+            AuthEvent head = buffer.peek();
+            oldest = head != null ? head.getOccurredAt() : null;
+        }
+        return oldest != null ? Math.max(0, clock.millis() - oldest.toEpochMilli()) : 0;
+    }
+
+    public long getDroppedCount() {
+        return droppedLowPriority.sum() + droppedHighPriority.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("auth.events.pending", this, AuthEventLog::getPendingCount)
+                .description("Authentication events waiting to be written")
+                .register(registry);
+        TimeGauge.builder("auth.events.lag", this, TimeUnit.MILLISECONDS, AuthEventLog::getLagMsec)
+                .description("Age of the oldest authentication event not yet written")
+                .register(registry);
+        FunctionCounter.builder("auth.events.written", written, LongAdder::sum)
+                .description("Authentication events written to auth_events")
+                .register(registry);
+        FunctionCounter.builder("auth.events.dropped", droppedLowPriority, LongAdder::sum)
+                .tag("priority", "low")
+                .description("Authentication events dropped because the buffer was full")
+                .register(registry);
+        FunctionCounter.builder("auth.events.dropped", droppedHighPriority, LongAdder::sum)
+                .tag("priority", "high")
+                .description("Authentication events dropped because the buffer was full")
+                .register(registry);
+        FunctionCounter.builder("auth.events.failures", failures, LongAdder::sum)
+                .description("Batches of authentication events that failed to write and were retried")
+                .register(registry);
+    }
+
+    private boolean write(List<AuthEvent> batch) {
+        try {
+            authEventRepository.insertAll(batch);
+        } catch (RuntimeException ex) {
+            failures.increment();
+            // Logged once per outage, not on every retry
+            if (!failing) {
+                logger.warn("Could not write {} authentication events, will retry", batch.size(), ex);
+                failing = true;
+            }
+            return false;
+        }
+
+        if (failing) {
+            logger.info("Writing authentication events again");
+            failing = false;
+        }
+        written.add(batch.size());
+        return true;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.springsocial.security;
+
+import com.example.springsocial.config.AppProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts authentication failures by reason and keeps their logging bounded.
+ *
+ * Only the first {@code samplesPerWindow} failures of each reason in a window are logged in
+ * detail. The rest are only counted, and the counts appear in one summary line per window.
+ * Log volume therefore depends on the number of reasons, not on how many bad tokens arrive.
+ */
+@Component
+public class AuthFailureMonitor implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthFailureMonitor.class);
+
+    public enum Reason {
+        SIGNATURE,
+        EXPIRED,
+        MALFORMED,
+        UNSUPPORTED,
+        EMPTY,
+        REVOKED,
+        UNAUTHORIZED,
+        ERROR
+    }
+
+    private final int samplesPerWindow;
+    private final Map<Reason, Counts> counts = new EnumMap<>(Reason.class);
+
+    public AuthFailureMonitor(AppProperties appProperties) {
+        this.samplesPerWindow = appProperties.getAuthFailureLog().getSamplesPerWindow();
+        for (Reason reason : Reason.values()) {
+            counts.put(reason, new Counts());
+        }
+    }
+
+    public void record(Reason reason, String detail) {
+        record(reason, detail, null);
+    }
+
+    /**
+     * Counts the failure and logs it only if the sample budget for this reason has not been used up
+     * in the current window. The stack trace of {@code ex}, if given, is only logged for sampled failures.
+     */
+    public void record(Reason reason, String detail, Throwable ex) {
+        Counts reasonCounts = counts.get(reason);
+        reasonCounts.total.increment();
+        reasonCounts.inWindow.incrementAndGet();
+
+        if (reasonCounts.sampled.incrementAndGet() > samplesPerWindow) {
+            return;
+        }
+        if (reason == Reason.ERROR) {
+            logger.error("Authentication failed: {}", detail, ex);
+        } else {
+            logger.warn("Authentication failed ({}): {}", reason.name().toLowerCase(Locale.ROOT), detail);
+        }
+    }
+
+    public long getCount(Reason reason) {
+        return counts.get(reason).total.sum();
+    }
+
+    /**
+     * Logs one line with the failures counted since the last summary and starts a new sampling window.
+     */
+    @Scheduled(fixedRateString = "${app.authFailureLog.windowMsec:60000}",
+            initialDelayString = "${app.authFailureLog.windowMsec:60000}")
+    public void logSummary() {
+        StringBuilder summary = new StringBuilder();
+        long suppressed = 0;
+        for (Map.Entry<Reason, Counts> entry : counts.entrySet()) {
+            Counts reasonCounts = entry.getValue();
+            long inWindow = reasonCounts.inWindow.getAndSet(0);
+            int sampled = reasonCounts.sampled.getAndSet(0);
+            if (inWindow == 0) {
+                continue;
+            }
+            suppressed += Math.max(0, inWindow - Math.min(sampled, samplesPerWindow));
+            if (summary.length() > 0) {
+                summary.append(", ");
+            }
+            summary.append(entry.getKey().name().toLowerCase(Locale.ROOT)).append('=').append(inWindow);
+        }
+
+        if (summary.length() > 0) {
+            logger.warn("Authentication failures since last summary: {} ({} not logged individually)", summary, suppressed);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Map.Entry<Reason, Counts> entry : counts.entrySet()) {
+            FunctionCounter.builder("auth.failures", entry.getValue().total, LongAdder::sum)
+                    .tag("reason", entry.getKey().name().toLowerCase(Locale.ROOT))
+                    .description("Failed authentication attempts")
+                    .register(registry);
+        }
+    }
+
+    private static final class Counts {
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong inWindow = new AtomicLong();
+        private final AtomicInteger sampled = new AtomicInteger();
+    }
+}
@@ -2,14 +2,13 @@ package com.example.springsocial.security;
 
 
 import com.example.springsocial.exception.ResourceNotFoundException;
-import com.example.springsocial.model.User;
+import com.example.springsocial.repository.ReadYourWrites;
 import com.example.springsocial.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Created by rajeevkumarsingh on 02/08/17.
@@ -21,24 +20,39 @@ public class CustomUserDetailsService implements UserDetailsService {
     @Autowired
     UserRepository userRepository;
 
+    @Autowired
+    UserPrincipalCache userPrincipalCache;
+
+    @Autowired
+    ReadYourWrites readYourWrites;
+
+    /*
+      These are deliberately not @Transactional: a cache hit must not open a transaction (and
+      with it check out a pooled connection), and each repository call runs in its own
+      read-only transaction, which is what lets it go to a replica.
+    */
     @Override
-    @Transactional
     public UserDetails loadUserByUsername(String email)
             throws UsernameNotFoundException {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() ->
-                        new UsernameNotFoundException("User not found with email : " + email)
-        );
-
-        return UserPrincipal.create(user);
+        return userPrincipalCache.getByEmail(email, key -> {
+            UserRepository.Credentials credentials = readYourWrites.readByEmail(key,
+                    () -> userRepository.findCredentialsByEmail(key))
+                    .orElseThrow(() ->
+                            new UsernameNotFoundException("User not found with email : " + key)
+            );
+
+            return UserPrincipal.create(credentials);
+        });
     }
 
-    @Transactional
     public UserDetails loadUserById(Long id) {
-        User user = userRepository.findById(id).orElseThrow(
-            () -> new ResourceNotFoundException("User", "id", id)
-        );
-
-        return UserPrincipal.create(user);
+        return userPrincipalCache.getById(id, key -> {
+            UserRepository.Credentials credentials = readYourWrites.readById(key,
+                    () -> userRepository.findCredentialsById(key)).orElseThrow(
+                () -> new ResourceNotFoundException("User", "id", key)
+            );
+
+            return UserPrincipal.create(credentials);
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,570 @@
+package com.example.springsocial.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.SignatureException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.Signature;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Fast-path codec for the tokens this service issues, signed with HS512 or, when the
+ * {@link SigningKeyRing} is enabled, with ES256.
+ *
+ * The signing key and the encoded header are computed once, each thread keeps its own
+ * {@link Mac}, {@link Signature} and scratch buffers, and verification reads {@code sub}, {@code exp} and the
+ * identity claims straight from the decoded payload bytes without building a claims map. ES256 keys are
+ * found by the exact header segment the key ring emits for each {@code kid}. Any token that
+ * does not look exactly like one of ours (different header, nested claims, escaped strings,
+ * {@code nbf}, ...) is handed to jjwt, so the fast path never has to be right about
+ * anything it does not understand.
+ */
+class JwtCodec {
+
+    private static final String ALGORITHM = "HmacSHA512";
+    // JOSE encodes ECDSA signatures as the raw R || S pair rather than DER
+    private static final String EC_ALGORITHM = "SHA256withECDSAinP1363Format";
+    private static final int SIGNATURE_LENGTH = 64;
+    private static final int MAX_TOKEN_LENGTH = 8192;
+
+    private static final String HEADER = Base64.getUrlEncoder().withoutPadding()
+            .encodeToString("{\"alg\":\"HS512\"}".getBytes(StandardCharsets.US_ASCII));
+
+    private static final byte[] BASE64_URL_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(BASE64_URL_VALUES, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64_URL_VALUES[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    private final SecretKeySpec signingKey;
+    private final SigningKeyRing keyRing;
+    private final JwtParser fallbackParser;
+    private final ThreadLocal<Workspace> workspace;
+
+    JwtCodec(String base64Secret) {
+        this(base64Secret, null);
+    }
+
+    /**
+     * Signs with ES256 when {@code keyRing} is enabled and HS512 otherwise. HS512 tokens are
+     * accepted for as long as a secret is configured, so switching algorithms does not sign
+     * everybody out.
+     */
+    JwtCodec(String base64Secret, SigningKeyRing keyRing) {
+        this.keyRing = keyRing != null && keyRing.isEnabled() ? keyRing : null;
+        boolean hasSecret = base64Secret != null && !base64Secret.isEmpty();
+        if (!hasSecret && this.keyRing == null) {
+            throw new IllegalStateException("app.auth.tokenSecret must be configured");
+        }
+
+        this.signingKey = hasSecret ? new SecretKeySpec(Decoders.BASE64.decode(base64Secret), ALGORITHM) : null;
+        this.fallbackParser = Jwts.parserBuilder().setSigningKeyResolver(new SigningKeyResolverAdapter() {
+            @Override
+            public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                return resolveKey(header);
+            }
+        }).build();
+        this.workspace = ThreadLocal.withInitial(() -> new Workspace(signingKey));
+    }
+
+    String encode(Long userId, long issuedAtMillis, long expiresAtMillis) {
+        return encode(userId, null, null, null, issuedAtMillis, expiresAtMillis);
+    }
+
+    /**
+     * Encodes a token that also carries the identity claims needed to rebuild the principal.
+     * The identity claims are left out when {@code email} is null.
+     */
+    String encode(Long userId, String email, String authorities, Long version,
+                  long issuedAtMillis, long expiresAtMillis) {
+        StringBuilder payload = new StringBuilder(224).append("{\"sub\":\"").append(userId).append('"')
+                .append(",\"jti\":\"").append(newTokenId()).append('"');
+        if (email != null) {
+            payload.append(",\"email\":");
+            appendJsonString(payload, email);
+            payload.append(",\"auth\":");
+            appendJsonString(payload, authorities != null ? authorities : "");
+            if (version != null) {
+                payload.append(",\"ver\":").append(version);
+            }
+        }
+        payload.append(",\"iat\":").append(issuedAtMillis / 1000)
+                .append(",\"exp\":").append(expiresAtMillis / 1000)
+                .append('}');
+
+        SigningKeyRing.SigningKey ecKey = keyRing != null ? keyRing.getActiveKey() : null;
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String signingInput = (ecKey != null ? ecKey.getEncodedHeader() : HEADER) + '.'
+                + encoder.encodeToString(payload.toString().getBytes(StandardCharsets.UTF_8));
+        byte[] input = signingInput.getBytes(StandardCharsets.US_ASCII);
+
+        Workspace ws = workspace.get();
+        byte[] signature;
+        if (ecKey == null) {
+            signature = ws.mac.doFinal(input);
+        } else {
+            try {
+                Signature ecdsa = ws.ecdsa();
+                ecdsa.initSign(ecKey.getPrivateKey());
+                ecdsa.update(input);
+                signature = ecdsa.sign();
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalStateException("Could not compute JWT signature", ex);
+            }
+        }
+        return signingInput + '.' + encoder.encodeToString(signature);
+    }
+
+    /**
+     * Verifies the token and returns its subject and expiry.
+     *
+     * @throws io.jsonwebtoken.JwtException or IllegalArgumentException exactly as jjwt would for a bad token
+     */
+    VerifiedToken decode(String token) {
+        if (token == null || token.length() > MAX_TOKEN_LENGTH) {
+            return decodeWithFallback(token);
+        }
+
+        int payloadStart = token.indexOf('.') + 1;
+        int signatureStart = payloadStart > 0 ? token.indexOf('.', payloadStart) + 1 : 0;
+        if (signatureStart == 0 || token.indexOf('.', signatureStart) >= 0) {
+            return decodeWithFallback(token);
+        }
+
+        SigningKeyRing.SigningKey ecKey = null;
+        if (payloadStart - 1 != HEADER.length() || !token.startsWith(HEADER)) {
+            ecKey = keyRing != null ? keyRing.getKeyByEncodedHeader(token.substring(0, payloadStart - 1)) : null;
+            if (ecKey == null) {
+                return decodeWithFallback(token);
+            }
+        } else if (signingKey == null) {
+            return decodeWithFallback(token);
+        }
+
+        Workspace ws = workspace.get();
+        byte[] input = ws.input(signatureStart - 1);
+        for (int i = 0; i < signatureStart - 1; i++) {
+            char c = token.charAt(i);
+            if (c > 127) {
+                return decodeWithFallback(token);
+            }
+            input[i] = (byte) c;
+        }
+
+        int signatureLength = decodeBase64Url(token, signatureStart, token.length(), ws.signature);
+        if (signatureLength != SIGNATURE_LENGTH) {
+            return decodeWithFallback(token);
+        }
+
+        boolean signatureMatches;
+        try {
+            if (ecKey == null) {
+                ws.mac.update(input, 0, signatureStart - 1);
+                ws.mac.doFinal(ws.expectedSignature, 0);
+                signatureMatches = MessageDigest.isEqual(ws.expectedSignature, ws.signature);
+            } else {
+                Signature ecdsa = ws.ecdsa();
+                ecdsa.initVerify(ecKey.getPublicKey());
+                ecdsa.update(input, 0, signatureStart - 1);
+                signatureMatches = ecdsa.verify(ws.signature, 0, SIGNATURE_LENGTH);
+            }
+        } catch (java.security.SignatureException ex) {
+            signatureMatches = false;
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("Could not compute JWT signature", ex);
+        }
+        if (!signatureMatches) {
+            throw new SignatureException("JWT signature does not match locally computed signature.");
+        }
+
+        byte[] payload = ws.payload(signatureStart - payloadStart);
+        int payloadLength = decodeBase64Url(token, payloadStart, signatureStart - 1, payload);
+        if (payloadLength < 0 || !ws.scanner.scan(payload, payloadLength)) {
+            return decodeWithFallback(token);
+        }
+
+        long expiresAt = ws.scanner.exp * 1000;
+        if (ws.scanner.exp != Long.MIN_VALUE && expiresAt <= System.currentTimeMillis()) {
+            throw new ExpiredJwtException(null, null, "JWT expired at " + new Date(expiresAt));
+        }
+
+        ClaimsScanner scanner = ws.scanner;
+        long expiry = scanner.exp != Long.MIN_VALUE ? expiresAt : 0L;
+        String tokenId = scanner.jtiStart < 0 ? null :
+                new String(payload, scanner.jtiStart, scanner.jtiEnd - scanner.jtiStart, StandardCharsets.UTF_8);
+        if (scanner.emailStart < 0) {
+            return new VerifiedToken(scanner.sub, expiry, tokenId);
+        }
+
+        String email = new String(payload, scanner.emailStart, scanner.emailEnd - scanner.emailStart, StandardCharsets.UTF_8);
+        String authorities = scanner.authStart < 0 ? "" :
+                new String(payload, scanner.authStart, scanner.authEnd - scanner.authStart, StandardCharsets.UTF_8);
+        return new VerifiedToken(scanner.sub, expiry, email, authorities,
+                scanner.ver != Long.MIN_VALUE ? scanner.ver : null, tokenId);
+    }
+
+    private VerifiedToken decodeWithFallback(String token) {
+        Claims claims = fallbackParser.parseClaimsJws(token).getBody();
+
+        Long userId = Long.parseLong(claims.getSubject());
+        Date expiration = claims.getExpiration();
+        long expiresAt = expiration != null ? expiration.getTime() : 0L;
+
+        String email = claims.get("email", String.class);
+        if (email == null) {
+            return new VerifiedToken(userId, expiresAt, claims.getId());
+        }
+
+        Number version = claims.get("ver", Number.class);
+        return new VerifiedToken(userId, expiresAt, email, claims.get("auth", String.class),
+                version != null ? version.longValue() : null, claims.getId());
+    }
+
+    private Key resolveKey(JwsHeader<?> header) {
+        String algorithm = header.getAlgorithm();
+        if (algorithm != null && algorithm.startsWith("HS") && signingKey != null) {
+            return signingKey;
+        }
+        if (SigningKeyRing.ES256.equals(algorithm) && keyRing != null) {
+            SigningKeyRing.SigningKey key = keyRing.getKey(header.getKeyId());
+            if (key == null) {
+                throw new SignatureException("JWT signed with unknown key " + header.getKeyId());
+            }
+            return key.getPublicKey();
+        }
+        throw new UnsupportedJwtException("JWT signing algorithm " + algorithm + " is not accepted");
+    }
+
+    // 128 random bits; the jti only has to be unique, the signature keeps it from being forged
+    private static String newTokenId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        byte[] id = new byte[16];
+        random.nextBytes(id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id);
+    }
+
+    private static void appendJsonString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+
+    /*
+      Decodes unpadded base64url from token[start, end) into out and returns the number of bytes
+      written, or -1 if the input is not valid base64url or does not fit.
+    */
+    private static int decodeBase64Url(String token, int start, int end, byte[] out) {
+        int length = end - start;
+        if (length % 4 == 1) {
+            return -1;
+        }
+
+        int decodedLength = length / 4 * 3 + Math.max(0, length % 4 - 1);
+        if (decodedLength > out.length) {
+            return -1;
+        }
+
+        int bits = 0;
+        int bitCount = 0;
+        int position = 0;
+        for (int i = start; i < end; i++) {
+            char c = token.charAt(i);
+            int value = c < 128 ? BASE64_URL_VALUES[c] : -1;
+            if (value < 0) {
+                return -1;
+            }
+            bits = (bits << 6) | value;
+            bitCount += 6;
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                out[position++] = (byte) (bits >> bitCount);
+            }
+        }
+        return position;
+    }
+
+    private static final class Workspace {
+        private final Mac mac;
+        private Signature ecdsa;
+        private final byte[] signature = new byte[SIGNATURE_LENGTH];
+        private final byte[] expectedSignature = new byte[SIGNATURE_LENGTH];
+        private final ClaimsScanner scanner = new ClaimsScanner();
+        private byte[] input = new byte[512];
+        private byte[] payload = new byte[384];
+
+        private Workspace(SecretKeySpec signingKey) {
+            if (signingKey == null) {
+                this.mac = null;
+                return;
+            }
+            try {
+                this.mac = Mac.getInstance(ALGORITHM);
+                this.mac.init(signingKey);
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalStateException("Could not initialise " + ALGORITHM, ex);
+            }
+        }
+
+        private Signature ecdsa() throws GeneralSecurityException {
+            if (ecdsa == null) {
+                ecdsa = Signature.getInstance(EC_ALGORITHM);
+            }
+            return ecdsa;
+        }
+
+        private byte[] input(int length) {
+            if (input.length < length) {
+                input = new byte[length];
+            }
+            return input;
+        }
+
+        private byte[] payload(int encodedLength) {
+            int length = encodedLength / 4 * 3 + 2;
+            if (payload.length < length) {
+                payload = new byte[length];
+            }
+            return payload;
+        }
+    }
+
+    /**
+     * Reads {@code sub}, {@code exp}, {@code jti} and the optional identity claims from a flat JSON object.
+     * {@link #scan} returns false for anything outside that narrow shape so the caller can defer to jjwt.
+     */
+    static final class ClaimsScanner {
+        long sub;
+        long exp;
+        long ver;
+        int emailStart;
+        int emailEnd;
+        int authStart;
+        int authEnd;
+        int jtiStart;
+        int jtiEnd;
+
+        private byte[] json;
+        private int pos;
+        private int end;
+
+        boolean scan(byte[] json, int length) {
+            this.json = json;
+            this.pos = 0;
+            this.end = length;
+            this.exp = Long.MIN_VALUE;
+            this.ver = Long.MIN_VALUE;
+            this.emailStart = -1;
+            this.authStart = -1;
+            this.jtiStart = -1;
+            boolean hasSub = false;
+
+            skipWhitespace();
+            if (!consume('{')) {
+                return false;
+            }
+            skipWhitespace();
+            if (consume('}')) {
+                return false;
+            }
+
+            while (true) {
+                skipWhitespace();
+                int keyStart = pos + 1;
+                int keyEnd = skipString();
+                if (keyEnd < 0) {
+                    return false;
+                }
+                skipWhitespace();
+                if (!consume(':')) {
+                    return false;
+                }
+                skipWhitespace();
+
+                if (isKey(keyStart, keyEnd, "sub")) {
+                    int valueStart = pos + 1;
+                    int valueEnd = skipString();
+                    if (valueEnd < 0) {
+                        return false;
+                    }
+                    long value = parseLong(valueStart, valueEnd);
+                    if (value < 0) {
+                        return false;
+                    }
+                    sub = value;
+                    hasSub = true;
+                } else if (isKey(keyStart, keyEnd, "exp") || isKey(keyStart, keyEnd, "ver")) {
+                    int valueStart = pos;
+                    int valueEnd = skipNumber();
+                    long value = parseLong(valueStart, valueEnd);
+                    if (value < 0) {
+                        return false;
+                    }
+                    if (json[keyStart] == 'e') {
+                        exp = value;
+                    } else {
+                        ver = value;
+                    }
+                } else if (isKey(keyStart, keyEnd, "email")) {
+                    emailStart = pos + 1;
+                    emailEnd = skipString();
+                    if (emailEnd < 0) {
+                        return false;
+                    }
+                } else if (isKey(keyStart, keyEnd, "auth")) {
+                    authStart = pos + 1;
+                    authEnd = skipString();
+                    if (authEnd < 0) {
+                        return false;
+                    }
+                } else if (isKey(keyStart, keyEnd, "jti")) {
+                    jtiStart = pos + 1;
+                    jtiEnd = skipString();
+                    if (jtiEnd < 0) {
+                        return false;
+                    }
+                } else if (isKey(keyStart, keyEnd, "nbf")) {
+                    return false;
+                } else if (!skipScalar()) {
+                    return false;
+                }
+
+                skipWhitespace();
+                if (consume('}')) {
+                    skipWhitespace();
+                    return hasSub && pos == end;
+                }
+                if (!consume(',')) {
+                    return false;
+                }
+            }
+        }
+
+        private boolean skipScalar() {
+            if (pos >= end) {
+                return false;
+            }
+            byte b = json[pos];
+            if (b == '"') {
+                return skipString() >= 0;
+            }
+            if (b == '-' || (b >= '0' && b <= '9')) {
+                return skipNumber() > 0;
+            }
+            return skipLiteral("true") || skipLiteral("false") || skipLiteral("null");
+        }
+
+        // Returns the index of the closing quote, or -1 for anything but a plain, escape-free string
+        private int skipString() {
+            if (!consume('"')) {
+                return -1;
+            }
+            while (pos < end) {
+                byte b = json[pos];
+                if (b == '"') {
+                    return pos++;
+                }
+                if (b == '\\') {
+                    return -1;
+                }
+                pos++;
+            }
+            return -1;
+        }
+
+        private int skipNumber() {
+            int start = pos;
+            while (pos < end) {
+                byte b = json[pos];
+                if ((b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.' || b == 'e' || b == 'E') {
+                    pos++;
+                } else {
+                    break;
+                }
+            }
+            return pos > start ? pos : -1;
+        }
+
+        private boolean skipLiteral(String literal) {
+            if (end - pos < literal.length()) {
+                return false;
+            }
+            for (int i = 0; i < literal.length(); i++) {
+                if (json[pos + i] != literal.charAt(i)) {
+                    return false;
+                }
+            }
+            pos += literal.length();
+            return true;
+        }
+
+        // Parses a non-negative decimal in json[start, end), or returns -1
+        private long parseLong(int start, int end) {
+            if (end <= start || end - start > 18) {
+                return -1;
+            }
+            long value = 0;
+            for (int i = start; i < end; i++) {
+                byte b = json[i];
+                if (b < '0' || b > '9') {
+                    return -1;
+                }
+                value = value * 10 + (b - '0');
+            }
+            return value;
+        }
+
+        private boolean isKey(int start, int end, String key) {
+            if (end - start != key.length()) {
+                return false;
+            }
+            for (int i = 0; i < key.length(); i++) {
+                if (json[start + i] != key.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean consume(char c) {
+            if (pos < end && json[pos] == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void skipWhitespace() {
+            while (pos < end && (json[pos] == ' ' || json[pos] == '\t' || json[pos] == '\n' || json[pos] == '\r')) {
+                pos++;
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.springsocial.security;
+
+import com.example.springsocial.config.AppProperties;
+import com.example.springsocial.exception.TooManyRequestsException;
+import com.example.springsocial.repository.LoginThrottleRepository;
+import com.example.springsocial.util.TokenBucketLimiter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token-bucket limits on login attempts, one bucket per client address and one per email.
+ *
+ * Checked before the user is looked up or any password is hashed, so a throttled attempt costs
+ * a map lookup. The address is checked first and only an allowed address spends a token from the
+ * email's bucket. With {@code store: jdbc} the buckets live in {@code login_throttle_buckets} and
+ * the limits hold across nodes, at the price of one upsert per bucket per attempt.
+ *
+ * Email availability lookups are limited per client address in a third set of buckets, since
+ * each one tells the caller whether an address is registered.
+ */
+@Component
+public class LoginThrottle implements MeterBinder {
+
+    static final String STORE_JDBC = "jdbc";
+
+    private static final String SIGN_IN_MESSAGE = "Too many sign-in attempts. Please retry later.";
+    private static final String LOOKUP_MESSAGE = "Too many email lookups. Please retry later.";
+
+    private final LoginThrottleRepository loginThrottleRepository;
+
+    private final boolean enabled;
+    private final boolean jdbc;
+    private final long idleMsec;
+    private final Limit emailLimit;
+    private final Limit addressLimit;
+    private final Limit lookupLimit;
+
+    public LoginThrottle(LoginThrottleRepository loginThrottleRepository, AppProperties appProperties) {
+        AppProperties.LoginThrottle settings = appProperties.getLoginThrottle();
+        this.loginThrottleRepository = loginThrottleRepository;
+        this.enabled = settings.isEnabled();
+        this.jdbc = STORE_JDBC.equalsIgnoreCase(settings.getStore());
+        this.idleMsec = settings.getIdleMsec();
+        this.emailLimit = new Limit("email", settings.getEmailBurst(), settings.getEmailPerMinute(), settings,
+                SIGN_IN_MESSAGE);
+        this.addressLimit = new Limit("address", settings.getAddressBurst(), settings.getAddressPerMinute(), settings,
+                SIGN_IN_MESSAGE);
+        this.lookupLimit = new Limit("lookup", settings.getLookupBurst(), settings.getLookupPerMinute(), settings,
+                LOOKUP_MESSAGE);
+    }
+
+    /**
+     * Spends one attempt for the address and one for the email, or throws a 429 with the time
+     * until the exhausted bucket has a token again.
+     */
+    public void check(String email, String remoteAddress) {
+        if (!enabled) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        if (remoteAddress != null) {
+            addressLimit.acquire(remoteAddress, now);
+        }
+        if (email != null) {
+            emailLimit.acquire(email.trim().toLowerCase(Locale.ROOT), now);
+        }
+    }
+
+    /**
+     * Spends one email availability lookup for the address, or throws a 429 like {@link #check}.
+     */
+    public void checkLookup(String remoteAddress) {
+        if (enabled && remoteAddress != null) {
+            lookupLimit.acquire(remoteAddress, System.currentTimeMillis());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.loginThrottle.sweepMsec:10000}",
+            initialDelayString = "${app.loginThrottle.sweepMsec:10000}")
+    public void evictIdle() {
+        if (!enabled) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        if (jdbc) {
+            loginThrottleRepository.deleteIdle(now - idleMsec);
+        } else {
+            emailLimit.buckets.evictIdle(now);
+            addressLimit.buckets.evictIdle(now);
+            lookupLimit.buckets.evictIdle(now);
+        }
+    }
+
+    public long getThrottledCount() {
+        return emailLimit.throttled.sum() + addressLimit.throttled.sum() + lookupLimit.throttled.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Limit limit : new Limit[]{emailLimit, addressLimit, lookupLimit}) {
+            FunctionCounter.builder("auth.login.throttled", limit.throttled, LongAdder::sum)
+                    .tag("key", limit.name)
+                    .description("Login attempts and email lookups turned away before touching any user")
+                    .register(registry);
+            if (!jdbc) {
+                Gauge.builder("auth.login.throttle.buckets", limit.buckets, TokenBucketLimiter::size)
+                        .tag("key", limit.name)
+                        .description("Login throttle buckets held in memory")
+                        .register(registry);
+            }
+        }
+    }
+
+    private final class Limit {
+        private final String name;
+        private final int burst;
+        private final double tokensPerMsec;
+        private final TokenBucketLimiter buckets;
+        private final String message;
+        private final LongAdder throttled = new LongAdder();
+
+        private Limit(String name, int burst, int perMinute, AppProperties.LoginThrottle settings, String message) {
+            this.name = name;
+            this.message = message;
+            this.burst = burst;
+            this.tokensPerMsec = perMinute / 60000.0;
+            this.buckets = new TokenBucketLimiter(burst, perMinute, settings.getIdleMsec(), settings.getSweepMsec());
+        }
+
+        private void acquire(String key, long now) {
+            long waitMsec;
+            if (jdbc) {
+                boolean acquired = !loginThrottleRepository.tryAcquire(name + ':' + key, burst, tokensPerMsec, now).isEmpty();
+                waitMsec = acquired ? 0 : (long) Math.ceil(1 / tokensPerMsec);
+            } else {
+                waitMsec = buckets.tryAcquire(key, now);
+            }
+
+            if (waitMsec > 0) {
+                throttled.increment();
+                throw new TooManyRequestsException(message,
+                        Math.max(1, TimeUnit.MILLISECONDS.toSeconds(waitMsec + 999)));
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.springsocial.security;
+
+import com.example.springsocial.config.AppProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Short-lived memory of tokens that recently failed verification.
+ *
+ * A token that is replayed after being rejected is turned away before any base64, JSON or
+ * signature work happens. Entries are keyed by the SHA-256 digest of the token and spread over
+ * independently locked stripes, each an insertion-ordered map that drops its oldest entry when full,
+ * so memory stays bounded and a flood of distinct junk tokens only churns the cache.
+ */
+@Component
+public class NegativeTokenCache implements MeterBinder {
+
+    private static final int STRIPES = 16;
+
+    private final boolean enabled;
+    private final long ttlMsec;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public NegativeTokenCache(AppProperties appProperties) {
+        this.enabled = appProperties.getNegativeTokenCache().isEnabled();
+        this.ttlMsec = appProperties.getNegativeTokenCache().getTtlMsec();
+
+        int entriesPerStripe = Math.max(1, (appProperties.getNegativeTokenCache().getMaxEntries() + STRIPES - 1) / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(entriesPerStripe);
+        }
+    }
+
+    /**
+     * True if the token was rejected within the last {@code ttlMsec}. Each true answer is one verification saved.
+     */
+    public boolean isRejected(String token) {
+        if (!enabled) {
+            return false;
+        }
+
+        ByteBuffer key = TokenDigest.of(token);
+        Stripe stripe = stripeFor(key);
+        long now = System.currentTimeMillis();
+        synchronized (stripe) {
+            Long expiresAt = stripe.entries.get(key);
+            if (expiresAt != null) {
+                if (expiresAt > now) {
+                    hits.increment();
+                    return true;
+                }
+                stripe.entries.remove(key);
+                evictions.increment();
+            }
+        }
+        misses.increment();
+        return false;
+    }
+
+    public void reject(String token) {
+        if (!enabled) {
+            return;
+        }
+
+        ByteBuffer key = TokenDigest.of(token);
+        Stripe stripe = stripeFor(key);
+        long expiresAt = System.currentTimeMillis() + ttlMsec;
+        synchronized (stripe) {
+            stripe.entries.put(key, expiresAt);
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.entries.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("auth.token.negative.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .description("Rejected-token lookups; each hit is a token verification that was skipped")
+                .register(registry);
+        FunctionCounter.builder("auth.token.negative.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .description("Rejected-token lookups")
+                .register(registry);
+        FunctionCounter.builder("auth.token.negative.cache.evictions", evictions, LongAdder::sum)
+                .description("Rejected-token entries dropped on expiry or overflow")
+                .register(registry);
+        Gauge.builder("auth.token.negative.cache.size", this, NegativeTokenCache::size)
+                .description("Rejected-token entries")
+                .register(registry);
+    }
+
+    private Stripe stripeFor(ByteBuffer key) {
+        return stripes[key.get(0) & (STRIPES - 1)];
+    }
+
+    private final class Stripe {
+        private final Map<ByteBuffer, Long> entries;
+
+        private Stripe(int maxEntries) {
+            this.entries = new LinkedHashMap<ByteBuffer, Long>(16, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Long> eldest) {
+                    if (size() > maxEntries) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+}
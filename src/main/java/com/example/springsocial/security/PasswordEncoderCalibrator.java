@@ -0,0 +1,71 @@
+package com.example.springsocial.security;
+
+import com.example.springsocial.config.AppProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the application's {@link PasswordEncoder} with a BCrypt cost measured on the current hardware.
+ *
+ * New hashes are stored as {@code {bcrypt}$2a$<cost>$...}, so every hash records the algorithm and
+ * cost it was made with. Hashes without a prefix, from before this encoder existed, are still
+ * verified as BCrypt, and {@link PasswordEncoder#upgradeEncoding} reports them, and any hash with a
+ * lower cost, as due for a rehash.
+ */
+public final class PasswordEncoderCalibrator {
+
+    public static final String BCRYPT = "bcrypt";
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordEncoderCalibrator.class);
+
+    private static final int SAMPLES = 3;
+
+    private PasswordEncoderCalibrator() {
+    }
+
+    public static PasswordEncoder create(AppProperties.PasswordHashing settings) {
+        int cost = calibrateCost(settings.getTargetMsec(), settings.getMinCost(), settings.getMaxCost());
+        logger.info("Using BCrypt cost {} for a {} ms hashing target", cost, settings.getTargetMsec());
+
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(BCRYPT,
+                Collections.singletonMap(BCRYPT, new BCryptPasswordEncoder(cost)));
+        encoder.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+        return encoder;
+    }
+
+    /**
+     * Times a few hashes at {@code minCost} and extrapolates, each extra cost step doubling the work.
+     */
+    static int calibrateCost(long targetMsec, int minCost, int maxCost) {
+        String salt = BCrypt.gensalt(minCost);
+        BCrypt.hashpw("calibration", BCrypt.gensalt(4));
+
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw("calibration", salt);
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+        return chooseCost(TimeUnit.MILLISECONDS.toNanos(targetMsec), minCost, fastest, maxCost);
+    }
+
+    /**
+     * The highest cost whose estimated hashing time does not exceed the target, within [minCost, maxCost].
+     */
+    static int chooseCost(long targetNanos, int measuredCost, long measuredNanos, int maxCost) {
+        int cost = measuredCost;
+        long estimate = Math.max(1, measuredNanos);
+        while (cost < maxCost && estimate * 2 <= targetNanos) {
+            estimate *= 2;
+            cost++;
+        }
+        return cost;
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.springsocial.security;
+
+import com.example.springsocial.config.AppProperties;
+import com.example.springsocial.config.SqlRecorder;
+import com.example.springsocial.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs BCrypt work off the servlet container's request threads.
+ *
+ * The pool has one thread per core and a bounded queue. When the queue is full, new work is
+ * refused straight away with a 503 rather than left waiting, so a login burst cannot take over
+ * the request threads that cheap endpoints need. Tasks must not rely on request-scoped state or
+ * the {@code SecurityContextHolder}, since neither is carried onto the pool's threads. The
+ * submitting request's {@link SqlRecorder} stats are the exception: they are attached for the
+ * duration of the task, so its queries still count against that request.
+ */
+@Component
+public class PasswordHashingExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final long retryAfterSeconds;
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Timer queueWait;
+    private final Counter rejections;
+
+    public PasswordHashingExecutor(AppProperties appProperties, MeterRegistry meterRegistry) {
+        AppProperties.PasswordHashing settings = appProperties.getPasswordHashing();
+        int threads = settings.getThreads() > 0 ? settings.getThreads() : Runtime.getRuntime().availableProcessors();
+
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(settings.getQueueCapacity()), new HashingThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.retryAfterSeconds = settings.getRetryAfterSeconds();
+        this.meterRegistry = meterRegistry;
+
+        this.queueWait = Timer.builder("auth.password.hashing.queue.wait")
+                .description("Time password work spent queued before a hashing thread picked it up")
+                .register(meterRegistry);
+        this.rejections = Counter.builder("auth.password.hashing.rejections")
+                .description("Password work refused with 503 because the queue was full")
+                .register(meterRegistry);
+        Gauge.builder("auth.password.hashing.queue.depth", executor, e -> e.getQueue().size())
+                .register(meterRegistry);
+        Gauge.builder("auth.password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues {@code task} on the hashing pool.
+     *
+     * @throws ServiceUnavailableException immediately if the queue is full
+     */
+    public <T> CompletableFuture<T> submit(String operation, Supplier<T> task) {
+        Timer timer = timers.computeIfAbsent(operation, name -> Timer.builder("auth.password.hashing")
+                .tag("operation", name)
+                .description("Time spent running password work on the hashing pool")
+                .register(meterRegistry));
+
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long queuedAt = System.nanoTime();
+        SqlRecorder.RequestStats requestStats = SqlRecorder.current();
+        try {
+            executor.execute(() -> {
+                long startedAt = System.nanoTime();
+                queueWait.record(startedAt - queuedAt, TimeUnit.NANOSECONDS);
+                T result = null;
+                Throwable failure = null;
+                SqlRecorder.RequestStats previous = SqlRecorder.attach(requestStats);
+                try {
+                    result = task.get();
+                } catch (Throwable ex) {
+                    failure = ex;
+                } finally {
+                    SqlRecorder.attach(previous);
+                }
+                timer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                if (failure != null) {
+                    future.completeExceptionally(failure);
+                } else {
+                    future.complete(result);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            rejections.increment();
+            throw new ServiceUnavailableException("Too many sign-in requests in progress. Please retry shortly.",
+                    retryAfterSeconds);
+        }
+        return future;
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static final class HashingThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "password-hashing-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.springsocial.security;
+
+import com.example.springsocial.model.User;
+import com.example.springsocial.repository.UserRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rehashes a password with the current encoder settings after a successful login against an outdated hash.
+ *
+ * The rehash runs on a single low-priority background thread, so the login that triggered it
+ * does not wait. The new hash is only written if the stored hash is still the one that was
+ * verified, so a password change made in the meantime is never overwritten. If the queue is
+ * full the upgrade is skipped; it will be tried again on the user's next login.
+ */
+@Service
+public class PasswordUpgradeService implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordUpgradeService.class);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+
+    private final ExecutorService executor;
+
+    private final LongAdder upgraded = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+
+    public PasswordUpgradeService() {
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(256),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-upgrade");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                },
+                (runnable, pool) -> skipped.increment());
+    }
+
+    /**
+     * Schedules a rehash if {@code principal} was authenticated against a hash the encoder considers outdated.
+     */
+    public void upgradeIfNeeded(Object principal, String rawPassword) {
+        if (!(principal instanceof UserPrincipal) || rawPassword == null) {
+            return;
+        }
+
+        UserPrincipal userPrincipal = (UserPrincipal) principal;
+        String verifiedHash = userPrincipal.getPassword();
+        if (verifiedHash == null || !passwordEncoder.upgradeEncoding(verifiedHash)) {
+            return;
+        }
+
+        executor.execute(() -> rehash(userPrincipal, verifiedHash, rawPassword));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("auth.password.rehash", upgraded, LongAdder::sum)
+                .tag("result", "upgraded")
+                .register(registry);
+        FunctionCounter.builder("auth.password.rehash", skipped, LongAdder::sum)
+                .tag("result", "skipped")
+                .register(registry);
+        FunctionCounter.builder("auth.password.rehash", stale, LongAdder::sum)
+                .tag("result", "stale")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void rehash(UserPrincipal userPrincipal, String verifiedHash, String rawPassword) {
+        try {
+            String upgradedHash = passwordEncoder.encode(rawPassword);
+            if (userRepository.updatePasswordIfUnchanged(userPrincipal.getId(), verifiedHash, upgradedHash) == 0) {
+                stale.increment();
+                return;
+            }
+
+            User user = new User();
+            user.setId(userPrincipal.getId());
+            user.setEmail(userPrincipal.getEmail());
+            userPrincipalCache.invalidate(user);
+            upgraded.increment();
+        } catch (RuntimeException ex) {
+            skipped.increment();
+            logger.warn("Could not upgrade password hash for user {}", userPrincipal.getId(), ex);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.springsocial.security;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Matches request paths against the public ant patterns in {@code SecurityConfig}, compiled once.
+ *
+ * Only three pattern shapes are supported, which is all the security configuration uses:
+ * exact paths ({@code /error}), any-depth extensions ({@code /**}{@code /*.png}) and path
+ * prefixes ({@code /auth/**}). Exact paths and extensions are hash set lookups and prefixes
+ * are a walk down a trie of path segments, so a match never evaluates the patterns one by one.
+ * Anything else is rejected when the matcher is built, so it can never quietly disagree with
+ * the patterns Spring Security is given.
+ */
+public class PublicPathMatcher {
+
+    private static final String ANY_DEPTH_EXTENSION = "/**/*.";
+    private static final String ANY_SUFFIX = "/**";
+
+    private final Set<String> exactPaths = new HashSet<>();
+    private final Set<String> extensions = new HashSet<>();
+    private final Node prefixes = new Node();
+
+    public PublicPathMatcher(String... patterns) {
+        this(Arrays.asList(patterns));
+    }
+
+    public PublicPathMatcher(List<String> patterns) {
+        for (String pattern : patterns) {
+            add(pattern);
+        }
+    }
+
+    public boolean matches(HttpServletRequest request) {
+        String path = request.getServletPath();
+        String pathInfo = request.getPathInfo();
+        if (pathInfo != null) {
+            path = path == null || path.isEmpty() ? pathInfo : path + pathInfo;
+        }
+        return matches(path);
+    }
+
+    public boolean matches(String path) {
+        if (path == null || path.isEmpty()) {
+            return false;
+        }
+        if (exactPaths.contains(path)) {
+            return true;
+        }
+
+        int lastSlash = path.lastIndexOf('/');
+        int dot = path.lastIndexOf('.');
+        if (dot > lastSlash && extensions.contains(path.substring(dot + 1))) {
+            return true;
+        }
+
+        return matchesPrefix(path);
+    }
+
+    private boolean matchesPrefix(String path) {
+        Node node = prefixes;
+        int start = 1;
+        while (node != null) {
+            if (node.terminal) {
+                return true;
+            }
+            if (start > path.length()) {
+                return false;
+            }
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = path.length();
+            }
+            node = node.children.get(path.substring(start, end));
+            start = end + 1;
+        }
+        return false;
+    }
+
+    private void add(String pattern) {
+        if (pattern.startsWith(ANY_DEPTH_EXTENSION)) {
+            String extension = pattern.substring(ANY_DEPTH_EXTENSION.length());
+            requireLiteral(pattern, extension, false);
+            extensions.add(extension);
+        } else if (pattern.endsWith(ANY_SUFFIX) && pattern.length() > ANY_SUFFIX.length()) {
+            String prefix = pattern.substring(0, pattern.length() - ANY_SUFFIX.length());
+            requireLiteral(pattern, prefix, true);
+            Node node = prefixes;
+            for (String segment : prefix.substring(1).split("/")) {
+                node = node.children.computeIfAbsent(segment, key -> new Node());
+            }
+            node.terminal = true;
+        } else {
+            requireLiteral(pattern, pattern, true);
+            exactPaths.add(pattern);
+        }
+    }
+
+    private static void requireLiteral(String pattern, String part, boolean path) {
+        if (part.isEmpty() || part.contains("*") || part.contains("?") || part.contains("{")
+                || (path ? !part.startsWith("/") : part.contains("/"))) {
+            throw new IllegalArgumentException("Unsupported public path pattern: " + pattern);
+        }
+    }
+
+    private static final class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private boolean terminal;
+    }
+}
@@ -1,7 +1,5 @@
 package com.example.springsocial.security;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.web.AuthenticationEntryPoint;
 
@@ -12,13 +10,17 @@ import java.io.IOException;
 
 public class RestAuthenticationEntryPoint implements AuthenticationEntryPoint {
 
-    private static final Logger logger = LoggerFactory.getLogger(RestAuthenticationEntryPoint.class);
+    private final AuthFailureMonitor authFailureMonitor;
+
+    public RestAuthenticationEntryPoint(AuthFailureMonitor authFailureMonitor) {
+        this.authFailureMonitor = authFailureMonitor;
+    }
 
     @Override
     public void commence(HttpServletRequest httpServletRequest,
                          HttpServletResponse httpServletResponse,
                          AuthenticationException e) throws IOException, ServletException {
-        logger.error("Responding with unauthorized error. Message - {}", e.getMessage());
+        authFailureMonitor.record(AuthFailureMonitor.Reason.UNAUTHORIZED, e.getMessage());
         httpServletResponse.sendError(HttpServletResponse.SC_UNAUTHORIZED,
                 e.getLocalizedMessage());
     }
@@ -0,0 +1,354 @@
+package com.example.springsocial.security;
+
+import com.example.springsocial.config.AppProperties;
+import com.example.springsocial.repository.SigningKeyRepository;
+import com.example.springsocial.repository.SigningKeyRepository.StoredKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ES256 key ring used when {@code app.auth.signingAlgorithm} is ES256.
+ *
+ * The ring is kept in {@code signing_keys}, so every node signs with the same key and publishes
+ * the same JWKS, and tokens survive restarts. Each key has a {@code notBefore} time: the newest
+ * key past it signs, and the one after it is published a full {@code keyRotationMsec} ahead, so
+ * downstream verifiers that cache the key set never see an unknown {@code kid}. A key is kept
+ * until every token it signed has expired.
+ *
+ * Every {@code keyRefreshMsec} each node reloads the ring. Under a database lock, whichever node
+ * gets there first adds the next key when none is pending and deletes keys no longer needed, so
+ * rotation needs no coordinator. Private keys are stored encrypted with AES-GCM under a key
+ * derived from {@code app.auth.signingKeySecret}, which every node needs.
+ */
+@Component
+public class SigningKeyRing {
+
+    public static final String ES256 = "ES256";
+
+    private static final Logger logger = LoggerFactory.getLogger(SigningKeyRing.class);
+
+    private static final Base64.Encoder BASE64_URL = Base64.getUrlEncoder().withoutPadding();
+
+    private static final int IV_LENGTH = 12;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final SigningKeyRepository signingKeyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+
+    private final boolean enabled;
+    private final long tokenExpirationMsec;
+    private final long rotationMsec;
+    private final SecretKeySpec storageKey;
+
+    // Ordered by notBefore, newest first
+    private volatile List<SigningKey> keys = Collections.emptyList();
+    private volatile Map<String, SigningKey> keysByKid = Collections.emptyMap();
+    private volatile Map<String, SigningKey> keysByEncodedHeader = Collections.emptyMap();
+
+    @Autowired
+    public SigningKeyRing(AppProperties appProperties, SigningKeyRepository signingKeyRepository,
+                          PlatformTransactionManager transactionManager) {
+        this(appProperties, signingKeyRepository, transactionManager, Clock.systemUTC());
+    }
+
+    SigningKeyRing(AppProperties appProperties, SigningKeyRepository signingKeyRepository,
+                   PlatformTransactionManager transactionManager, Clock clock) {
+        this.signingKeyRepository = signingKeyRepository;
+        // Read-write, so the ring is read from and written to the primary
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clock = clock;
+        this.enabled = ES256.equalsIgnoreCase(appProperties.getAuth().getSigningAlgorithm());
+        this.tokenExpirationMsec = appProperties.getAuth().getTokenExpirationMsec();
+        this.rotationMsec = appProperties.getAuth().getKeyRotationMsec();
+
+        if (!enabled) {
+            this.storageKey = null;
+            return;
+        }
+        String secret = appProperties.getAuth().getSigningKeySecret();
+        if (!StringUtils.hasText(secret)) {
+            throw new IllegalStateException("app.auth.signingKeySecret must be set to sign tokens with ES256");
+        }
+        this.storageKey = new SecretKeySpec(sha256(secret.getBytes(StandardCharsets.UTF_8)), "AES");
+        refresh();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * The newest key whose notBefore has passed, or null if the ring is empty.
+     */
+    public SigningKey getActiveKey() {
+        long now = clock.millis();
+        for (SigningKey key : keys) {
+            if (key.notBefore <= now) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    public SigningKey getKey(String kid) {
+        return kid != null ? keysByKid.get(kid) : null;
+    }
+
+    /**
+     * Looks up a key by the exact base64url header segment this ring emits for it.
+     */
+    SigningKey getKeyByEncodedHeader(String encodedHeader) {
+        return keysByEncodedHeader.get(encodedHeader);
+    }
+
+    /**
+     * Brings the stored ring up to date, adding an active or next key where one is missing and
+     * deleting keys whose tokens can no longer be valid, and reloads it. A node that cannot
+     * reach the database keeps the ring it has.
+     */
+    @Scheduled(fixedDelayString = "${app.auth.keyRefreshMsec:60000}",
+            initialDelayString = "${app.auth.keyRefreshMsec:60000}")
+    public synchronized void refresh() {
+        if (!enabled) {
+            return;
+        }
+
+        List<StoredKey> stored;
+        try {
+            stored = transactionTemplate.execute(status -> {
+                signingKeyRepository.lock();
+                return rotate(signingKeyRepository.findAll());
+            });
+        } catch (RuntimeException ex) {
+            if (keys.isEmpty()) {
+                throw ex;
+            }
+            logger.warn("Could not refresh the token signing keys, keeping {} loaded keys", keys.size(), ex);
+            return;
+        }
+
+        List<SigningKey> loaded = new ArrayList<>(stored.size());
+        for (StoredKey key : stored) {
+            SigningKey current = keysByKid.get(key.getKid());
+            loaded.add(current != null ? current : load(key));
+        }
+        loaded.sort((a, b) -> Long.compare(b.notBefore, a.notBefore));
+
+        Map<String, SigningKey> byKid = new LinkedHashMap<>();
+        Map<String, SigningKey> byEncodedHeader = new LinkedHashMap<>();
+        for (SigningKey key : loaded) {
+            byKid.put(key.kid, key);
+            byEncodedHeader.put(key.encodedHeader, key);
+        }
+        SigningKey previous = getActiveKey();
+        keysByKid = byKid;
+        keysByEncodedHeader = byEncodedHeader;
+        keys = loaded;
+
+        SigningKey active = getActiveKey();
+        if (active != null && active != previous) {
+            logger.info("Token signing key is now kid {}", active.kid);
+        }
+    }
+
+    /**
+     * The public half of every key in the ring as an RFC 7517 JWK set.
+     */
+    public Map<String, Object> toJwkSet() {
+        List<Map<String, Object>> jwks = new ArrayList<>();
+        for (SigningKey key : keys) {
+            jwks.add(key.toJwk());
+        }
+
+        Map<String, Object> jwkSet = new LinkedHashMap<>();
+        jwkSet.put("keys", jwks);
+        return jwkSet;
+    }
+
+    // Runs under the lock; stored is ordered by notBefore, oldest first
+    private List<StoredKey> rotate(List<StoredKey> stored) {
+        Instant now = clock.instant();
+        List<StoredKey> ring = new ArrayList<>(stored);
+
+        if (ring.stream().noneMatch(key -> !key.getNotBefore().isAfter(now))) {
+            ring.add(0, store(now));
+        }
+        if (ring.stream().noneMatch(key -> key.getNotBefore().isAfter(now))) {
+            ring.add(store(now.plusMillis(rotationMsec)));
+        }
+
+        // A key is superseded once the key after it starts signing, and is kept until the last
+        // token it signed has expired
+        List<String> expired = new ArrayList<>();
+        for (int i = 0; i + 1 < ring.size(); i++) {
+            Instant superseded = ring.get(i + 1).getNotBefore();
+            if (!superseded.isAfter(now) && superseded.plusMillis(tokenExpirationMsec).isBefore(now)) {
+                expired.add(ring.get(i).getKid());
+            }
+        }
+        if (!expired.isEmpty()) {
+            signingKeyRepository.deleteAll(expired);
+            ring.removeIf(key -> expired.contains(key.getKid()));
+        }
+        return ring;
+    }
+
+    private StoredKey store(Instant notBefore) {
+        KeyPair keyPair = generate();
+        SigningKey key = new SigningKey(keyPair, notBefore.toEpochMilli());
+        StoredKey stored = new StoredKey(key.kid, notBefore, keyPair.getPublic().getEncoded(),
+                encrypt(keyPair.getPrivate().getEncoded()));
+        signingKeyRepository.insert(stored);
+        return stored;
+    }
+
+    private SigningKey load(StoredKey stored) {
+        try {
+            KeyFactory keyFactory = KeyFactory.getInstance("EC");
+            KeyPair keyPair = new KeyPair(
+                    keyFactory.generatePublic(new X509EncodedKeySpec(stored.getPublicKey())),
+                    keyFactory.generatePrivate(new PKCS8EncodedKeySpec(decrypt(stored.getPrivateKey()))));
+            return new SigningKey(keyPair, stored.getNotBefore().toEpochMilli());
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("Could not load signing key " + stored.getKid()
+                    + "; is app.auth.signingKeySecret the same on every node?", ex);
+        }
+    }
+
+    // IV followed by the AES-GCM ciphertext and tag
+    private byte[] encrypt(byte[] plain) {
+        try {
+            byte[] iv = new byte[IV_LENGTH];
+            RANDOM.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, storageKey, new GCMParameterSpec(128, iv));
+            byte[] encrypted = cipher.doFinal(plain);
+            byte[] result = Arrays.copyOf(iv, IV_LENGTH + encrypted.length);
+            System.arraycopy(encrypted, 0, result, IV_LENGTH, encrypted.length);
+            return result;
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("Could not encrypt signing key", ex);
+        }
+    }
+
+    private byte[] decrypt(byte[] stored) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, storageKey, new GCMParameterSpec(128, stored, 0, IV_LENGTH));
+        return cipher.doFinal(stored, IV_LENGTH, stored.length - IV_LENGTH);
+    }
+
+    private static KeyPair generate() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+            return generator.generateKeyPair();
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("Could not generate ES256 signing key", ex);
+        }
+    }
+
+    private static byte[] sha256(byte[] value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value);
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    public static final class SigningKey {
+        private final String kid;
+        private final ECPublicKey publicKey;
+        private final PrivateKey privateKey;
+        private final String encodedHeader;
+        private final String x;
+        private final String y;
+        private final long notBefore;
+
+        private SigningKey(KeyPair keyPair, long notBefore) {
+            this.notBefore = notBefore;
+            this.publicKey = (ECPublicKey) keyPair.getPublic();
+            this.privateKey = keyPair.getPrivate();
+            this.x = coordinate(publicKey.getW().getAffineX());
+            this.y = coordinate(publicKey.getW().getAffineY());
+            this.kid = thumbprint(x, y);
+            this.encodedHeader = BASE64_URL.encodeToString(
+                    ("{\"alg\":\"ES256\",\"kid\":\"" + kid + "\"}").getBytes(StandardCharsets.US_ASCII));
+        }
+
+        public String getKid() {
+            return kid;
+        }
+
+        public ECPublicKey getPublicKey() {
+            return publicKey;
+        }
+
+        PrivateKey getPrivateKey() {
+            return privateKey;
+        }
+
+        String getEncodedHeader() {
+            return encodedHeader;
+        }
+
+        private Map<String, Object> toJwk() {
+            Map<String, Object> jwk = new LinkedHashMap<>();
+            jwk.put("kty", "EC");
+            jwk.put("crv", "P-256");
+            jwk.put("use", "sig");
+            jwk.put("alg", ES256);
+            jwk.put("kid", kid);
+            jwk.put("x", x);
+            jwk.put("y", y);
+            return jwk;
+        }
+
+        // Fixed-width, unsigned big-endian encoding of a P-256 coordinate
+        private static String coordinate(BigInteger value) {
+            byte[] bytes = value.toByteArray();
+            byte[] padded = new byte[32];
+            int length = Math.min(bytes.length, 32);
+            System.arraycopy(bytes, bytes.length - length, padded, 32 - length, length);
+            return BASE64_URL.encodeToString(padded);
+        }
+
+        // RFC 7638 JWK thumbprint, so the kid is derived from the key itself
+        private static String thumbprint(String x, String y) {
+            String canonical = "{\"crv\":\"P-256\",\"kty\":\"EC\",\"x\":\"" + x + "\",\"y\":\"" + y + "\"}";
+            return BASE64_URL.encodeToString(sha256(canonical.getBytes(StandardCharsets.US_ASCII)));
+        }
+    }
+}
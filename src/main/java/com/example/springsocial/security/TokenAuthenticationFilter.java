@@ -1,7 +1,6 @@
 package com.example.springsocial.security;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.example.springsocial.config.AppProperties;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -24,29 +23,87 @@ public class TokenAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private CustomUserDetailsService customUserDetailsService;
 
-    private static final Logger logger = LoggerFactory.getLogger(TokenAuthenticationFilter.class);
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Autowired
+    private NegativeTokenCache negativeTokenCache;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private AppProperties appProperties;
+
+    @Autowired
+    private AuthFailureMonitor authFailureMonitor;
+
+    @Autowired
+    private PublicPathMatcher publicPathMatcher;
+
+    @Autowired
+    private AuthEventLog authEventLog;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return publicPathMatcher.matches(request);
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                Long userId = tokenProvider.getUserIdFromToken(jwt);
+            VerifiedToken verifiedToken = StringUtils.hasText(jwt) ? verify(jwt, request) : null;
 
-                UserDetails userDetails = customUserDetailsService.loadUserById(userId);
+            if (verifiedToken != null) {
+                UserDetails userDetails = loadUser(verifiedToken);
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
                 SecurityContextHolder.getContext().setAuthentication(authentication);
             }
         } catch (Exception ex) {
-            logger.error("Could not set user authentication in security context", ex);
+            authFailureMonitor.record(AuthFailureMonitor.Reason.ERROR, "Could not set user authentication in security context", ex);
         }
 
         filterChain.doFilter(request, response);
     }
 
+    private UserDetails loadUser(VerifiedToken verifiedToken) {
+        if (verifiedToken.hasIdentityClaims() && appProperties.getAuth().isStatelessPrincipal()) {
+            return UserPrincipal.create(verifiedToken);
+        }
+        return customUserDetailsService.loadUserById(verifiedToken.getUserId());
+    }
+
+    // Only the first rejection of a token is audited; the negative cache absorbs its repeats
+    private VerifiedToken verify(String jwt, HttpServletRequest request) {
+        VerifiedToken verifiedToken = verifiedTokenCache.get(jwt);
+        if (verifiedToken == null) {
+            if (negativeTokenCache.isRejected(jwt)) {
+                return null;
+            }
+            verifiedToken = tokenProvider.verifyToken(jwt);
+            if (verifiedToken == null) {
+                negativeTokenCache.reject(jwt);
+                authEventLog.record(AuthEvent.Type.TOKEN_REJECTED, null, null, request.getRemoteAddr(),
+                        request.getRequestURI());
+                return null;
+            }
+            verifiedTokenCache.put(jwt, verifiedToken);
+        }
+        if (tokenRevocationService.isRevoked(verifiedToken)) {
+            authFailureMonitor.record(AuthFailureMonitor.Reason.REVOKED, "Revoked JWT token");
+            authEventLog.record(AuthEvent.Type.TOKEN_REVOKED, verifiedToken.getUserId(), null, request.getRemoteAddr(),
+                    request.getRequestURI());
+            verifiedTokenCache.invalidate(jwt);
+            negativeTokenCache.reject(jwt);
+            return null;
+        }
+        return verifiedToken;
+    }
+
     private String getJwtFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
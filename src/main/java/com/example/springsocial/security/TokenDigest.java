@@ -0,0 +1,31 @@
+package com.example.springsocial.security;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SHA-256 digest of a bearer token, the key under which the token caches remember it so that
+ * raw tokens are never retained.
+ *
+ * Tokens are hashed as UTF-8: a well-formed JWT is ASCII and hashes the same either way, and a
+ * malformed one keeps a digest of its own instead of colliding with others on replaced characters.
+ */
+final class TokenDigest {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    });
+
+    private TokenDigest() {
+    }
+
+    static ByteBuffer of(String token) {
+        return ByteBuffer.wrap(SHA_256.get().digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+}
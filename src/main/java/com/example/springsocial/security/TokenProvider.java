@@ -1,64 +1,74 @@
 package com.example.springsocial.security;
 
 import com.example.springsocial.config.AppProperties;
-import io.jsonwebtoken.*;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.SignatureException;
+import io.jsonwebtoken.UnsupportedJwtException;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Service;
 
-import java.util.Date;
+import java.util.stream.Collectors;
 
 @Service
 public class TokenProvider {
 
-    private static final Logger logger = LoggerFactory.getLogger(TokenProvider.class);
-
     private AppProperties appProperties;
 
-    public TokenProvider(AppProperties appProperties) {
+    private final JwtCodec jwtCodec;
+
+    private final AuthFailureMonitor authFailureMonitor;
+
+    public TokenProvider(AppProperties appProperties, SigningKeyRing signingKeyRing, AuthFailureMonitor authFailureMonitor) {
         this.appProperties = appProperties;
+        this.jwtCodec = new JwtCodec(appProperties.getAuth().getTokenSecret(), signingKeyRing);
+        this.authFailureMonitor = authFailureMonitor;
     }
 
     public String createToken(Authentication authentication) {
         UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
 
-        Date now = new Date();
-        Date expiryDate = new Date(now.getTime() + appProperties.getAuth().getTokenExpirationMsec());
+        long now = System.currentTimeMillis();
+        long expiresAt = now + appProperties.getAuth().getTokenExpirationMsec();
+
+        if (!appProperties.getAuth().isStatelessPrincipal()) {
+            return jwtCodec.encode(userPrincipal.getId(), now, expiresAt);
+        }
 
-        return Jwts.builder()
-                .setSubject(Long.toString(userPrincipal.getId()))
-                .setIssuedAt(new Date())
-                .setExpiration(expiryDate)
-                .signWith(SignatureAlgorithm.HS512, appProperties.getAuth().getTokenSecret())
-                .compact();
+        String authorities = userPrincipal.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.joining(","));
+        return jwtCodec.encode(userPrincipal.getId(), userPrincipal.getEmail(), authorities,
+                userPrincipal.getVersion(), now, expiresAt);
     }
 
     public Long getUserIdFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .setSigningKey(appProperties.getAuth().getTokenSecret())
-                .parseClaimsJws(token)
-                .getBody();
-
-        return Long.parseLong(claims.getSubject());
+        return jwtCodec.decode(token).getUserId();
     }
 
-    public boolean validateToken(String authToken) {
+    /**
+     * Verifies the token once and returns what the request path needs from it, or null if it is not valid.
+     */
+    public VerifiedToken verifyToken(String authToken) {
         try {
-            Jwts.parser().setSigningKey(appProperties.getAuth().getTokenSecret()).parseClaimsJws(authToken);
-            return true;
+            return jwtCodec.decode(authToken);
         } catch (SignatureException ex) {
-            logger.error("Invalid JWT signature");
+            authFailureMonitor.record(AuthFailureMonitor.Reason.SIGNATURE, "Invalid JWT signature");
         } catch (MalformedJwtException ex) {
-            logger.error("Invalid JWT token");
+            authFailureMonitor.record(AuthFailureMonitor.Reason.MALFORMED, "Invalid JWT token");
         } catch (ExpiredJwtException ex) {
-            logger.error("Expired JWT token");
+            authFailureMonitor.record(AuthFailureMonitor.Reason.EXPIRED, "Expired JWT token");
         } catch (UnsupportedJwtException ex) {
-            logger.error("Unsupported JWT token");
+            authFailureMonitor.record(AuthFailureMonitor.Reason.UNSUPPORTED, "Unsupported JWT token");
         } catch (IllegalArgumentException ex) {
-            logger.error("JWT claims string is empty.");
+            authFailureMonitor.record(AuthFailureMonitor.Reason.EMPTY, "JWT claims string is empty.");
         }
-        return false;
+        return null;
+    }
+
+    public boolean validateToken(String authToken) {
+        return verifyToken(authToken) != null;
     }
 
 }
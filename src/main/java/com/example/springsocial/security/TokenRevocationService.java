@@ -0,0 +1,228 @@
+package com.example.springsocial.security;
+
+import com.example.springsocial.config.AppProperties;
+import com.example.springsocial.model.RevokedToken;
+import com.example.springsocial.repository.RevokedTokenRepository;
+import com.example.springsocial.util.BloomFilter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Revokes tokens before they expire.
+ *
+ * Revoked {@code jti}s are stored in {@code revoked_tokens}, and each one is also added to a
+ * Bloom filter for the time bucket in which its token expires. A token is checked against the
+ * filter for its own bucket, and the database is only queried when that filter reports a
+ * possible match. A bucket is dropped as soon as every token that could fall into it has expired,
+ * so memory is bounded by the number of live buckets whatever the revocation rate.
+ *
+ * When the database rules out a match, the answer is remembered on the {@link VerifiedToken}, which
+ * {@link VerifiedTokenCache} keeps for later requests, together with the bucket's last insertion.
+ * The token is only checked again once something new has been added to its bucket, so a false
+ * positive costs one query per revocation instead of one per request.
+ */
+@Service
+public class TokenRevocationService implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+
+    private final boolean enabled;
+    private final long bucketMsec;
+    private final long expectedRevocationsPerBucket;
+    private final double falsePositiveRate;
+    private final long pollMsec;
+
+    private final Map<Long, Bucket> buckets = new ConcurrentHashMap<>();
+    // Numbers every insertion into any bucket, so a bucket's last insertion is never seen twice
+    private final AtomicLong insertions = new AtomicLong();
+    private volatile Instant lastPolledAt;
+
+    private final LongAdder filterRejections = new LongAdder();
+    private final LongAdder databaseChecks = new LongAdder();
+    private final LongAdder rememberedChecks = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository, AppProperties appProperties) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.enabled = appProperties.getTokenRevocation().isEnabled();
+        this.bucketMsec = appProperties.getTokenRevocation().getBucketMsec();
+        this.expectedRevocationsPerBucket = appProperties.getTokenRevocation().getExpectedRevocationsPerBucket();
+        this.falsePositiveRate = appProperties.getTokenRevocation().getFalsePositiveRate();
+        this.pollMsec = appProperties.getTokenRevocation().getPollMsec();
+    }
+
+    /**
+     * Loads every revocation that is still relevant so that no revoked token is accepted after a restart.
+     */
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+
+        Instant now = Instant.now();
+        List<RevokedTokenRepository.RevocationEntry> entries = revokedTokenRepository.findUnexpired(now);
+        entries.forEach(this::remember);
+        lastPolledAt = now;
+        logger.info("Loaded {} token revocations into {} buckets", entries.size(), buckets.size());
+    }
+
+    /**
+     * Revokes the token until it expires. Returns false if the token has no {@code jti} or has already expired.
+     */
+    public boolean revoke(VerifiedToken verifiedToken) {
+        String tokenId = verifiedToken.getTokenId();
+        long now = System.currentTimeMillis();
+        if (!enabled || tokenId == null || verifiedToken.isExpired(now)) {
+            return false;
+        }
+
+        RevokedToken revokedToken = new RevokedToken();
+        revokedToken.setTokenId(tokenId);
+        revokedToken.setUserId(verifiedToken.getUserId());
+        revokedToken.setExpiresAt(Instant.ofEpochMilli(verifiedToken.getExpiresAt()));
+        revokedToken.setRevokedAt(Instant.ofEpochMilli(now));
+        revokedTokenRepository.save(revokedToken);
+
+        bucketFor(verifiedToken.getExpiresAt()).put(tokenId, insertions.incrementAndGet());
+        return true;
+    }
+
+    public boolean isRevoked(VerifiedToken verifiedToken) {
+        String tokenId = verifiedToken.getTokenId();
+        if (!enabled || tokenId == null) {
+            return false;
+        }
+
+        Bucket bucket = buckets.get(bucketIndex(verifiedToken.getExpiresAt()));
+        if (bucket == null || !bucket.filter.mightContain(tokenId)) {
+            filterRejections.increment();
+            return false;
+        }
+
+        // Read before the query: a revocation the query misses is inserted after it, and moves this on
+        long lastInsertion = bucket.lastInsertion;
+        if (verifiedToken.getNotRevokedAsOf() == lastInsertion) {
+            rememberedChecks.increment();
+            return false;
+        }
+
+        databaseChecks.increment();
+        boolean revoked = revokedTokenRepository.existsById(tokenId);
+        if (!revoked) {
+            falsePositives.increment();
+            verifiedToken.setNotRevokedAsOf(lastInsertion);
+        }
+        return revoked;
+    }
+
+    /**
+     * Picks up revocations made on other nodes. The window overlaps the previous poll by one
+     * interval to allow for clock skew; adding an id to a Bloom filter twice is harmless.
+     */
+    @Scheduled(fixedDelayString = "${app.tokenRevocation.pollMsec:30000}",
+            initialDelayString = "${app.tokenRevocation.pollMsec:30000}")
+    public void poll() {
+        if (!enabled) {
+            return;
+        }
+
+        Instant now = Instant.now();
+        Instant since = (lastPolledAt != null ? lastPolledAt : now).minusMillis(pollMsec);
+        revokedTokenRepository.findRevokedSince(since, now).forEach(this::remember);
+        lastPolledAt = now;
+    }
+
+    /**
+     * Drops buckets whose tokens have all expired and deletes the matching rows.
+     */
+    @Scheduled(fixedDelayString = "${app.tokenRevocation.bucketMsec:86400000}",
+            initialDelayString = "${app.tokenRevocation.bucketMsec:86400000}")
+    public void purgeExpired() {
+        if (!enabled) {
+            return;
+        }
+
+        long currentBucket = bucketIndex(System.currentTimeMillis());
+        buckets.keySet().removeIf(index -> index < currentBucket);
+        int deleted = revokedTokenRepository.deleteExpired(Instant.now());
+        logger.info("Purged {} expired token revocations", deleted);
+    }
+
+    public int getBucketCount() {
+        return buckets.size();
+    }
+
+    public long getDatabaseCheckCount() {
+        return databaseChecks.sum();
+    }
+
+    public long getFalsePositiveCount() {
+        return falsePositives.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("auth.token.revocation.checks", filterRejections, LongAdder::sum)
+                .tag("result", "filtered")
+                .description("Revocation checks answered by the Bloom filter alone")
+                .register(registry);
+        FunctionCounter.builder("auth.token.revocation.checks", databaseChecks, LongAdder::sum)
+                .tag("result", "database")
+                .description("Revocation checks that had to query the database")
+                .register(registry);
+        FunctionCounter.builder("auth.token.revocation.checks", rememberedChecks, LongAdder::sum)
+                .tag("result", "remembered")
+                .description("Bloom filter hits already ruled out by the database for the same token")
+                .register(registry);
+        FunctionCounter.builder("auth.token.revocation.false.positives", falsePositives, LongAdder::sum)
+                .register(registry);
+        Gauge.builder("auth.token.revocation.buckets", buckets, Map::size)
+                .register(registry);
+    }
+
+    private void remember(RevokedTokenRepository.RevocationEntry entry) {
+        bucketFor(entry.getExpiresAt().toEpochMilli()).put(entry.getTokenId(), insertions.incrementAndGet());
+    }
+
+    private Bucket bucketFor(long expiresAt) {
+        return buckets.computeIfAbsent(bucketIndex(expiresAt),
+                index -> new Bucket(new BloomFilter(expectedRevocationsPerBucket, falsePositiveRate)));
+    }
+
+    private long bucketIndex(long expiresAt) {
+        return expiresAt / bucketMsec;
+    }
+
+    private static final class Bucket {
+        private final BloomFilter filter;
+        private volatile long lastInsertion;
+
+        private Bucket(BloomFilter filter) {
+            this.filter = filter;
+        }
+
+        // The id is in the filter before the insertion is published, so a check that sees the new
+        // insertion also sees the id
+        private void put(String tokenId, long insertion) {
+            filter.put(tokenId);
+            lastInsertion = insertion;
+        }
+    }
+}
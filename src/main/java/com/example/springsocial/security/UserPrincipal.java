@@ -1,6 +1,7 @@
 package com.example.springsocial.security;
 
 import com.example.springsocial.model.User;
+import com.example.springsocial.repository.UserRepository;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -15,13 +16,19 @@ public class UserPrincipal implements OAuth2User, UserDetails {
     private Long id;
     private String email;
     private String password;
+    private Long version;
     private Collection<? extends GrantedAuthority> authorities;
     private Map<String, Object> attributes;
 
     public UserPrincipal(Long id, String email, String password, Collection<? extends GrantedAuthority> authorities) {
+        this(id, email, password, null, authorities);
+    }
+
+    public UserPrincipal(Long id, String email, String password, Long version, Collection<? extends GrantedAuthority> authorities) {
         this.id = id;
         this.email = email;
         this.password = password;
+        this.version = version;
         this.authorities = authorities;
     }
 
@@ -33,10 +40,37 @@ public class UserPrincipal implements OAuth2User, UserDetails {
                 user.getId(),
                 user.getEmail(),
                 user.getPassword(),
+                user.getVersion(),
+                authorities
+        );
+    }
+
+    public static UserPrincipal create(UserRepository.Credentials credentials) {
+        List<GrantedAuthority> authorities = Collections.
+                singletonList(new SimpleGrantedAuthority("ROLE_USER"));
+
+        return new UserPrincipal(
+                credentials.getId(),
+                credentials.getEmail(),
+                credentials.getPassword(),
+                credentials.getVersion(),
                 authorities
         );
     }
 
+    /**
+     * Rebuilds the principal from the identity claims of a verified token, without touching the database.
+     */
+    public static UserPrincipal create(VerifiedToken verifiedToken) {
+        return new UserPrincipal(
+                verifiedToken.getUserId(),
+                verifiedToken.getEmail(),
+                null,
+                verifiedToken.getVersion(),
+                verifiedToken.getAuthorities()
+        );
+    }
+
     public static UserPrincipal create(User user, Map<String, Object> attributes) {
         UserPrincipal userPrincipal = UserPrincipal.create(user);
         userPrincipal.setAttributes(attributes);
@@ -51,6 +85,10 @@ public class UserPrincipal implements OAuth2User, UserDetails {
         return email;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
     @Override
     public String getPassword() {
         return password;
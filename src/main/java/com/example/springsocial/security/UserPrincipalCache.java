@@ -0,0 +1,215 @@
+package com.example.springsocial.security;
+
+import com.example.springsocial.config.AppProperties;
+import com.example.springsocial.model.User;
+import com.example.springsocial.repository.ReadYourWrites;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded, TTL-limited cache of {@link UserPrincipal}s by id and by email.
+ *
+ * Concurrent misses for the same key share a single load, so a cold cache costs one query
+ * per user rather than one per request. Anything that writes a {@link User} must call
+ * {@link #invalidate(User)} once the write has committed; that also keeps the user's reads
+ * on the primary for a while, see {@link ReadYourWrites}.
+ */
+@Component
+public class UserPrincipalCache implements MeterBinder {
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long ttlMsec;
+
+    private final Region<Long> byId = new Region<>();
+    private final Region<String> byEmail = new Region<>();
+
+    // Bumped on every invalidation so that loads which raced with a write are not cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalescedLoads = new LongAdder();
+
+    private final ReadYourWrites readYourWrites;
+
+    public UserPrincipalCache(AppProperties appProperties, ReadYourWrites readYourWrites) {
+        this.readYourWrites = readYourWrites;
+        this.enabled = appProperties.getUserCache().isEnabled();
+        this.maxEntries = appProperties.getUserCache().getMaxEntries();
+        this.ttlMsec = appProperties.getUserCache().getTtlMsec();
+    }
+
+    public UserPrincipal getById(Long id, Function<Long, UserPrincipal> loader) {
+        return enabled ? byId.get(id, loader) : loader.apply(id);
+    }
+
+    public UserPrincipal getByEmail(String email, Function<String, UserPrincipal> loader) {
+        return enabled ? byEmail.get(emailKey(email), loader) : loader.apply(email);
+    }
+
+    public void invalidate(User user) {
+        readYourWrites.recordWrite(user);
+        invalidations.incrementAndGet();
+
+        if (user.getId() != null) {
+            Entry removed = byId.entries.remove(user.getId());
+            if (removed != null) {
+                byEmail.entries.remove(emailKey(removed.principal.getEmail()));
+            }
+        }
+        if (user.getEmail() != null) {
+            Entry removed = byEmail.entries.remove(emailKey(user.getEmail()));
+            if (removed != null) {
+                byId.entries.remove(removed.principal.getId());
+            }
+        }
+    }
+
+    public void clear() {
+        invalidations.incrementAndGet();
+        byId.entries.clear();
+        byEmail.entries.clear();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getCoalescedLoadCount() {
+        return coalescedLoads.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("auth.user.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .description("UserPrincipal cache lookups")
+                .register(registry);
+        FunctionCounter.builder("auth.user.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .description("UserPrincipal cache lookups")
+                .register(registry);
+        FunctionCounter.builder("auth.user.cache.coalesced", coalescedLoads, LongAdder::sum)
+                .description("Cache misses that waited on a load already in flight instead of querying")
+                .register(registry);
+        Gauge.builder("auth.user.cache.size", byId.entries, Map::size)
+                .tag("key", "id")
+                .register(registry);
+        Gauge.builder("auth.user.cache.size", byEmail.entries, Map::size)
+                .tag("key", "email")
+                .register(registry);
+    }
+
+    private void store(UserPrincipal principal, long loadedAtEpoch) {
+        if (invalidations.get() != loadedAtEpoch) {
+            return;
+        }
+
+        Entry entry = new Entry(principal, System.currentTimeMillis() + ttlMsec);
+        byId.put(principal.getId(), entry);
+        byEmail.put(emailKey(principal.getEmail()), entry);
+    }
+
+    // Lookups are case-insensitive, so rows stored before emails were normalized share one entry
+    private static String emailKey(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Entry {
+        private final UserPrincipal principal;
+        private final long expiresAt;
+
+        private Entry(UserPrincipal principal, long expiresAt) {
+            this.principal = principal;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final class Region<K> {
+        private final Map<K, Entry> entries = new ConcurrentHashMap<>();
+        private final Map<K, CompletableFuture<UserPrincipal>> loading = new ConcurrentHashMap<>();
+
+        private UserPrincipal get(K key, Function<K, UserPrincipal> loader) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt > System.currentTimeMillis()) {
+                    hits.increment();
+                    return entry.principal;
+                }
+                entries.remove(key, entry);
+            }
+            misses.increment();
+
+            CompletableFuture<UserPrincipal> load = new CompletableFuture<>();
+            CompletableFuture<UserPrincipal> inFlight = loading.putIfAbsent(key, load);
+            if (inFlight != null) {
+                coalescedLoads.increment();
+                return await(inFlight);
+            }
+
+            long epoch = invalidations.get();
+            try {
+                UserPrincipal principal = loader.apply(key);
+                store(principal, epoch);
+                load.complete(principal);
+                return principal;
+            } catch (RuntimeException ex) {
+                load.completeExceptionally(ex);
+                throw ex;
+            } finally {
+                loading.remove(key, load);
+            }
+        }
+
+        private void put(K key, Entry entry) {
+            if (key == null) {
+                return;
+            }
+            if (entries.size() >= maxEntries) {
+                makeRoom();
+            }
+            entries.put(key, entry);
+        }
+
+        private void makeRoom() {
+            long now = System.currentTimeMillis();
+            entries.values().removeIf(entry -> entry.expiresAt <= now);
+
+            int toEvict = entries.size() - maxEntries + Math.max(1, maxEntries / 10);
+            Iterator<K> iterator = entries.keySet().iterator();
+            while (toEvict-- > 0 && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+
+        private UserPrincipal await(CompletableFuture<UserPrincipal> inFlight) {
+            try {
+                return inFlight.join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) ex.getCause();
+                }
+                throw ex;
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.springsocial.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The parts of a successfully verified JWT that the request path needs.
+ */
+public class VerifiedToken {
+    private final Long userId;
+    private final long expiresAt;
+    private final String email;
+    private final List<GrantedAuthority> authorities;
+    private final Long version;
+    private final String tokenId;
+    // Set by TokenRevocationService when the database rules out a Bloom filter hit
+    private volatile long notRevokedAsOf = -1;
+
+    public VerifiedToken(Long userId, long expiresAt) {
+        this(userId, expiresAt, null);
+    }
+
+    public VerifiedToken(Long userId, long expiresAt, String tokenId) {
+        this(userId, expiresAt, null, null, null, tokenId);
+    }
+
+    public VerifiedToken(Long userId, long expiresAt, String email, String authorities, Long version) {
+        this(userId, expiresAt, email, authorities, version, null);
+    }
+
+    public VerifiedToken(Long userId, long expiresAt, String email, String authorities, Long version, String tokenId) {
+        this.userId = userId;
+        this.expiresAt = expiresAt;
+        this.email = email;
+        this.authorities = authorities == null || authorities.isEmpty()
+                ? Collections.emptyList()
+                : AuthorityUtils.commaSeparatedStringToAuthorityList(authorities);
+        this.version = version;
+        this.tokenId = tokenId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    /**
+     * Expiry of the token in epoch milliseconds, or 0 if the token carries no {@code exp} claim.
+     */
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public List<GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    /**
+     * The {@code jti} claim, or null for tokens issued before it was added.
+     */
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    /**
+     * True if the token carries the identity claims needed to build a {@link UserPrincipal} without a database lookup.
+     */
+    public boolean hasIdentityClaims() {
+        return email != null;
+    }
+
+    public boolean isExpired(long nowMillis) {
+        return expiresAt <= nowMillis;
+    }
+
+    long getNotRevokedAsOf() {
+        return notRevokedAsOf;
+    }
+
+    void setNotRevokedAsOf(long insertion) {
+        this.notRevokedAsOf = insertion;
+    }
+}
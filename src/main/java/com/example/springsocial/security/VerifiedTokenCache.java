@@ -0,0 +1,137 @@
+package com.example.springsocial.security;
+
+import com.example.springsocial.config.AppProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of tokens that already passed signature and expiry checks.
+ *
+ * Entries are keyed by the SHA-256 digest of the token so raw bearer tokens are never
+ * retained, and each entry is dropped once the token's own {@code exp} has passed.
+ */
+@Component
+public class VerifiedTokenCache implements MeterBinder {
+
+    private final Map<ByteBuffer, VerifiedToken> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final boolean enabled;
+    private final int maxEntries;
+
+    public VerifiedTokenCache(AppProperties appProperties) {
+        this.enabled = appProperties.getTokenCache().isEnabled();
+        this.maxEntries = appProperties.getTokenCache().getMaxEntries();
+    }
+
+    /**
+     * Returns the cached verification result for the token, or null if the token is unknown or expired.
+     */
+    public VerifiedToken get(String token) {
+        if (!enabled) {
+            return null;
+        }
+
+        ByteBuffer key = TokenDigest.of(token);
+        VerifiedToken verifiedToken = entries.get(key);
+        if (verifiedToken == null) {
+            misses.increment();
+            return null;
+        }
+
+        if (verifiedToken.isExpired(System.currentTimeMillis())) {
+            if (entries.remove(key, verifiedToken)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        return verifiedToken;
+    }
+
+    public void put(String token, VerifiedToken verifiedToken) {
+        if (!enabled || verifiedToken.isExpired(System.currentTimeMillis())) {
+            return;
+        }
+
+        if (entries.size() >= maxEntries) {
+            makeRoom();
+        }
+        entries.put(TokenDigest.of(token), verifiedToken);
+    }
+
+    public void invalidate(String token) {
+        if (enabled && entries.remove(TokenDigest.of(token)) != null) {
+            evictions.increment();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("auth.token.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .description("Verified-token cache lookups")
+                .register(registry);
+        FunctionCounter.builder("auth.token.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .description("Verified-token cache lookups")
+                .register(registry);
+        FunctionCounter.builder("auth.token.cache.evictions", evictions, LongAdder::sum)
+                .description("Verified-token cache entries dropped on expiry or overflow")
+                .register(registry);
+        Gauge.builder("auth.token.cache.size", entries, Map::size)
+                .description("Verified-token cache entries")
+                .register(registry);
+    }
+
+    /*
+      Drop expired tokens first. If the cache is still full, every entry is a live token and
+      any of them is as good a victim as the next, so shed an arbitrary tenth of the cache.
+    */
+    private void makeRoom() {
+        long now = System.currentTimeMillis();
+        entries.entrySet().removeIf(entry -> {
+            if (entry.getValue().isExpired(now)) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        });
+
+        int toEvict = entries.size() - maxEntries + Math.max(1, maxEntries / 10);
+        Iterator<ByteBuffer> iterator = entries.keySet().iterator();
+        while (toEvict-- > 0 && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+}
@@ -3,8 +3,10 @@ package com.example.springsocial.security.oauth2;
 import com.example.springsocial.exception.OAuth2AuthenticationProcessingException;
 import com.example.springsocial.model.AuthProvider;
 import com.example.springsocial.model.User;
+import com.example.springsocial.repository.ReadYourWrites;
 import com.example.springsocial.repository.UserRepository;
 import com.example.springsocial.security.UserPrincipal;
+import com.example.springsocial.security.UserPrincipalCache;
 import com.example.springsocial.security.oauth2.user.OAuth2UserInfo;
 import com.example.springsocial.security.oauth2.user.OAuth2UserInfoFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,6 +19,8 @@ import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import java.util.Locale;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
@@ -25,6 +29,15 @@ public class CustomOAuth2UserService extends DefaultOAuth2UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @Autowired
+    private ProfileRefreshQueue profileRefreshQueue;
+
     @Override
     public OAuth2User loadUser(OAuth2UserRequest oAuth2UserRequest) throws OAuth2AuthenticationException {
         OAuth2User oAuth2User = super.loadUser(oAuth2UserRequest);
@@ -39,25 +52,21 @@ public class CustomOAuth2UserService extends DefaultOAuth2UserService {
         }
     }
 
+    /*
+      Most logins are by a user who is already provisioned and whose profile has not changed, so
+      the first step is a lookup by provider account and nothing is written unless the provider's
+      name, picture or id differ from what is stored.
+    */
     OAuth2User processOAuth2User(OAuth2UserRequest oAuth2UserRequest, OAuth2User oAuth2User) {
         OAuth2UserInfo oAuth2UserInfo = OAuth2UserInfoFactory.getOAuth2UserInfo(oAuth2UserRequest.getClientRegistration().getRegistrationId(), oAuth2User.getAttributes());
         if(StringUtils.isEmpty(oAuth2UserInfo.getEmail())) {
             throw new OAuth2AuthenticationProcessingException("Email not found from OAuth2 provider");
         }
 
-        Optional<User> userOptional = userRepository.findByEmail(oAuth2UserInfo.getEmail());
-        User user;
-        if(userOptional.isPresent()) {
-            user = userOptional.get();
-            if(!user.getProvider().equals(AuthProvider.valueOf(oAuth2UserRequest.getClientRegistration().getRegistrationId()))) {
-                throw new OAuth2AuthenticationProcessingException("Looks like you're signed up with " +
-                        user.getProvider() + " account. Please use your " + user.getProvider() +
-                        " account to login.");
-            }
-            user = updateExistingUser(user, oAuth2UserInfo);
-        } else {
-            user = registerNewUser(oAuth2UserRequest, oAuth2UserInfo);
-        }
+        AuthProvider provider = AuthProvider.valueOf(oAuth2UserRequest.getClientRegistration().getRegistrationId());
+        User user = userRepository.findByProviderAndProviderId(provider, oAuth2UserInfo.getId())
+                .map(existingUser -> updateExistingUser(existingUser, oAuth2UserInfo))
+                .orElseGet(() -> registerNewUser(oAuth2UserRequest, oAuth2UserInfo));
 
         return UserPrincipal.create(user, oAuth2User.getAttributes());
     }
@@ -68,15 +77,62 @@ public class CustomOAuth2UserService extends DefaultOAuth2UserService {
         user.setProvider(AuthProvider.valueOf(oAuth2UserRequest.getClientRegistration().getRegistrationId()));
         user.setProviderId(oAuth2UserInfo.getId());
         user.setName(oAuth2UserInfo.getName());
-        user.setEmail(oAuth2UserInfo.getEmail());
+        user.setEmail(oAuth2UserInfo.getEmail().toLowerCase(Locale.ROOT));
         user.setImageUrl(oAuth2UserInfo.getImageUrl());
-        return userRepository.save(user);
+
+        Optional<Long> id = userRepository.insertIfAbsent(user);
+        if(id.isPresent()) {
+            user.setId(id.get());
+            user.setVersion(0L);
+            userPrincipalCache.invalidate(user);
+            return user;
+        }
+
+        // Either a concurrent first login for the same account got there first, or the email
+        // is already registered, possibly with another provider. Either way the row may be too
+        // new for a replica, so look on the primary.
+        User existingUser = readYourWrites.readFromPrimary(() ->
+                userRepository.findByProviderAndProviderId(user.getProvider(), user.getProviderId())
+                        .orElseGet(() -> userRepository.findByEmail(user.getEmail())
+                                .orElseThrow(() -> new OAuth2AuthenticationProcessingException(
+                                        "Could not register the " + user.getProvider() + " account, please try again."))));
+        if(!existingUser.getProvider().equals(user.getProvider())) {
+            throw new OAuth2AuthenticationProcessingException("Looks like you're signed up with " +
+                    existingUser.getProvider() + " account. Please use your " + existingUser.getProvider() +
+                    " account to login.");
+        }
+        return updateExistingUser(existingUser, oAuth2UserInfo);
     }
 
+    /*
+      A changed name or picture is left to the ProfileRefreshQueue. A changed provider id is
+      written straight away, since the next login looks the user up by it.
+    */
     User updateExistingUser(User existingUser, OAuth2UserInfo oAuth2UserInfo) {
+        if(Objects.equals(existingUser.getName(), oAuth2UserInfo.getName())
+                && Objects.equals(existingUser.getImageUrl(), oAuth2UserInfo.getImageUrl())
+                && Objects.equals(existingUser.getProviderId(), oAuth2UserInfo.getId())) {
+            return existingUser;
+        }
+
+        if(Objects.equals(existingUser.getProviderId(), oAuth2UserInfo.getId())
+                && profileRefreshQueue.enqueue(existingUser, oAuth2UserInfo.getName(), oAuth2UserInfo.getImageUrl())) {
+            existingUser.setName(oAuth2UserInfo.getName());
+            existingUser.setImageUrl(oAuth2UserInfo.getImageUrl());
+            return existingUser;
+        }
+
+        profileRefreshQueue.writeThrough(existingUser.getId(), () ->
+                userRepository.updateProviderProfile(existingUser.getId(), oAuth2UserInfo.getName(),
+                        oAuth2UserInfo.getImageUrl(), oAuth2UserInfo.getId()));
         existingUser.setName(oAuth2UserInfo.getName());
         existingUser.setImageUrl(oAuth2UserInfo.getImageUrl());
-        return userRepository.save(existingUser);
+        existingUser.setProviderId(oAuth2UserInfo.getId());
+        if(existingUser.getVersion() != null) {
+            existingUser.setVersion(existingUser.getVersion() + 1);
+        }
+        userPrincipalCache.invalidate(existingUser);
+        return existingUser;
     }
 
 }
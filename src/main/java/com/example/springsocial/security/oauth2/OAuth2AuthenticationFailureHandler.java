@@ -1,5 +1,7 @@
 package com.example.springsocial.security.oauth2;
 
+import com.example.springsocial.security.AuthEvent;
+import com.example.springsocial.security.AuthEventLog;
 import com.example.springsocial.util.CookieUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.AuthenticationException;
@@ -21,8 +23,14 @@ public class OAuth2AuthenticationFailureHandler extends SimpleUrlAuthenticationF
     @Autowired
     HttpCookieOAuth2AuthorizationRequestRepository httpCookieOAuth2AuthorizationRequestRepository;
 
+    @Autowired
+    AuthEventLog authEventLog;
+
     @Override
     public void onAuthenticationFailure(HttpServletRequest request, HttpServletResponse response, AuthenticationException exception) throws IOException, ServletException {
+        authEventLog.record(AuthEvent.Type.OAUTH2_LOGIN_FAILED, null, null, request.getRemoteAddr(),
+                exception.getLocalizedMessage());
+
         String targetUrl = CookieUtils.getCookie(request, REDIRECT_URI_PARAM_COOKIE_NAME)
                 .map(Cookie::getValue)
                 .orElse(("/"));
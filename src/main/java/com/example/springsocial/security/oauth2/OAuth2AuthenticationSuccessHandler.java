@@ -2,10 +2,14 @@ package com.example.springsocial.security.oauth2;
 
 import com.example.springsocial.config.AppProperties;
 import com.example.springsocial.exception.BadRequestException;
+import com.example.springsocial.security.AuthEvent;
+import com.example.springsocial.security.AuthEventLog;
 import com.example.springsocial.security.TokenProvider;
+import com.example.springsocial.security.UserPrincipal;
 import com.example.springsocial.util.CookieUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
 import org.springframework.security.web.authentication.SimpleUrlAuthenticationSuccessHandler;
 import org.springframework.stereotype.Component;
 import org.springframework.web.util.UriComponentsBuilder;
@@ -28,18 +32,23 @@ public class OAuth2AuthenticationSuccessHandler extends SimpleUrlAuthenticationS
 
     private HttpCookieOAuth2AuthorizationRequestRepository httpCookieOAuth2AuthorizationRequestRepository;
 
+    private AuthEventLog authEventLog;
+
 
     @Autowired
     OAuth2AuthenticationSuccessHandler(TokenProvider tokenProvider, AppProperties appProperties,
-                                       HttpCookieOAuth2AuthorizationRequestRepository httpCookieOAuth2AuthorizationRequestRepository) {
+                                       HttpCookieOAuth2AuthorizationRequestRepository httpCookieOAuth2AuthorizationRequestRepository,
+                                       AuthEventLog authEventLog) {
         this.tokenProvider = tokenProvider;
         this.appProperties = appProperties;
         this.httpCookieOAuth2AuthorizationRequestRepository = httpCookieOAuth2AuthorizationRequestRepository;
+        this.authEventLog = authEventLog;
     }
 
     @Override
     public void onAuthenticationSuccess(HttpServletRequest request, HttpServletResponse response, Authentication authentication) throws IOException, ServletException {
         String targetUrl = determineTargetUrl(request, response, authentication);
+        recordLogin(request, authentication);
 
         if (response.isCommitted()) {
             logger.debug("Response has already been committed. Unable to redirect to " + targetUrl);
@@ -67,6 +76,19 @@ public class OAuth2AuthenticationSuccessHandler extends SimpleUrlAuthenticationS
                 .build().toUriString();
     }
 
+    private void recordLogin(HttpServletRequest request, Authentication authentication) {
+        UserPrincipal userPrincipal = authentication.getPrincipal() instanceof UserPrincipal
+                ? (UserPrincipal) authentication.getPrincipal()
+                : null;
+        String provider = authentication instanceof OAuth2AuthenticationToken
+                ? ((OAuth2AuthenticationToken) authentication).getAuthorizedClientRegistrationId()
+                : null;
+        authEventLog.record(AuthEvent.Type.OAUTH2_LOGIN_SUCCEEDED,
+                userPrincipal != null ? userPrincipal.getId() : null,
+                userPrincipal != null ? userPrincipal.getEmail() : null,
+                request.getRemoteAddr(), provider);
+    }
+
     protected void clearAuthenticationAttributes(HttpServletRequest request, HttpServletResponse response) {
         super.clearAuthenticationAttributes(request);
         httpCookieOAuth2AuthorizationRequestRepository.removeAuthorizationRequestCookies(request, response);
@@ -0,0 +1,159 @@
+package com.example.springsocial.security.oauth2;
+
+import com.example.springsocial.config.AppProperties;
+import com.example.springsocial.model.User;
+import com.example.springsocial.repository.UserRepository;
+import com.example.springsocial.repository.UserRepositoryCustom.ProviderProfile;
+import com.example.springsocial.security.UserPrincipalCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind queue for the name and picture an OAuth2 provider reports on login.
+ *
+ * A login only records the latest profile per user; a background flush writes whatever is
+ * waiting in JDBC batches, so the OAuth2 redirect does not wait on the database. Repeated logins
+ * before a flush coalesce into one write, and rows that already hold the values are skipped by
+ * the update itself. Until the flush, the user's stored profile, as served by {@code /user/me},
+ * is up to {@code flushMsec} behind. Pending profiles are written on shutdown.
+ */
+@Component
+public class ProfileRefreshQueue implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProfileRefreshQueue.class);
+
+    private final UserRepository userRepository;
+    private final UserPrincipalCache userPrincipalCache;
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxPending;
+
+    private final Map<Long, ProviderProfile> pending = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public ProfileRefreshQueue(UserRepository userRepository, UserPrincipalCache userPrincipalCache,
+                               AppProperties appProperties) {
+        this.userRepository = userRepository;
+        this.userPrincipalCache = userPrincipalCache;
+        this.enabled = appProperties.getProfileRefresh().isEnabled();
+        this.batchSize = Math.max(1, appProperties.getProfileRefresh().getBatchSize());
+        this.maxPending = appProperties.getProfileRefresh().getMaxPending();
+    }
+
+    /**
+     * Queues the user's new name and picture. Returns false if the queue is disabled, full or shut
+     * down, in which case the caller has to write them itself.
+     */
+    public boolean enqueue(User user, String name, String imageUrl) {
+        if (!enabled || closed) {
+            return false;
+        }
+
+        Long id = user.getId();
+        if (pending.size() >= maxPending && !pending.containsKey(id)) {
+            return false;
+        }
+        if (pending.put(id, new ProviderProfile(id, user.getEmail(), name, imageUrl)) != null) {
+            coalesced.increment();
+        }
+        return true;
+    }
+
+    /**
+     * Drops anything queued for the user and runs {@code write}, for a caller writing the profile
+     * directly. Holds the flush lock meanwhile, so that older values, whether still queued or in a
+     * batch being flushed, cannot overwrite the direct write afterwards.
+     */
+    public synchronized void writeThrough(Long id, Runnable write) {
+        pending.remove(id);
+        write.run();
+    }
+
+    @Scheduled(fixedDelayString = "${app.profileRefresh.flushMsec:1000}",
+            initialDelayString = "${app.profileRefresh.flushMsec:1000}")
+    public synchronized void flush() {
+        while (!pending.isEmpty()) {
+            List<ProviderProfile> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+            Iterator<Long> ids = pending.keySet().iterator();
+            while (ids.hasNext() && batch.size() < batchSize) {
+                ProviderProfile profile = pending.remove(ids.next());
+                if (profile != null) {
+                    batch.add(profile);
+                }
+            }
+            if (batch.isEmpty() || !write(batch)) {
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        closed = true;
+        flush();
+        if (!pending.isEmpty()) {
+            logger.warn("Dropping {} OAuth2 profile refreshes that could not be written on shutdown", pending.size());
+        }
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("auth.oauth2.profile.refresh.pending", pending, Map::size)
+                .description("Profile refreshes waiting to be written")
+                .register(registry);
+        FunctionCounter.builder("auth.oauth2.profile.refresh.coalesced", coalesced, LongAdder::sum)
+                .description("Profile refreshes replaced by a newer one for the same user before being written")
+                .register(registry);
+        FunctionCounter.builder("auth.oauth2.profile.refresh.written", written, LongAdder::sum)
+                .description("Rows updated by profile refresh batches")
+                .register(registry);
+        FunctionCounter.builder("auth.oauth2.profile.refresh.failures", failed, LongAdder::sum)
+                .description("Profile refresh batches that failed and were queued again")
+                .register(registry);
+    }
+
+    private boolean write(List<ProviderProfile> batch) {
+        try {
+            written.add(userRepository.updateProviderProfiles(batch));
+        } catch (RuntimeException ex) {
+            failed.increment();
+            logger.warn("Could not write {} OAuth2 profile refreshes, will retry", batch.size(), ex);
+            // Anything queued for the same users in the meantime is newer and wins
+            for (ProviderProfile profile : batch) {
+                pending.putIfAbsent(profile.getId(), profile);
+            }
+            return false;
+        }
+
+        for (ProviderProfile profile : batch) {
+            User user = new User();
+            user.setId(profile.getId());
+            user.setEmail(profile.getEmail());
+            userPrincipalCache.invalidate(user);
+        }
+        return true;
+    }
+}
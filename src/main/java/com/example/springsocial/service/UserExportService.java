@@ -0,0 +1,115 @@
+package com.example.springsocial.service;
+
+import com.example.springsocial.config.AppProperties;
+import com.example.springsocial.repository.UserExportRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes every user after a given id as NDJSON or CSV, one keyset page at a time.
+ *
+ * Only one page is in memory at once and it is flushed to the client before the next is read,
+ * so the export runs in constant memory whatever the size of the table. Rows come out in id
+ * order and every row carries its id: an interrupted export resumes by asking for the users
+ * after the last id received. Passwords are never exported.
+ */
+@Service
+public class UserExportService {
+
+    static final String CSV_HEADER = "id,name,email,email_verified,image_url,provider,provider_id";
+
+    private final UserExportRepository userExportRepository;
+    private final ObjectMapper objectMapper;
+    private final int pageSize;
+
+    public UserExportService(UserExportRepository userExportRepository, ObjectMapper objectMapper,
+                             AppProperties appProperties) {
+        this.userExportRepository = userExportRepository;
+        this.objectMapper = objectMapper;
+        this.pageSize = Math.max(1, appProperties.getUserExport().getPageSize());
+    }
+
+    /**
+     * Returns the number of users written.
+     */
+    public long exportUsers(OutputStream output, boolean csv, long afterId) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        // Rows are separated by the newline writeJson adds, and only writer.flush() reaches the client
+        JsonGenerator json = csv ? null : objectMapper.getFactory().createGenerator(writer)
+                .setRootValueSeparator(null)
+                .disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+        if (csv) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        long written = 0;
+        long after = afterId;
+        List<UserExportRepository.Row> page;
+        do {
+            page = userExportRepository.findPageAfter(after, pageSize);
+            for (UserExportRepository.Row row : page) {
+                if (csv) {
+                    writeCsv(writer, row);
+                } else {
+                    writeJson(json, row);
+                }
+                after = row.getId();
+            }
+            written += page.size();
+            if (json != null) {
+                json.flush();
+            }
+            writer.flush();
+        } while (page.size() == pageSize);
+        return written;
+    }
+
+    private static void writeJson(JsonGenerator json, UserExportRepository.Row row) throws IOException {
+        json.writeStartObject();
+        json.writeNumberField("id", row.getId());
+        json.writeStringField("name", row.getName());
+        json.writeStringField("email", row.getEmail());
+        json.writeBooleanField("emailVerified", row.isEmailVerified());
+        json.writeStringField("imageUrl", row.getImageUrl());
+        json.writeStringField("provider", row.getProvider());
+        json.writeStringField("providerId", row.getProviderId());
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+    private static void writeCsv(Writer writer, UserExportRepository.Row row) throws IOException {
+        writer.write(Long.toString(row.getId()));
+        writer.write(',');
+        writeQuoted(writer, row.getName());
+        writer.write(',');
+        writeQuoted(writer, row.getEmail());
+        writer.write(',');
+        writer.write(Boolean.toString(row.isEmailVerified()));
+        writer.write(',');
+        writeQuoted(writer, row.getImageUrl());
+        writer.write(',');
+        writeQuoted(writer, row.getProvider());
+        writer.write(',');
+        writeQuoted(writer, row.getProviderId());
+        writer.write('\n');
+    }
+
+    // Null is written as an empty field, everything else quoted
+    private static void writeQuoted(Writer writer, String value) throws IOException {
+        if (value != null) {
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+}
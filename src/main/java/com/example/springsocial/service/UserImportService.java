@@ -0,0 +1,277 @@
+package com.example.springsocial.service;
+
+import com.example.springsocial.config.AppProperties;
+import com.example.springsocial.exception.BadRequestException;
+import com.example.springsocial.payload.UserImportResult;
+import com.example.springsocial.repository.UserCopyRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Imports local users from NDJSON or CSV, one chunk at a time.
+ *
+ * Input is read line by line, so memory holds one chunk regardless of the upload size. Each
+ * chunk's passwords are hashed in parallel on a pool of its own, sized below the core count so
+ * an import does not starve /auth/login of CPU or of the login hashing pool, and the chunk is
+ * then written with a single COPY. Invalid lines and emails that are already taken are reported
+ * by line number and skipped; they never fail the rest of the import.
+ */
+@Service
+public class UserImportService {
+
+    public static final String NDJSON = "application/x-ndjson";
+    public static final String CSV = "text/csv";
+
+    static final String CONFLICT = "email already registered";
+
+    private static final Logger logger = LoggerFactory.getLogger(UserImportService.class);
+
+    private static final Pattern EMAIL = Pattern.compile("[^@\\s]+@[^@\\s]+");
+    private static final List<String> CSV_COLUMNS = Arrays.asList("name", "email", "password");
+
+    private final UserCopyRepository userCopyRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final int maxReportedRejections;
+    private final ExecutorService hashingPool;
+
+    public UserImportService(UserCopyRepository userCopyRepository, PasswordEncoder passwordEncoder,
+                             ObjectMapper objectMapper, AppProperties appProperties) {
+        AppProperties.BulkImport settings = appProperties.getBulkImport();
+        this.userCopyRepository = userCopyRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.objectMapper = objectMapper;
+        this.chunkSize = settings.getChunkSize();
+        this.maxReportedRejections = settings.getMaxReportedRejections();
+
+        int threads = settings.getHashingThreads() > 0
+                ? settings.getHashingThreads()
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.hashingPool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "user-import-hashing-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public UserImportResult importUsers(InputStream input, String contentType) throws IOException {
+        boolean csv = contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith(CSV);
+        UserImportResult result = new UserImportResult();
+        List<ParsedRow> chunk = new ArrayList<>(chunkSize);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            int[] columns = csv ? csvColumns(reader.readLine()) : null;
+            long lineNumber = csv ? 1 : 0;
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+
+                ParsedRow row;
+                try {
+                    row = csv ? parseCsv(lineNumber, line, columns) : parseJson(lineNumber, line);
+                } catch (IllegalArgumentException ex) {
+                    result.setInvalid(result.getInvalid() + 1);
+                    reject(result, lineNumber, null, ex.getMessage());
+                    continue;
+                }
+
+                String problem = validate(row);
+                if (problem != null) {
+                    result.setInvalid(result.getInvalid() + 1);
+                    reject(result, lineNumber, row.email, problem);
+                    continue;
+                }
+
+                chunk.add(row);
+                if (chunk.size() >= chunkSize) {
+                    load(chunk, result);
+                    chunk.clear();
+                }
+            }
+        }
+        load(chunk, result);
+
+        logger.info("User import finished: {} imported, {} conflicts, {} invalid",
+                result.getImported(), result.getConflicts(), result.getInvalid());
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashingPool.shutdownNow();
+    }
+
+    private void load(List<ParsedRow> chunk, UserImportResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        List<CompletableFuture<UserCopyRepository.Row>> hashed = new ArrayList<>(chunk.size());
+        for (ParsedRow row : chunk) {
+            hashed.add(CompletableFuture.supplyAsync(() -> new UserCopyRepository.Row(
+                    row.line, row.name, row.email, passwordEncoder.encode(row.password)), hashingPool));
+        }
+        List<UserCopyRepository.Row> rows = new ArrayList<>(chunk.size());
+        hashed.forEach(future -> rows.add(future.join()));
+
+        Set<String> inserted;
+        try {
+            inserted = userCopyRepository.copyLocalUsers(rows);
+        } catch (SQLException | IOException ex) {
+            throw new IllegalStateException("Could not copy users into the database", ex);
+        }
+
+        for (UserCopyRepository.Row row : rows) {
+            // The first row for an email is the one that was inserted, any later one is a conflict
+            if (inserted.remove(row.getEmail())) {
+                result.setImported(result.getImported() + 1);
+            } else {
+                result.setConflicts(result.getConflicts() + 1);
+                reject(result, row.getLine(), row.getEmail(), CONFLICT);
+            }
+        }
+    }
+
+    private void reject(UserImportResult result, long line, String email, String reason) {
+        if (result.getRejections().size() < maxReportedRejections) {
+            result.getRejections().add(new UserImportResult.Rejection(line, email, reason));
+        } else {
+            result.setRejectionsTruncated(true);
+        }
+    }
+
+    private ParsedRow parseJson(long lineNumber, String line) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("not valid JSON");
+        }
+        if (!node.isObject()) {
+            throw new IllegalArgumentException("not a JSON object");
+        }
+        return new ParsedRow(lineNumber, node.path("name").asText(null),
+                node.path("email").asText(null), node.path("password").asText(null));
+    }
+
+    private static ParsedRow parseCsv(long lineNumber, String line, int[] columns) {
+        List<String> fields = splitCsv(line);
+        String[] values = new String[CSV_COLUMNS.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = columns[i] < fields.size() ? fields.get(columns[i]) : null;
+        }
+        return new ParsedRow(lineNumber, values[0], values[1], values[2]);
+    }
+
+    private static int[] csvColumns(String header) {
+        if (header == null) {
+            throw new BadRequestException("CSV input must start with a header line.");
+        }
+
+        List<String> names = new ArrayList<>();
+        splitCsv(header).forEach(name -> names.add(name.trim().toLowerCase(Locale.ROOT)));
+        int[] columns = new int[CSV_COLUMNS.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = names.indexOf(CSV_COLUMNS.get(i));
+            if (columns[i] < 0) {
+                throw new BadRequestException("CSV header must name the columns " + CSV_COLUMNS + ".");
+            }
+        }
+        return columns;
+    }
+
+    /*
+      RFC 4180 fields on a single line: quoted fields may contain commas and doubled quotes,
+      but records cannot span lines.
+    */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String validate(ParsedRow row) {
+        if (isBlank(row.name) || isBlank(row.email) || isBlank(row.password)) {
+            return "name, email and password are required";
+        }
+        if (!EMAIL.matcher(row.email).matches()) {
+            return "not a valid email address";
+        }
+        if ((row.name + row.email + row.password).indexOf('\0') >= 0) {
+            return "contains a NUL character";
+        }
+        return null;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private static final class ParsedRow {
+        private final long line;
+        private final String name;
+        private final String email;
+        private final String password;
+
+        private ParsedRow(long line, String name, String email, String password) {
+            this.line = line;
+            this.name = name == null ? null : name.trim();
+            this.email = email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+            this.password = password;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.springsocial.util;
+
+/**
+ * Hands out ids on the application side, ahead of the insert that uses them.
+ */
+public interface IdAllocator {
+
+    long nextId();
+}
@@ -0,0 +1,36 @@
+package com.example.springsocial.util;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Pooled-lo ids from a database sequence that steps by {@code blockSize}: each {@code nextval}
+ * reserves the block {@code nextval .. nextval + blockSize - 1}, which is then handed out from
+ * memory. Every caller sharing the sequence this way, or through Hibernate's pooled-lo optimizer,
+ * draws from a disjoint block.
+ */
+public final class PooledIdAllocator implements IdAllocator {
+
+    private final int blockSize;
+    private final LongSupplier nextval;
+
+    private long next;
+    private long remaining;
+
+    public PooledIdAllocator(int blockSize, LongSupplier nextval) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        this.blockSize = blockSize;
+        this.nextval = nextval;
+    }
+
+    @Override
+    public synchronized long nextId() {
+        if (remaining == 0) {
+            next = nextval.getAsLong();
+            remaining = blockSize;
+        }
+        remaining--;
+        return next++;
+    }
+}
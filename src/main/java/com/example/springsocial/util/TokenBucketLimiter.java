@@ -0,0 +1,170 @@
+package com.example.springsocial.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory token buckets, one per key, refilled continuously at a fixed rate.
+ *
+ * Keys are spread over independently locked stripes. Each stripe also keeps a timing wheel of
+ * its keys, slotted by the time they become idle, so {@link #evictIdle(long)} only looks at the
+ * slots that came due since the last call instead of scanning every bucket. A bucket is only
+ * evicted once it has been idle long enough to refill completely, so eviction never lets a
+ * caller in earlier than keeping the bucket would have.
+ */
+public final class TokenBucketLimiter {
+
+    private static final int STRIPES = 16;
+
+    private final double capacity;
+    private final double tokensPerMsec;
+    private final long idleMsec;
+    private final long tickMsec;
+    private final int wheelSize;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    /**
+     * @param capacity      tokens a new bucket starts with, and the most it can hold
+     * @param tokensPerMinute refill rate
+     * @param idleMsec      how long a bucket must go unused before it is evicted
+     * @param tickMsec      granularity of the timing wheel, normally the interval between {@link #evictIdle(long)} calls
+     */
+    public TokenBucketLimiter(int capacity, int tokensPerMinute, long idleMsec, long tickMsec) {
+        if (capacity < 1 || tokensPerMinute < 1 || tickMsec < 1) {
+            throw new IllegalArgumentException("Capacity, refill rate and tick must be positive");
+        }
+
+        this.capacity = capacity;
+        this.tokensPerMsec = tokensPerMinute / 60000.0;
+        this.idleMsec = Math.max(idleMsec, (long) Math.ceil(capacity / tokensPerMsec));
+        this.tickMsec = tickMsec;
+        this.wheelSize = (int) ((this.idleMsec + tickMsec - 1) / tickMsec) + 1;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Takes a token from the key's bucket. Returns 0 if one was available, otherwise the
+     * number of milliseconds until the next token; nothing is taken in that case.
+     */
+    public long tryAcquire(String key, long now) {
+        Stripe stripe = stripeFor(key);
+        synchronized (stripe) {
+            Bucket bucket = stripe.buckets.get(key);
+            if (bucket == null) {
+                bucket = new Bucket(capacity, now);
+                stripe.buckets.put(key, bucket);
+                stripe.schedule(key, now + idleMsec);
+            }
+
+            bucket.refill(now);
+            bucket.lastUsedAt = now;
+            if (bucket.tokens >= 1) {
+                bucket.tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - bucket.tokens) / tokensPerMsec);
+        }
+    }
+
+    /**
+     * Advances every stripe's timing wheel to {@code now} and drops the buckets that have been
+     * idle for at least the idle period. Returns the number of buckets dropped.
+     */
+    public int evictIdle(long now) {
+        int evicted = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                evicted += stripe.advance(now);
+            }
+        }
+        return evicted;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.buckets.size();
+            }
+        }
+        return size;
+    }
+
+    private Stripe stripeFor(String key) {
+        int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    private final class Stripe {
+        private final Map<String, Bucket> buckets = new HashMap<>();
+        private final List<List<String>> wheel = new ArrayList<>(wheelSize);
+        private long currentTick = Long.MIN_VALUE;
+
+        private Stripe() {
+            for (int i = 0; i < wheelSize; i++) {
+                wheel.add(new ArrayList<>());
+            }
+        }
+
+        private void schedule(String key, long deadline) {
+            wheel.get((int) Math.floorMod(deadline / tickMsec, (long) wheelSize)).add(key);
+        }
+
+        /*
+          Each bucket sits in exactly one slot. When its slot comes due, the bucket is dropped if
+          it has been idle for the full period; otherwise it was used since it was slotted and
+          moves to the slot for its new deadline.
+        */
+        private int advance(long now) {
+            long targetTick = now / tickMsec;
+            long fromTick = currentTick == Long.MIN_VALUE
+                    ? targetTick - wheelSize + 1
+                    : Math.max(currentTick + 1, targetTick - wheelSize + 1);
+            currentTick = Math.max(currentTick, targetTick);
+
+            int evicted = 0;
+            for (long tick = fromTick; tick <= targetTick; tick++) {
+                int slot = (int) Math.floorMod(tick, (long) wheelSize);
+                List<String> due = wheel.get(slot);
+                if (due.isEmpty()) {
+                    continue;
+                }
+                wheel.set(slot, new ArrayList<>());
+
+                for (String key : due) {
+                    Bucket bucket = buckets.get(key);
+                    long deadline = bucket.lastUsedAt + idleMsec;
+                    if (deadline <= now) {
+                        buckets.remove(key);
+                        evicted++;
+                    } else {
+                        schedule(key, deadline);
+                    }
+                }
+            }
+            return evicted;
+        }
+    }
+
+    private final class Bucket {
+        private double tokens;
+        private long refilledAt;
+        private long lastUsedAt;
+
+        private Bucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.refilledAt = now;
+        }
+
+        private void refill(long now) {
+            if (now > refilledAt) {
+                tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerMsec);
+                refilledAt = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+-- The users table as Hibernate's ddl-auto: update created it before Flyway took over the schema.
+-- Databases that already have it are baselined at this version (spring.flyway.baseline-on-migrate)
+-- and skip this script, so everything added since lives in later migrations, which have to run
+-- cleanly on databases where ddl-auto: update already created the same objects.
+
+create table users (
+    id             bigserial    not null,
+    name           varchar(255) not null,
+    email          varchar(255) not null,
+    image_url      varchar(255),
+    email_verified boolean      not null,
+    password       varchar(255),
+    provider       varchar(255) not null,
+    provider_id    varchar(255),
+    constraint users_pkey primary key (id),
+    constraint uk6dotkott2kjsp8vw4d0m25fb7 unique (email)
+);
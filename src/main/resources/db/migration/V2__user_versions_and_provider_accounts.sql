@@ -0,0 +1,16 @@
+-- Optimistic locking and OAuth2 provisioning by provider account. ddl-auto: update may already
+-- have added the column (nullable, without a default) and the constraint.
+
+alter table users add column if not exists version bigint;
+update users set version = 0 where version is null;
+alter table users alter column version set default 0;
+alter table users alter column version set not null;
+
+do $$
+begin
+    if not exists (select 1 from pg_constraint
+                   where conname = 'uk_users_provider_account' and conrelid = 'users'::regclass) then
+        alter table users add constraint uk_users_provider_account unique (provider, provider_id);
+    end if;
+end
+$$;
@@ -0,0 +1,22 @@
+-- Token revocation and the shared login throttle store. Both tables may already exist where
+-- ddl-auto: update created them from their entities, with the same names.
+
+create table if not exists revoked_tokens (
+    token_id   varchar(64) not null,
+    user_id    bigint      not null,
+    expires_at timestamp   not null,
+    revoked_at timestamp   not null,
+    constraint revoked_tokens_pkey primary key (token_id)
+);
+
+create index if not exists idx_revoked_tokens_expires_at on revoked_tokens (expires_at);
+create index if not exists idx_revoked_tokens_revoked_at on revoked_tokens (revoked_at);
+
+create table if not exists login_throttle_buckets (
+    bucket_key varchar(400)     not null,
+    tokens     double precision not null,
+    used_at    bigint           not null,
+    constraint login_throttle_buckets_pkey primary key (bucket_key)
+);
+
+create index if not exists idx_login_throttle_buckets_used_at on login_throttle_buckets (used_at);
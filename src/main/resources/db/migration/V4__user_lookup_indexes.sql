@@ -0,0 +1,44 @@
+-- Indexes behind the UserRepository lookups. Databases that ran the old schema.sql already
+-- have users_email_lower_key, hence "if not exists".
+
+-- Emails used to be unique only as typed, so two accounts can differ just by the case of their
+-- email, which the index below does not allow. The account with the lowest id keeps the
+-- address; every other one is moved to a placeholder email that still starts with its id, and
+-- recorded in users_email_conflicts with its original email, to be merged or renamed by hand.
+create table if not exists users_email_conflicts (
+    user_id        bigint       not null,
+    original_email varchar(255) not null,
+    kept_user_id   bigint       not null,
+    resolved_at    timestamp    not null default now(),
+    constraint users_email_conflicts_pkey primary key (user_id)
+);
+
+insert into users_email_conflicts (user_id, original_email, kept_user_id)
+select id, email, kept_user_id
+from (select id, email, min(id) over (partition by lower(email)) as kept_user_id from users) ranked
+where id <> kept_user_id
+on conflict do nothing;
+
+update users u
+set email = left('conflict-' || u.id || '-' || u.email, 255), version = u.version + 1
+from users_email_conflicts c
+where c.user_id = u.id and u.email = c.original_email;
+
+do $$
+declare
+    conflicts bigint;
+begin
+    select count(*) into conflicts from users_email_conflicts;
+    if conflicts > 0 then
+        raise warning '% accounts had an email that differs only in case from an older account''s; '
+            'their emails were changed to conflict-<id>-<email>, see users_email_conflicts', conflicts;
+    end if;
+end
+$$;
+
+-- findByEmail, findCredentialsByEmail and existsByEmail compare lower(email); emails are also
+-- unique regardless of case
+create unique index if not exists users_email_lower_key on users (lower(email));
+
+-- findByProviderAndProviderId is served by the uk_users_provider_account unique index from V2,
+-- and findCredentialsById and findById by the primary key
@@ -0,0 +1,18 @@
+-- Audit trail of logins, signups, OAuth2 callbacks and rejected tokens, written in batches by
+-- AuthEventLog. Partitioned by month so that an old month is detached or dropped as a whole
+-- instead of deleted row by row. AuthEventRepository creates each month's partition ahead of
+-- time; rows outside every monthly partition land in the default one.
+
+create table if not exists auth_events (
+    occurred_at    timestamp   not null,
+    event_type     varchar(32) not null,
+    user_id        bigint,
+    email          varchar(255),
+    remote_address varchar(64),
+    detail         varchar(255)
+) partition by range (occurred_at);
+
+create table if not exists auth_events_default partition of auth_events default;
+
+create index if not exists idx_auth_events_occurred_at on auth_events (occurred_at);
+create index if not exists idx_auth_events_user_id on auth_events (user_id, occurred_at);
@@ -0,0 +1,12 @@
+-- The ES256 key ring, shared by every node so that any of them verifies tokens the others
+-- signed and publishes the same JWKS. A key is published as soon as it is stored and signs from
+-- not_before on, in epoch milliseconds like login_throttle_buckets.used_at so that nodes in other
+-- time zones agree. private_key is the PKCS#8 key encrypted with app.auth.signingKeySecret.
+
+create table if not exists signing_keys (
+    kid         varchar(64) not null,
+    not_before  bigint      not null,
+    public_key  bytea       not null,
+    private_key bytea       not null,
+    constraint signing_keys_pkey primary key (kid)
+);
@@ -0,0 +1,8 @@
+-- When each user row was inserted, so RegisteredEmails on every node can pick up signups made on
+-- the others. now() is the inserting transaction's start, which is never later than its commit.
+-- timestamptz so that nodes in different time zones compare the same instants. Existing rows get
+-- the migration time, which costs no table rewrite.
+
+alter table users add column if not exists created_at timestamptz not null default now();
+
+create index if not exists idx_users_created_at on users (created_at);
@@ -0,0 +1,112 @@
+package com.example.springsocial.config;
+
+import com.example.springsocial.model.AuthProvider;
+import com.example.springsocial.model.User;
+import com.example.springsocial.repository.ReadYourWrites;
+import com.example.springsocial.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Uses a second database on the local Postgres as the replica. Nothing replicates into it, so
+ * which copy of a row comes back shows where the query ran.
+ */
+@DataJpaTest(properties = {
+        "app.readReplicas.enabled=true",
+        "app.readReplicas.urls=jdbc:postgresql://localhost:5432/" + ReadReplicaConfigTest.REPLICA_DATABASE
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ReadReplicaConfig.class, ReadYourWrites.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReadReplicaConfigTest {
+
+    static final String REPLICA_DATABASE = "spring_social_replica";
+
+    private static final String EMAIL = "replica-routing@example.com";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private JdbcTemplate replica;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        if (jdbcTemplate.queryForList("select 1 from pg_database where datname = ?", REPLICA_DATABASE).isEmpty()) {
+            jdbcTemplate.execute("create database " + REPLICA_DATABASE);
+        }
+        replica = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:postgresql://localhost:5432/" + REPLICA_DATABASE,
+                dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword()));
+        replica.execute("create table if not exists users (id bigint primary key, email varchar(255), " +
+                "password varchar(255), version bigint)");
+
+        user = new User();
+        user.setName("Replica Routing");
+        user.setEmail(EMAIL);
+        user.setPassword("primary-hash");
+        user.setProvider(AuthProvider.local);
+        user.setEmailVerified(false);
+        user = userRepository.save(user);
+
+        replica.update("insert into users (id, email, password, version) values (?, ?, 'replica-hash', 0)",
+                user.getId(), EMAIL);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from users where email = ?", EMAIL);
+        replica.update("delete from users where email = ?", EMAIL);
+    }
+
+    @Test
+    void readOnlyQueries_ShouldRunOnReplica() {
+        assertThat(userRepository.findCredentialsByEmail(EMAIL).get().getPassword()).isEqualTo("replica-hash");
+        assertThat(userRepository.findCredentialsById(user.getId()).get().getPassword()).isEqualTo("replica-hash");
+    }
+
+    @Test
+    void readsInsideWriteTransaction_ShouldRunOnPrimary() {
+        String password = new TransactionTemplate(transactionManager).execute(
+                status -> userRepository.findCredentialsByEmail(EMAIL).get().getPassword());
+
+        assertThat(password).isEqualTo("primary-hash");
+    }
+
+    @Test
+    void readsOfRecentlyWrittenUser_ShouldRunOnPrimary() {
+        readYourWrites.recordWrite(user);
+
+        assertThat(readYourWrites.readByEmail(EMAIL, () -> userRepository.findCredentialsByEmail(EMAIL))
+                .get().getPassword()).isEqualTo("primary-hash");
+        assertThat(readYourWrites.readById(user.getId(), () -> userRepository.findCredentialsById(user.getId()))
+                .get().getPassword()).isEqualTo("primary-hash");
+    }
+}
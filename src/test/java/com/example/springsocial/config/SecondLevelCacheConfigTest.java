@@ -0,0 +1,106 @@
+package com.example.springsocial.config;
+
+import com.example.springsocial.model.AuthProvider;
+import com.example.springsocial.model.User;
+import com.example.springsocial.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.cache.CacheManager;
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(SecondLevelCacheConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SecondLevelCacheConfigTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CacheManager secondLevelCacheManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Cache cache;
+
+    private User first;
+
+    private User second;
+
+    @BeforeEach
+    void setUp() {
+        cache = entityManagerFactory.getCache();
+        first = userRepository.save(user("first-cached@example.com"));
+        second = userRepository.save(user("second-cached@example.com"));
+        cache.evictAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from users where email in (?, ?)", first.getEmail(), second.getEmail());
+        cache.evictAll();
+    }
+
+    @Test
+    void findById_ShouldCacheEntity() {
+        userRepository.findById(first.getId());
+
+        assertThat(cache.contains(User.class, first.getId())).isTrue();
+    }
+
+    @Test
+    void findByEmail_ShouldResolveNaturalIdThroughCache() {
+        userRepository.findByEmail("First-Cached@Example.com");
+
+        assertThat(cache.contains(User.class, first.getId())).isTrue();
+        assertThat(secondLevelCacheManager.getCache(User.NATURAL_ID_CACHE_REGION).iterator().hasNext()).isTrue();
+    }
+
+    @Test
+    void updateProviderProfile_ShouldEvictOnlyThatUser() {
+        userRepository.findById(first.getId());
+        userRepository.findById(second.getId());
+
+        userRepository.updateProviderProfile(first.getId(), "Renamed", null, null);
+
+        assertThat(cache.contains(User.class, first.getId())).isFalse();
+        assertThat(cache.contains(User.class, second.getId())).isTrue();
+        assertThat(userRepository.findById(first.getId()).get().getName()).isEqualTo("Renamed");
+    }
+
+    @Test
+    void updatePasswordIfUnchanged_ShouldEvictUpdatedUser() {
+        userRepository.findById(first.getId());
+
+        userRepository.updatePasswordIfUnchanged(first.getId(), "hash", "new-hash");
+
+        assertThat(cache.contains(User.class, first.getId())).isFalse();
+        assertThat(userRepository.findById(first.getId()).get().getPassword()).isEqualTo("new-hash");
+    }
+
+    private static User user(String email) {
+        User user = new User();
+        user.setName("Cached");
+        user.setEmail(email);
+        user.setPassword("hash");
+        user.setProvider(AuthProvider.local);
+        return user;
+    }
+}
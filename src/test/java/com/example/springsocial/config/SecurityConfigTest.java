@@ -10,10 +10,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -53,6 +59,45 @@ public class SecurityConfigTest {
                 .andExpect(status().isUnauthorized());
     }
 
+    @Test
+    void publicPaths_shouldNotParseBearerTokens() throws Exception {
+        mockMvc.perform(get("/js/app.js").header("Authorization", "Bearer some.jwt.token"));
+        mockMvc.perform(get("/.well-known/jwks.json").header("Authorization", "Bearer some.jwt.token"));
+
+        verifyNoInteractions(tokenProvider);
+    }
+
+    @Test
+    void login_withUnknownUser_shouldReturnUnauthorizedAfterAsyncCompletion() throws Exception {
+        MvcResult result = mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"nobody@example.com\",\"password\":\"secret\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void jwks_shouldBePublic() throws Exception {
+        mockMvc.perform(get("/.well-known/jwks.json"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void userImport_shouldBeForbiddenForNonAdmins() throws Exception {
+        UserPrincipal userPrincipal = new UserPrincipal(1L, "user@example.com", null,
+                AuthorityUtils.createAuthorityList("ROLE_USER"));
+
+        mockMvc.perform(post("/admin/users/import")
+                        .with(authentication(new UsernamePasswordAuthenticationToken(
+                                userPrincipal, null, userPrincipal.getAuthorities())))
+                        .contentType("application/x-ndjson")
+                        .content("{\"name\":\"A\",\"email\":\"a@example.com\",\"password\":\"secret\"}"))
+                .andExpect(status().isForbidden());
+    }
+
     /*
     @Test
     void protectedEndpoint_shouldBeAccessibleWithMockedUserPrincipal() throws Exception {
@@ -0,0 +1,109 @@
+package com.example.springsocial.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SqlRecorderTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private SqlRecorder sqlRecorder;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        sqlRecorder = new SqlRecorder();
+        sqlRecorder.bindTo(meterRegistry);
+        jdbcTemplate = new JdbcTemplate(sqlRecorder.wrap(dataSource));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SqlRecorder.attach(null);
+    }
+
+    @Test
+    void statements_ShouldBeCountedAgainstTheAttachedRequest() {
+        SqlRecorder.RequestStats stats = new SqlRecorder.RequestStats();
+        SqlRecorder.attach(stats);
+
+        jdbcTemplate.queryForObject("select 1", Integer.class);
+        jdbcTemplate.queryForObject("select ?", Integer.class, 2);
+        jdbcTemplate.execute("select pg_sleep(0.02)");
+
+        assertThat(stats.getStatementCount()).isEqualTo(3);
+        assertThat(stats.getStatementMsec()).isGreaterThanOrEqualTo(20);
+        assertThat(stats.getConnectionHoldMsec()).isGreaterThanOrEqualTo(stats.getStatementMsec());
+    }
+
+    @Test
+    void statements_ShouldNotBeCountedWithoutARequest() {
+        SqlRecorder.RequestStats stats = new SqlRecorder.RequestStats();
+
+        jdbcTemplate.queryForObject("select 1", Integer.class);
+
+        assertThat(stats.getStatementCount()).isZero();
+        assertThat(meterRegistry.get("db.connection.hold").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void connectionHold_ShouldBeRecordedOnceWhenClosedTwice() throws Exception {
+        SqlRecorder.RequestStats stats = new SqlRecorder.RequestStats();
+        SqlRecorder.attach(stats);
+
+        Connection connection = sqlRecorder.wrap(dataSource).getConnection();
+        Thread.sleep(20);
+        connection.close();
+        connection.close();
+
+        assertThat(meterRegistry.get("db.connection.hold").timer().count()).isEqualTo(1);
+        assertThat(stats.getConnectionHoldMsec()).isGreaterThanOrEqualTo(20);
+    }
+
+    @Test
+    void wrappedConnection_ShouldEqualOnlyItself() throws Exception {
+        DataSource wrapped = sqlRecorder.wrap(dataSource);
+        try (Connection first = wrapped.getConnection(); Connection second = wrapped.getConnection()) {
+            assertThat(first).isEqualTo(first).isNotEqualTo(second);
+            assertThat(first.hashCode()).isEqualTo(first.hashCode());
+        }
+    }
+
+    @Test
+    void record_ShouldPublishRequestTotalsPerUri() {
+        SqlRecorder.RequestStats stats = new SqlRecorder.RequestStats();
+        SqlRecorder.attach(stats);
+        jdbcTemplate.queryForObject("select 1", Integer.class);
+        jdbcTemplate.queryForObject("select 1", Integer.class);
+
+        sqlRecorder.record(stats, "/user/me");
+
+        assertThat(meterRegistry.get("db.request.statements").tag("uri", "/user/me").summary().totalAmount())
+                .isEqualTo(2);
+        assertThat(meterRegistry.get("db.request.time").tag("uri", "/user/me").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("db.request.connection.hold").tag("uri", "/user/me").timer()
+                .totalTime(TimeUnit.NANOSECONDS)).isPositive();
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.springsocial.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqlRecordingFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private SqlRecorder sqlRecorder;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        sqlRecorder = new SqlRecorder();
+        sqlRecorder.bindTo(meterRegistry);
+    }
+
+    @Test
+    void doFilter_ShouldAttachStatsOnlyWhileTheRequestIsServed() throws Exception {
+        AtomicReference<SqlRecorder.RequestStats> seen = new AtomicReference<>();
+        MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) {
+                seen.set(SqlRecorder.current());
+            }
+        });
+
+        new SqlRecordingFilter(sqlRecorder, false).doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), chain);
+
+        assertThat(seen.get()).isNotNull();
+        assertThat(SqlRecorder.current()).isNull();
+    }
+
+    @Test
+    void doFilter_ShouldRecordUnderTheMatchedPattern() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/user/me");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/user/me");
+
+        new SqlRecordingFilter(sqlRecorder, false).doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        assertThat(meterRegistry.get("db.request.statements").tag("uri", "/user/me").summary().count()).isEqualTo(1);
+    }
+
+    @Test
+    void doFilter_ShouldRecordUnmatchedRequestsAsUnknown() throws Exception {
+        new SqlRecordingFilter(sqlRecorder, false)
+                .doFilter(new MockHttpServletRequest("GET", "/nope"), new MockHttpServletResponse(), new MockFilterChain());
+
+        assertThat(meterRegistry.get("db.request.statements").tag("uri", "UNKNOWN").summary().count()).isEqualTo(1);
+    }
+
+    @Test
+    void doFilter_ShouldAddHeadersWhenEnabled() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                response.getWriter().write("{}");
+                response.flushBuffer();
+            }
+        });
+
+        new SqlRecordingFilter(sqlRecorder, true).doFilter(new MockHttpServletRequest(), response, chain);
+
+        assertThat(response.getHeader(SqlRecordingFilter.STATEMENTS_HEADER)).isEqualTo("0");
+        assertThat(response.getHeader(SqlRecordingFilter.TIME_HEADER)).isEqualTo("0");
+        assertThat(response.getHeader(SqlRecordingFilter.CONNECTION_HOLD_HEADER)).isEqualTo("0");
+    }
+
+    @Test
+    void doFilter_ShouldNotAddHeadersByDefault() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        new SqlRecordingFilter(sqlRecorder, false).doFilter(new MockHttpServletRequest(), response, new MockFilterChain());
+
+        assertThat(response.getHeader(SqlRecordingFilter.STATEMENTS_HEADER)).isNull();
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.springsocial.config;
+
+import com.example.springsocial.model.AuthProvider;
+import com.example.springsocial.model.User;
+import com.example.springsocial.repository.UserRepository;
+import com.example.springsocial.util.TimeOrderedIdGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class UserIdConfigTest {
+
+    private static User user(String email) {
+        User user = new User();
+        user.setName("Test");
+        user.setEmail(email);
+        user.setProvider(AuthProvider.local);
+        return user;
+    }
+
+    @Test
+    void whenTimeOrderedWithoutNodeId_thenStartupFails() {
+        AppProperties appProperties = new AppProperties();
+        appProperties.getUserIds().setStrategy("time-ordered");
+
+        assertThatThrownBy(() -> new UserIdConfig().timeOrderedIdGenerator(appProperties))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("app.userIds.nodeId");
+    }
+
+    @Nested
+    @DataJpaTest(properties = "app.userIds.strategy=pooled")
+    @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+    @EnableConfigurationProperties(AppProperties.class)
+    @Import(UserIdConfig.class)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    class Pooled {
+
+        @Autowired
+        private UserRepository userRepository;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        // Pooled is the default, so the increment stays at blockSize for the other test contexts
+        @AfterEach
+        void deleteUsers() {
+            jdbcTemplate.update("delete from users where email like 'pooled-%@example.com'");
+        }
+
+        @Test
+        void whenSaveUsers_thenIdsComeFromOneBlock() {
+            assertThat(jdbcTemplate.queryForObject("select cast(increment as bigint) from information_schema.sequences " +
+                    "where sequence_name = 'users_id_seq'", Long.class)).isEqualTo(50);
+
+            long first = userRepository.save(user("pooled-1@example.com")).getId();
+            long second = userRepository.save(user("pooled-2@example.com")).getId();
+            long third = userRepository.save(user("pooled-3@example.com")).getId();
+
+            assertThat(second).isEqualTo(first + 1);
+            assertThat(third).isEqualTo(first + 2);
+        }
+
+        @Test
+        void whenInsertIfAbsent_thenIdsComeFromTheSameBlockAsSave() {
+            long saved = userRepository.save(user("pooled-1@example.com")).getId();
+            long first = userRepository.insertIfAbsent(user("pooled-2@example.com")).orElseThrow();
+            long second = userRepository.insertIfAbsent(user("pooled-3@example.com")).orElseThrow();
+
+            assertThat(first).isEqualTo(saved + 1);
+            assertThat(second).isEqualTo(saved + 2);
+        }
+    }
+
+    @Nested
+    @DataJpaTest(properties = {"app.userIds.strategy=time-ordered", "app.userIds.nodeId=3"})
+    @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+    @EnableConfigurationProperties(AppProperties.class)
+    @Import(UserIdConfig.class)
+    class TimeOrdered {
+
+        @Autowired
+        private UserRepository userRepository;
+
+        @Test
+        void whenSaveUsers_thenIdsAreTimeOrderedWithoutTheSequence() {
+            long first = userRepository.save(user("time-1@example.com")).getId();
+            long second = userRepository.save(user("time-2@example.com")).getId();
+
+            assertThat(second).isGreaterThan(first);
+            assertThat(Duration.between(TimeOrderedIdGenerator.timestampOf(first), Instant.now()))
+                    .isLessThan(Duration.ofMinutes(1));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.springsocial.controller;
+
+import com.example.springsocial.config.AppProperties;
+import com.example.springsocial.service.UserExportService;
+import com.example.springsocial.service.UserImportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class AdminControllerTest {
+
+    @Mock
+    private UserExportService userExportService;
+
+    @Spy
+    private AppProperties appProperties = new AppProperties();
+
+    @InjectMocks
+    private AdminController adminController;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        mockMvc = MockMvcBuilders.standaloneSetup(adminController).build();
+    }
+
+    @Test
+    public void testExportUsers_StreamsWithItsOwnTimeout() throws Exception {
+        appProperties.getUserExport().setTimeoutMsec(7200000);
+        doAnswer(invocation -> {
+            OutputStream output = invocation.getArgument(0);
+            output.write("id,email\n1,a@example.com\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        }).when(userExportService).exportUsers(any(), eq(true), eq(5L));
+
+        MvcResult result = mockMvc.perform(get("/admin/users/export")
+                        .header(HttpHeaders.ACCEPT, UserImportService.CSV)
+                        .param("after", "5"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertEquals(7200000L, result.getRequest().getAsyncContext().getTimeout());
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv;charset=UTF-8"))
+                .andExpect(content().string("id,email\n1,a@example.com\n"));
+    }
+}
@@ -1,19 +1,33 @@
 package com.example.springsocial.controller;
 
 import com.example.springsocial.exception.BadRequestException;
+import com.example.springsocial.exception.TooManyRequestsException;
 import com.example.springsocial.model.User;
 import com.example.springsocial.payload.ApiResponse;
 import com.example.springsocial.payload.AuthResponse;
+import com.example.springsocial.payload.EmailAvailabilityResponse;
 import com.example.springsocial.payload.LoginRequest;
 import com.example.springsocial.payload.SignUpRequest;
+import com.example.springsocial.repository.RegisteredEmails;
 import com.example.springsocial.repository.UserRepository;
+import com.example.springsocial.config.AppProperties;
+import com.example.springsocial.security.AuthEvent;
+import com.example.springsocial.security.AuthEventLog;
+import com.example.springsocial.security.LoginThrottle;
+import com.example.springsocial.security.PasswordHashingExecutor;
+import com.example.springsocial.security.PasswordUpgradeService;
 import com.example.springsocial.security.TokenProvider;
+import com.example.springsocial.security.TokenRevocationService;
+import com.example.springsocial.security.VerifiedToken;
+import com.example.springsocial.security.UserPrincipalCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -23,6 +37,9 @@ import org.springframework.web.context.request.ServletRequestAttributes;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.function.Predicate;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -44,6 +61,28 @@ class AuthControllerTest {
     @Mock
     private TokenProvider tokenProvider;
 
+    @Mock
+    private UserPrincipalCache userPrincipalCache;
+
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+
+    @Mock
+    private PasswordUpgradeService passwordUpgradeService;
+
+    @Mock
+    private LoginThrottle loginThrottle;
+
+    @Mock
+    private AuthEventLog authEventLog;
+
+    @Mock
+    private RegisteredEmails registeredEmails;
+
+    @Spy
+    private PasswordHashingExecutor passwordHashingExecutor =
+            new PasswordHashingExecutor(new AppProperties(), new SimpleMeterRegistry());
+
     @Mock
     private Authentication authentication;
 
@@ -62,22 +101,68 @@ class AuthControllerTest {
                 .thenReturn(authentication);
         when(tokenProvider.createToken(authentication)).thenReturn("mocked-token");
 
-        ResponseEntity<?> response = authController.authenticateUser(loginRequest);
+        ResponseEntity<?> response = authController.authenticateUser(loginRequest, new MockHttpServletRequest()).join();
 
         AuthResponse authResponse = (AuthResponse) response.getBody();
         assertNotNull(authResponse);
         assertEquals("mocked-token", authResponse.getAccessToken());
         assertEquals("Bearer", authResponse.getTokenType());
+        verify(passwordUpgradeService).upgradeIfNeeded(authentication.getPrincipal(), "password");
+        verify(authEventLog).record(AuthEvent.Type.LOGIN_SUCCEEDED, null, "test@example.com", "127.0.0.1", null);
+    }
+
+    @Test
+    void testAuthenticateUser_badCredentials_completesExceptionally() {
+        LoginRequest loginRequest = new LoginRequest();
+        loginRequest.setEmail("test@example.com");
+        loginRequest.setPassword("wrong");
+
+        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
+                .thenThrow(new BadCredentialsException("Bad credentials"));
+
+        CompletionException ex = assertThrows(CompletionException.class,
+                () -> authController.authenticateUser(loginRequest, new MockHttpServletRequest()).join());
+        assertTrue(ex.getCause() instanceof BadCredentialsException);
+        verifyNoInteractions(tokenProvider);
+        verify(authEventLog).record(AuthEvent.Type.LOGIN_FAILED, null, "test@example.com", "127.0.0.1", "Bad credentials");
+    }
+
+    @Test
+    void testAuthenticateUser_throttled_skipsCredentialCheck() {
+        LoginRequest loginRequest = new LoginRequest();
+        loginRequest.setEmail("test@example.com");
+        loginRequest.setPassword("password");
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("203.0.113.7");
+
+        doThrow(new TooManyRequestsException("Too many sign-in attempts. Please retry later.", 12))
+                .when(loginThrottle).check("test@example.com", "203.0.113.7");
+
+        TooManyRequestsException ex = assertThrows(TooManyRequestsException.class,
+                () -> authController.authenticateUser(loginRequest, request));
+        assertEquals("12", ex.getResponseHeaders().getFirst("Retry-After"));
+        verify(authEventLog).record(AuthEvent.Type.LOGIN_THROTTLED, null, "test@example.com", "203.0.113.7", null);
+        verifyNoInteractions(authenticationManager, passwordHashingExecutor);
     }
 
     @Test
     void testRegisterUser_emailAlreadyExists_throwsException() {
         SignUpRequest signUpRequest = new SignUpRequest();
+        signUpRequest.setName("Existing User");
         signUpRequest.setEmail("exists@example.com");
+        signUpRequest.setPassword("rawpassword");
 
-        when(userRepository.existsByEmail("exists@example.com")).thenReturn(true);
+        when(passwordEncoder.encode("rawpassword")).thenReturn("encodedpassword");
+        when(userRepository.insertIfAbsent(any(User.class))).thenReturn(Optional.empty());
 
-        assertThrows(BadRequestException.class, () -> authController.registerUser(signUpRequest));
+        setRequestAttributes();
+        CompletionException ex = assertThrows(CompletionException.class,
+                () -> authController.registerUser(signUpRequest, new MockHttpServletRequest()).join());
+        RequestContextHolder.resetRequestAttributes();
+
+        assertTrue(ex.getCause() instanceof BadRequestException);
+        verify(userRepository, never()).existsByEmail(anyString());
+        verifyNoInteractions(userPrincipalCache);
     }
 
     @Test
@@ -87,21 +172,12 @@ class AuthControllerTest {
         signUpRequest.setEmail("new@example.com");
         signUpRequest.setPassword("rawpassword");
 
-        when(userRepository.existsByEmail("new@example.com")).thenReturn(false);
         when(passwordEncoder.encode("rawpassword")).thenReturn("encodedpassword");
+        when(userRepository.insertIfAbsent(any(User.class))).thenReturn(Optional.of(100L));
 
-        User savedUser = new User();
-        savedUser.setId(100L);
-        savedUser.setName("New User");
-        savedUser.setEmail("new@example.com");
-
-        when(userRepository.save(any(User.class))).thenReturn(savedUser);
-
-        MockHttpServletRequest mockRequest = new MockHttpServletRequest();
-        RequestAttributes requestAttributes = new ServletRequestAttributes(mockRequest);
-        RequestContextHolder.setRequestAttributes(requestAttributes);
+        setRequestAttributes();
 
-        ResponseEntity<?> response = authController.registerUser(signUpRequest);
+        ResponseEntity<?> response = authController.registerUser(signUpRequest, new MockHttpServletRequest()).join();
 
         assertEquals(201, response.getStatusCodeValue());
 
@@ -112,10 +188,89 @@ class AuthControllerTest {
 
         URI expectedUri = ServletUriComponentsBuilder
                 .fromCurrentContextPath().path("/user/me")
-                .buildAndExpand(savedUser.getId()).toUri();
+                .buildAndExpand(100L).toUri();
 
         assertEquals(expectedUri, response.getHeaders().getLocation());
 
+        ArgumentCaptor<User> inserted = ArgumentCaptor.forClass(User.class);
+        verify(userRepository).insertIfAbsent(inserted.capture());
+        assertEquals("encodedpassword", inserted.getValue().getPassword());
+        verify(userPrincipalCache).invalidate(inserted.getValue());
+        verify(userRepository, never()).save(any(User.class));
+
         RequestContextHolder.resetRequestAttributes();
     }
+
+    private static void setRequestAttributes() {
+        MockHttpServletRequest mockRequest = new MockHttpServletRequest();
+        RequestAttributes requestAttributes = new ServletRequestAttributes(mockRequest);
+        RequestContextHolder.setRequestAttributes(requestAttributes);
+    }
+
+    @Test
+    void testLogout_revokesBearerToken() {
+        VerifiedToken verifiedToken = new VerifiedToken(1L, System.currentTimeMillis() + 60000, "jti-1");
+        when(tokenProvider.verifyToken("valid-token")).thenReturn(verifiedToken);
+        when(tokenRevocationService.revoke(verifiedToken)).thenReturn(true);
+
+        ResponseEntity<?> response = authController.logout("Bearer valid-token");
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertTrue(((ApiResponse) response.getBody()).isSuccess());
+        verify(tokenRevocationService).revoke(verifiedToken);
+    }
+
+    @Test
+    void testLogout_withoutValidToken_throwsException() {
+        when(tokenProvider.verifyToken("bad-token")).thenReturn(null);
+
+        assertThrows(BadRequestException.class, () -> authController.logout("Bearer bad-token"));
+        assertThrows(BadRequestException.class, () -> authController.logout(null));
+        verifyNoInteractions(tokenRevocationService);
+    }
+
+    @Test
+    void testCheckEmailAvailability_filterMiss_skipsDatabase() {
+        when(registeredEmails.isRegistered(eq("free@example.com"), any())).thenReturn(false);
+
+        ResponseEntity<?> response = authController.checkEmailAvailability("free@example.com", new MockHttpServletRequest());
+
+        EmailAvailabilityResponse body = (EmailAvailabilityResponse) response.getBody();
+        assertNotNull(body);
+        assertTrue(body.isAvailable());
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCheckEmailAvailability_filterHit_confirmedByDatabase() {
+        when(registeredEmails.isRegistered(eq("Taken@Example.com"), any()))
+                .thenAnswer(invocation -> ((Predicate<String>) invocation.getArgument(1)).test("Taken@Example.com"));
+        when(userRepository.existsByEmail("Taken@Example.com")).thenReturn(true);
+
+        ResponseEntity<?> response = authController.checkEmailAvailability("Taken@Example.com", new MockHttpServletRequest());
+
+        EmailAvailabilityResponse body = (EmailAvailabilityResponse) response.getBody();
+        assertNotNull(body);
+        assertFalse(body.isAvailable());
+        assertEquals("Taken@Example.com", body.getEmail());
+    }
+
+    @Test
+    void testCheckEmailAvailability_throttled_skipsLookup() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("198.51.100.7");
+        doThrow(new TooManyRequestsException("Too many email lookups. Please retry later.", 2))
+                .when(loginThrottle).checkLookup("198.51.100.7");
+
+        assertThrows(TooManyRequestsException.class,
+                () -> authController.checkEmailAvailability("free@example.com", request));
+        verifyNoInteractions(registeredEmails, userRepository);
+    }
+
+    @Test
+    void testCheckEmailAvailability_blankEmail_throwsException() {
+        assertThrows(BadRequestException.class, () -> authController.checkEmailAvailability(" ", new MockHttpServletRequest()));
+        verifyNoInteractions(registeredEmails);
+    }
 }
@@ -0,0 +1,47 @@
+package com.example.springsocial.controller;
+
+import com.example.springsocial.config.AppProperties;
+import com.example.springsocial.security.SigningKeyRing;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+public class JwksControllerTest {
+
+    @Mock
+    private SigningKeyRing signingKeyRing;
+
+    @Spy
+    private AppProperties appProperties = new AppProperties();
+
+    @InjectMocks
+    private JwksController jwksController;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    public void testGetKeySet_IsPubliclyCacheable() {
+        Map<String, Object> jwkSet = Collections.singletonMap("keys", Collections.emptyList());
+        when(signingKeyRing.toJwkSet()).thenReturn(jwkSet);
+        appProperties.getAuth().setKeyRotationMsec(7200000);
+
+        ResponseEntity<Map<String, Object>> response = jwksController.getKeySet();
+
+        assertEquals(jwkSet, response.getBody());
+        assertEquals("max-age=3600, public", response.getHeaders().getFirst(HttpHeaders.CACHE_CONTROL));
+    }
+}
@@ -1,7 +1,9 @@
 package com.example.springsocial.controller;
 
+import com.example.springsocial.config.AppProperties;
 import com.example.springsocial.exception.ResourceNotFoundException;
 import com.example.springsocial.model.User;
+import com.example.springsocial.repository.ReadYourWrites;
 import com.example.springsocial.repository.UserRepository;
 import com.example.springsocial.security.UserPrincipal;
 import org.junit.jupiter.api.BeforeEach;
@@ -9,6 +11,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.security.test.context.support.WithMockUser;
 
 import java.util.Optional;
@@ -22,6 +25,9 @@ public class UserControllerTest {
     @Mock
     private UserRepository userRepository;
 
+    @Spy
+    private ReadYourWrites readYourWrites = new ReadYourWrites(new AppProperties());
+
     @InjectMocks
     private UserController userController;
 
@@ -171,6 +171,15 @@ class LoginRequestTest {
     }
 
     // ===== GETTER/SETTER TESTS =====
+    @Test
+    void setEmail_lowercasesAddress() {
+        LoginRequest request = new LoginRequest();
+
+        request.setEmail("Test.User@Example.COM");
+
+        assertEquals("test.user@example.com", request.getEmail());
+    }
+
     @Test
     void gettersAndSetters_workCorrectly() {
         LoginRequest request = new LoginRequest();
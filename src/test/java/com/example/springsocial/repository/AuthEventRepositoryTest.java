@@ -0,0 +1,51 @@
+package com.example.springsocial.repository;
+
+import com.example.springsocial.security.AuthEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(AuthEventRepository.class)
+public class AuthEventRepositoryTest {
+
+    // Far enough ahead that no other test or running application has written to it
+    private static final YearMonth MONTH = YearMonth.of(2099, 1);
+
+    @Autowired
+    private AuthEventRepository authEventRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void whenInsertAll_thenRowsLandInTheMonthsPartition() {
+        String partition = authEventRepository.createPartition(MONTH);
+        assertThat(authEventRepository.createPartition(MONTH)).isEqualTo(partition);
+
+        authEventRepository.insertAll(Arrays.asList(
+                event(AuthEvent.Type.SIGNUP, 7L, "audit@example.com", MONTH.atDay(3).atTime(12, 0)),
+                event(AuthEvent.Type.TOKEN_REJECTED, null, null, MONTH.plusMonths(1).atDay(1).atTime(0, 0))));
+
+        assertThat(jdbcTemplate.queryForObject("select count(*) from " + partition, Long.class)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from auth_events_default where occurred_at >= ?",
+                Long.class, MONTH.atDay(1).atStartOfDay())).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("select email from auth_events where user_id = 7 and event_type = 'SIGNUP' " +
+                "and occurred_at >= ?", String.class, MONTH.atDay(1).atStartOfDay())).isEqualTo("audit@example.com");
+    }
+
+    private static AuthEvent event(AuthEvent.Type type, Long userId, String email, LocalDateTime at) {
+        return new AuthEvent(type, at.atZone(ZoneId.systemDefault()).toInstant(), userId, email, "203.0.113.7", null);
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.springsocial.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class LoginThrottleRepositoryTest {
+
+    private static final double ONE_PER_SECOND = 0.001;
+
+    @Autowired
+    private LoginThrottleRepository loginThrottleRepository;
+
+    @Test
+    public void whenTryAcquire_thenSpendTokensUntilEmptyAndRefillOverTime() {
+        assertThat(loginThrottleRepository.tryAcquire("email:a@example.com", 2, ONE_PER_SECOND, 0)).containsExactly(1.0);
+        assertThat(loginThrottleRepository.tryAcquire("email:a@example.com", 2, ONE_PER_SECOND, 0)).containsExactly(0.0);
+        assertThat(loginThrottleRepository.tryAcquire("email:a@example.com", 2, ONE_PER_SECOND, 500)).isEmpty();
+        assertThat(loginThrottleRepository.tryAcquire("email:a@example.com", 2, ONE_PER_SECOND, 1000)).containsExactly(0.0);
+    }
+
+    @Test
+    public void whenDeleteIdle_thenKeepRecentlyUsedBuckets() {
+        loginThrottleRepository.tryAcquire("address:old", 2, ONE_PER_SECOND, 1000);
+        loginThrottleRepository.tryAcquire("address:new", 2, ONE_PER_SECOND, 5000);
+
+        assertThat(loginThrottleRepository.deleteIdle(2000)).isEqualTo(1);
+        assertThat(loginThrottleRepository.existsById("address:new")).isTrue();
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.springsocial.repository;
+
+import com.example.springsocial.config.AppProperties;
+import com.example.springsocial.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadYourWritesTest {
+
+    private AppProperties appProperties;
+
+    @BeforeEach
+    void setUp() {
+        appProperties = new AppProperties();
+        appProperties.getReadReplicas().setEnabled(true);
+        appProperties.getReadReplicas().setStickyMsec(60000);
+    }
+
+    @Test
+    void readsOfRecentlyWrittenUser_ShouldBePinnedToPrimary() {
+        ReadYourWrites readYourWrites = new ReadYourWrites(appProperties);
+        readYourWrites.recordWrite(user(1L, "Test@Example.com"));
+
+        assertTrue(readYourWrites.readById(1L, readYourWrites::isPinnedToPrimary));
+        assertTrue(readYourWrites.readByEmail("test@example.com", readYourWrites::isPinnedToPrimary));
+        assertFalse(readYourWrites.readById(2L, readYourWrites::isPinnedToPrimary));
+        assertFalse(readYourWrites.isPinnedToPrimary(), "the pin must not outlive the read");
+    }
+
+    @Test
+    void nestedReads_ShouldKeepOuterPin() {
+        ReadYourWrites readYourWrites = new ReadYourWrites(appProperties);
+        readYourWrites.recordWrite(user(1L, "test@example.com"));
+
+        assertTrue(readYourWrites.readById(1L,
+                () -> readYourWrites.readById(2L, readYourWrites::isPinnedToPrimary)));
+    }
+
+    @Test
+    void expiredWrites_ShouldNoLongerPinAndBeEvicted() {
+        appProperties.getReadReplicas().setStickyMsec(0);
+        ReadYourWrites readYourWrites = new ReadYourWrites(appProperties);
+        readYourWrites.recordWrite(user(1L, "test@example.com"));
+
+        assertFalse(readYourWrites.readById(1L, readYourWrites::isPinnedToPrimary));
+
+        readYourWrites.evictExpired();
+        assertEquals(0, readYourWrites.size());
+    }
+
+    @Test
+    void whenDisabled_ShouldRecordNothing() {
+        ReadYourWrites readYourWrites = new ReadYourWrites(new AppProperties());
+        readYourWrites.recordWrite(user(1L, "test@example.com"));
+
+        assertEquals(0, readYourWrites.size());
+        assertFalse(readYourWrites.readById(1L, readYourWrites::isPinnedToPrimary));
+    }
+
+    private static User user(Long id, String email) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(email);
+        return user;
+    }
+}
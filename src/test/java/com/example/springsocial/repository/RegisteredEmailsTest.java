@@ -0,0 +1,100 @@
+package com.example.springsocial.repository;
+
+import com.example.springsocial.config.AppProperties;
+import com.example.springsocial.model.AuthProvider;
+import com.example.springsocial.model.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({RegisteredEmails.class, UserCopyRepository.class})
+public class RegisteredEmailsTest {
+
+    @Autowired
+    private RegisteredEmails registeredEmails;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserCopyRepository userCopyRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void beforeFirstRebuild_everyCheckGoesToTheLookup() {
+        RegisteredEmails unbuilt = new RegisteredEmails(dataSource, transactionManager, new AppProperties());
+        AtomicInteger lookups = new AtomicInteger();
+
+        assertThat(unbuilt.isReady()).isFalse();
+        assertThat(unbuilt.isRegistered("anyone@example.com", email -> lookups.incrementAndGet() < 0)).isFalse();
+        assertThat(lookups).hasValue(1);
+    }
+
+    @Test
+    public void whenRebuilt_thenExistingEmailsAreLookedUpAndOthersAnsweredByTheFilter() {
+        userRepository.saveAndFlush(user("Existing@Example.com"));
+
+        registeredEmails.rebuild();
+
+        AtomicInteger lookups = new AtomicInteger();
+        assertThat(registeredEmails.isReady()).isTrue();
+        assertThat(registeredEmails.isRegistered("existing@example.com", email -> lookups.incrementAndGet() > 0)).isTrue();
+        assertThat(lookups).hasValue(1);
+        assertThat(registeredEmails.isRegistered("free@example.com", email -> lookups.incrementAndGet() > 0)).isFalse();
+        assertThat(lookups).hasValue(1);
+    }
+
+    @Test
+    public void whenInsertedAfterRebuild_thenFilterPassesTheEmailOn() throws Exception {
+        registeredEmails.rebuild();
+
+        userRepository.insertIfAbsent(user("Signup@Example.com"));
+        userCopyRepository.copyLocalUsers(Arrays.asList(
+                new UserCopyRepository.Row(1, "Imported", "imported@example.com", "{bcrypt}hash")));
+
+        assertThat(registeredEmails.isRegistered("signup@example.com", email -> true)).isTrue();
+        assertThat(registeredEmails.isRegistered("IMPORTED@example.com", email -> true)).isTrue();
+    }
+
+    @Test
+    public void whenPolled_thenEmailsInsertedByOtherNodesAreLookedUp() {
+        registeredEmails.rebuild();
+        // Inserted without going through the repositories, as another node's signup would be
+        jdbcTemplate.update("insert into users (name, email, email_verified, provider, version) " +
+                "values ('Elsewhere', 'Elsewhere@Example.com', false, 'local', 0)");
+
+        registeredEmails.poll();
+
+        AtomicInteger lookups = new AtomicInteger();
+        assertThat(registeredEmails.isRegistered("elsewhere@example.com", email -> lookups.incrementAndGet() > 0)).isTrue();
+        assertThat(lookups).hasValue(1);
+    }
+
+    private static User user(String email) {
+        User user = new User();
+        user.setName("Test");
+        user.setEmail(email);
+        user.setProvider(AuthProvider.local);
+        return user;
+    }
+}
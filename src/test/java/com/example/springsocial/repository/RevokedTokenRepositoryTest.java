@@ -0,0 +1,57 @@
+package com.example.springsocial.repository;
+
+import com.example.springsocial.model.RevokedToken;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class RevokedTokenRepositoryTest {
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    private final Instant now = Instant.now();
+
+    @BeforeEach
+    public void setUp() {
+        revokedTokenRepository.save(revokedToken("live", now.plusSeconds(3600), now.minusSeconds(10)));
+        revokedTokenRepository.save(revokedToken("expired", now.minusSeconds(60), now.minusSeconds(3600)));
+    }
+
+    @Test
+    public void whenFindUnexpired_thenSkipExpiredRevocations() {
+        List<RevokedTokenRepository.RevocationEntry> entries = revokedTokenRepository.findUnexpired(now);
+
+        assertThat(entries).extracting(RevokedTokenRepository.RevocationEntry::getTokenId).containsExactly("live");
+    }
+
+    @Test
+    public void whenFindRevokedSince_thenReturnOnlyRecentRevocations() {
+        assertThat(revokedTokenRepository.findRevokedSince(now.minusSeconds(60), now)).hasSize(1);
+        assertThat(revokedTokenRepository.findRevokedSince(now, now)).isEmpty();
+    }
+
+    @Test
+    public void whenDeleteExpired_thenKeepLiveRevocations() {
+        assertThat(revokedTokenRepository.deleteExpired(now)).isEqualTo(1);
+        assertThat(revokedTokenRepository.existsById("live")).isTrue();
+    }
+
+    private static RevokedToken revokedToken(String tokenId, Instant expiresAt, Instant revokedAt) {
+        RevokedToken revokedToken = new RevokedToken();
+        revokedToken.setTokenId(tokenId);
+        revokedToken.setUserId(1L);
+        revokedToken.setExpiresAt(expiresAt);
+        revokedToken.setRevokedAt(revokedAt);
+        return revokedToken;
+    }
+}
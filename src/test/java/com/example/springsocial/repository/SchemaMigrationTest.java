@@ -0,0 +1,127 @@
+package com.example.springsocial.repository;
+
+import com.example.springsocial.config.UserIdConfig;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The context only starts if Hibernate finds every mapped table, column and sequence in the
+ * migrated schema, as {@link UserIdConfig} sets it up. The migrations are also run into an empty schema, which has to come out the same as
+ * the one the application uses.
+ */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=validate")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(UserIdConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SchemaMigrationTest {
+
+    private static final String FRESH_SCHEMA = "migration_check";
+
+    private static final String TABLES =
+            "('users', 'users_email_conflicts', 'revoked_tokens', 'login_throttle_buckets', 'auth_events', " +
+            "'signing_keys')";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void migrationsOnEmptySchema_ShouldMatchApplicationSchema() {
+        String applicationSchema = jdbcTemplate.queryForObject("select current_schema()", String.class);
+        jdbcTemplate.execute("drop schema if exists " + FRESH_SCHEMA + " cascade");
+        try {
+            Flyway.configure().dataSource(dataSource).schemas(FRESH_SCHEMA).load().migrate();
+
+            assertThat(columns(FRESH_SCHEMA)).isEqualTo(columns(applicationSchema));
+            assertThat(indexes(FRESH_SCHEMA)).isEqualTo(indexes(applicationSchema));
+            assertThat(indexes(FRESH_SCHEMA))
+                    .anyMatch(index -> index.contains("users_email_lower_key") && index.contains("lower((email)::text)"))
+                    .anyMatch(index -> index.contains("uk_users_provider_account") && index.contains("(provider, provider_id)"));
+        } finally {
+            jdbcTemplate.execute("drop schema if exists " + FRESH_SCHEMA + " cascade");
+        }
+    }
+
+    @Test
+    void migrationsOnBaselineSchema_ShouldMoveCaseVariantEmailsAside() {
+        jdbcTemplate.execute("drop schema if exists " + FRESH_SCHEMA + " cascade");
+        try {
+            Flyway.configure().dataSource(dataSource).schemas(FRESH_SCHEMA).target("1").load().migrate();
+            jdbcTemplate.update("insert into " + FRESH_SCHEMA + ".users (id, name, email, email_verified, provider) " +
+                    "values (1, 'First', 'Jane@Example.com', false, 'local'), " +
+                    "(2, 'Second', 'jane@example.com', false, 'local'), " +
+                    "(3, 'Other', 'other@example.com', false, 'local')");
+
+            Flyway.configure().dataSource(dataSource).schemas(FRESH_SCHEMA).load().migrate();
+
+            assertThat(jdbcTemplate.queryForList("select email from " + FRESH_SCHEMA + ".users order by id", String.class))
+                    .containsExactly("Jane@Example.com", "conflict-2-jane@example.com", "other@example.com");
+            assertThat(jdbcTemplate.queryForMap("select user_id, original_email, kept_user_id from " +
+                    FRESH_SCHEMA + ".users_email_conflicts"))
+                    .containsEntry("user_id", 2L)
+                    .containsEntry("original_email", "jane@example.com")
+                    .containsEntry("kept_user_id", 1L);
+        } finally {
+            jdbcTemplate.execute("drop schema if exists " + FRESH_SCHEMA + " cascade");
+        }
+    }
+
+    /*
+      A database that ddl-auto: update kept up to date has every table already, but no history,
+      so it is baselined at V1 and all later migrations run over the existing objects.
+    */
+    @Test
+    void migrationsOnSchemaCreatedByHibernate_ShouldRunOverExistingObjects() {
+        String applicationSchema = jdbcTemplate.queryForObject("select current_schema()", String.class);
+        jdbcTemplate.execute("drop schema if exists " + FRESH_SCHEMA + " cascade");
+        try {
+            Flyway.configure().dataSource(dataSource).schemas(FRESH_SCHEMA).load().migrate();
+            jdbcTemplate.execute("drop table " + FRESH_SCHEMA + ".flyway_schema_history");
+            jdbcTemplate.execute("drop index " + FRESH_SCHEMA + ".users_email_lower_key");
+            jdbcTemplate.execute("alter table " + FRESH_SCHEMA + ".users alter column version drop not null, " +
+                    "alter column version drop default");
+
+            Flyway.configure().dataSource(dataSource).schemas(FRESH_SCHEMA)
+                    .baselineOnMigrate(true).baselineVersion("1").load().migrate();
+
+            assertThat(columns(FRESH_SCHEMA)).isEqualTo(columns(applicationSchema));
+            assertThat(indexes(FRESH_SCHEMA)).isEqualTo(indexes(applicationSchema));
+        } finally {
+            jdbcTemplate.execute("drop schema if exists " + FRESH_SCHEMA + " cascade");
+        }
+    }
+
+    private List<String> columns(String schema) {
+        return jdbcTemplate.queryForList(
+                "select table_name || '.' || column_name || ' ' || data_type || ' ' || " +
+                "coalesce(character_maximum_length::text, '') || ' ' || is_nullable || ' ' || " +
+                "coalesce(column_default, '') from information_schema.columns " +
+                "where table_schema = ? and table_name in " + TABLES + " order by table_name, column_name",
+                String.class, schema).stream()
+                .map(column -> column.replace(schema + ".", ""))
+                .collect(Collectors.toList());
+    }
+
+    private List<String> indexes(String schema) {
+        return jdbcTemplate.queryForList(
+                "select indexdef from pg_indexes where schemaname = ? and tablename in " + TABLES + " order by indexname",
+                String.class, schema).stream()
+                .map(index -> index.replace(schema + ".", ""))
+                .collect(Collectors.toList());
+    }
+}
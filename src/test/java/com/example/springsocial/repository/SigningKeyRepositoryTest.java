@@ -0,0 +1,41 @@
+package com.example.springsocial.repository;
+
+import com.example.springsocial.repository.SigningKeyRepository.StoredKey;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(SigningKeyRepository.class)
+public class SigningKeyRepositoryTest {
+
+    @Autowired
+    private SigningKeyRepository signingKeyRepository;
+
+    @Test
+    public void whenInsertAndDelete_thenFindAllReturnsKeysInNotBeforeOrder() {
+        signingKeyRepository.lock();
+        signingKeyRepository.insert(new StoredKey("later", Instant.ofEpochMilli(2000), new byte[]{1}, new byte[]{2}));
+        signingKeyRepository.insert(new StoredKey("earlier", Instant.ofEpochMilli(1000), new byte[]{3}, new byte[]{4}));
+
+        List<StoredKey> keys = signingKeyRepository.findAll();
+
+        assertThat(keys).extracting(StoredKey::getKid).containsExactly("earlier", "later");
+        assertThat(keys.get(0).getNotBefore()).isEqualTo(Instant.ofEpochMilli(1000));
+        assertThat(keys.get(0).getPublicKey()).containsExactly(3);
+        assertThat(keys.get(0).getPrivateKey()).containsExactly(4);
+
+        signingKeyRepository.deleteAll(Collections.singletonList("earlier"));
+
+        assertThat(signingKeyRepository.findAll()).extracting(StoredKey::getKid).containsExactly("later");
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.springsocial.repository;
+
+import com.example.springsocial.model.AuthProvider;
+import com.example.springsocial.model.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(UserCopyRepository.class)
+public class UserCopyRepositoryTest {
+
+    @Autowired
+    private UserCopyRepository userCopyRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    public void whenCopyLocalUsers_thenInsertNewEmailsAndSkipConflicts() throws Exception {
+        User existing = new User();
+        existing.setName("Existing");
+        existing.setEmail("existing@example.com");
+        existing.setProvider(AuthProvider.local);
+        userRepository.saveAndFlush(existing);
+
+        Set<String> inserted = userCopyRepository.copyLocalUsers(Arrays.asList(
+                new UserCopyRepository.Row(1, "New, \"Quoted\"", "new@example.com", "{bcrypt}hash"),
+                new UserCopyRepository.Row(2, "Existing", "existing@example.com", "{bcrypt}hash"),
+                new UserCopyRepository.Row(3, "Repeat", "new@example.com", "{bcrypt}other")));
+
+        assertThat(inserted).containsExactly("new@example.com");
+        User imported = userRepository.findByEmail("new@example.com").orElseThrow(AssertionError::new);
+        assertThat(imported.getName()).isEqualTo("New, \"Quoted\"");
+        assertThat(imported.getPassword()).isEqualTo("{bcrypt}hash");
+        assertThat(imported.getProvider()).isEqualTo(AuthProvider.local);
+        assertThat(imported.getEmailVerified()).isFalse();
+    }
+
+    @Test
+    public void whenCopyLocalUsersWithCasingVariant_thenSkipConflict() throws Exception {
+        User existing = new User();
+        existing.setName("Existing");
+        existing.setEmail("existing@example.com");
+        existing.setProvider(AuthProvider.local);
+        userRepository.saveAndFlush(existing);
+
+        Set<String> inserted = userCopyRepository.copyLocalUsers(Arrays.asList(
+                new UserCopyRepository.Row(1, "Existing", "Existing@Example.com", "{bcrypt}hash")));
+
+        assertThat(inserted).isEmpty();
+    }
+
+    @Test
+    public void whenCopyLocalUsersTwiceInOneTransaction_thenStagingTableIsRecreated() throws Exception {
+        userCopyRepository.copyLocalUsers(Arrays.asList(new UserCopyRepository.Row(1, "A", "a@example.com", "h")));
+        Set<String> inserted = userCopyRepository.copyLocalUsers(
+                Arrays.asList(new UserCopyRepository.Row(1, "B", "b@example.com", "h")));
+
+        assertThat(inserted).containsExactly("b@example.com");
+    }
+}
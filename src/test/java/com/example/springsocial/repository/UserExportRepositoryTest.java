@@ -0,0 +1,52 @@
+package com.example.springsocial.repository;
+
+import com.example.springsocial.model.AuthProvider;
+import com.example.springsocial.model.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(UserExportRepository.class)
+public class UserExportRepositoryTest {
+
+    @Autowired
+    private UserExportRepository userExportRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    public void whenFindPageAfter_thenReturnNextUsersInIdOrder() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            User user = new User();
+            user.setName("Export " + i);
+            user.setEmail("export" + i + "@example.com");
+            user.setProvider(AuthProvider.local);
+            user.setPassword("{bcrypt}secret");
+            ids.add(userRepository.saveAndFlush(user).getId());
+        }
+        long before = ids.get(0) - 1;
+
+        List<UserExportRepository.Row> first = userExportRepository.findPageAfter(before, 2);
+        List<UserExportRepository.Row> rest = userExportRepository.findPageAfter(first.get(1).getId(), 10);
+
+        assertThat(first).extracting(UserExportRepository.Row::getId).containsExactly(ids.get(0), ids.get(1));
+        assertThat(rest.stream().map(UserExportRepository.Row::getId).collect(Collectors.toList()))
+                .containsSubsequence(ids.get(2), ids.get(3), ids.get(4))
+                .doesNotContain(ids.get(0), ids.get(1));
+        assertThat(first.get(0).getEmail()).isEqualTo("export0@example.com");
+        assertThat(first.get(0).getProvider()).isEqualTo("local");
+        assertThat(first.get(0).getImageUrl()).isNull();
+    }
+}
@@ -6,10 +6,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.Arrays;
 import java.util.Optional;
 
 @DataJpaTest
@@ -19,6 +21,9 @@ public class UserRepositoryTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
     private User user;
 
     @BeforeEach
@@ -38,6 +43,38 @@ public class UserRepositoryTest {
         assertThat(found.get().getEmail()).isEqualTo(user.getEmail());
     }
 
+    @Test
+    public void whenFindByEmailWithDifferentCase_thenReturnUser() {
+        assertThat(userRepository.findByEmail("JohnDoe@Example.com")).isPresent();
+        assertThat(userRepository.existsByEmail("JOHNDOE@EXAMPLE.COM")).isTrue();
+    }
+
+    @Test
+    public void whenFindCredentials_thenReturnOnlyAuthenticationFields() {
+        UserRepository.Credentials byEmail = userRepository.findCredentialsByEmail("JohnDoe@example.com")
+                .orElseThrow(AssertionError::new);
+        UserRepository.Credentials byId = userRepository.findCredentialsById(user.getId())
+                .orElseThrow(AssertionError::new);
+
+        assertThat(byEmail.getId()).isEqualTo(user.getId());
+        assertThat(byEmail.getEmail()).isEqualTo("johndoe@example.com");
+        assertThat(byEmail.getVersion()).isEqualTo(user.getVersion());
+        assertThat(byId.getEmail()).isEqualTo("johndoe@example.com");
+        assertThat(userRepository.findCredentialsByEmail("nobody@example.com")).isEmpty();
+    }
+
+    @Test
+    public void whenInsertIfAbsentWithDifferentCase_thenSkipped() {
+        User variant = new User();
+        variant.setName("John Doe");
+        variant.setEmail("JohnDoe@Example.com");
+        variant.setPassword("hash");
+        variant.setProvider(AuthProvider.local);
+        variant.setEmailVerified(false);
+
+        assertThat(userRepository.insertIfAbsent(variant)).isEmpty();
+    }
+
     @Test
     public void whenExistsByEmail_thenReturnTrue() {
         Boolean exists = userRepository.existsByEmail(user.getEmail());
@@ -49,4 +86,99 @@ public class UserRepositoryTest {
         Boolean exists = userRepository.existsByEmail("nonexistent@example.com");
         assertThat(exists).isFalse();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void whenUpdatePasswordIfUnchanged_thenOnlyReplaceExpectedHash() {
+        user.setPassword("old-hash");
+        userRepository.saveAndFlush(user);
+
+        assertThat(userRepository.updatePasswordIfUnchanged(user.getId(), "other-hash", "new-hash")).isZero();
+        assertThat(userRepository.updatePasswordIfUnchanged(user.getId(), "old-hash", "new-hash")).isEqualTo(1);
+    }
+
+    @Test
+    public void whenInsertIfAbsent_thenInsertOnceAndReturnId() {
+        User newUser = new User();
+        newUser.setName("Jane Doe");
+        newUser.setEmail("janedoe@example.com");
+        newUser.setPassword("{bcrypt}hash");
+        newUser.setProvider(AuthProvider.local);
+
+        Optional<Long> id = userRepository.insertIfAbsent(newUser);
+
+        assertThat(id).isPresent();
+        User found = userRepository.findById(id.get()).orElseThrow(AssertionError::new);
+        assertThat(found.getEmail()).isEqualTo("janedoe@example.com");
+        assertThat(found.getImageUrl()).isNull();
+        assertThat(found.getEmailVerified()).isFalse();
+        assertThat(found.getVersion()).isZero();
+
+        assertThat(userRepository.insertIfAbsent(newUser)).isEmpty();
+    }
+
+    @Test
+    public void whenInsertIfAbsentForPendingUser_thenReportConflict() {
+        User duplicate = new User();
+        duplicate.setName("Other John");
+        duplicate.setEmail(user.getEmail());
+        duplicate.setProvider(AuthProvider.local);
+
+        assertThat(userRepository.insertIfAbsent(duplicate)).isEmpty();
+    }
+
+    @Test
+    public void whenInsertIfAbsentForTakenProviderAccount_thenReportConflict() {
+        userRepository.saveAndFlush(googleUser("first@example.com"));
+
+        assertThat(userRepository.insertIfAbsent(googleUser("second@example.com"))).isEmpty();
+    }
+
+    @Test
+    public void whenFindByProviderAndProviderId_thenReturnOnlyThatAccount() {
+        userRepository.saveAndFlush(googleUser("google@example.com"));
+
+        assertThat(userRepository.findByProviderAndProviderId(AuthProvider.google, "google-1"))
+                .map(User::getEmail).contains("google@example.com");
+        assertThat(userRepository.findByProviderAndProviderId(AuthProvider.github, "google-1")).isEmpty();
+    }
+
+    @Test
+    public void whenUpdateProviderProfile_thenWriteProfileAndBumpVersion() {
+        User googleUser = userRepository.saveAndFlush(googleUser("google@example.com"));
+
+        assertThat(userRepository.updateProviderProfile(googleUser.getId(), "New Name", "http://example.com/new.jpg", "google-1"))
+                .isEqualTo(1);
+        entityManager.clear();
+        User updated = userRepository.findByProviderAndProviderId(AuthProvider.google, "google-1").orElseThrow(AssertionError::new);
+        assertThat(updated.getName()).isEqualTo("New Name");
+        assertThat(updated.getVersion()).isEqualTo(googleUser.getVersion() + 1);
+    }
+
+    @Test
+    public void whenUpdateProviderProfiles_thenWriteOnlyChangedRowsInOneBatch() {
+        User changed = userRepository.saveAndFlush(googleUser("changed@example.com"));
+        User unchanged = googleUser("unchanged@example.com");
+        unchanged.setProviderId("google-2");
+        unchanged = userRepository.saveAndFlush(unchanged);
+
+        int updated = userRepository.updateProviderProfiles(Arrays.asList(
+                new UserRepositoryCustom.ProviderProfile(changed.getId(), changed.getEmail(), "New Name", null),
+                new UserRepositoryCustom.ProviderProfile(unchanged.getId(), unchanged.getEmail(), "Google User", null)));
+
+        assertThat(updated).isEqualTo(1);
+        entityManager.clear();
+        User reloaded = userRepository.findById(changed.getId()).orElseThrow(AssertionError::new);
+        assertThat(reloaded.getName()).isEqualTo("New Name");
+        assertThat(reloaded.getVersion()).isEqualTo(changed.getVersion() + 1);
+        assertThat(userRepository.findById(unchanged.getId()).map(User::getVersion)).contains(unchanged.getVersion());
+    }
+
+    private static User googleUser(String email) {
+        User googleUser = new User();
+        googleUser.setName("Google User");
+        googleUser.setEmail(email);
+        googleUser.setProvider(AuthProvider.google);
+        googleUser.setProviderId("google-1");
+        return googleUser;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.springsocial.security;
+
+import com.example.springsocial.config.AppProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdminAuthorizerTest {
+
+    @Test
+    void isAdmin_ShouldMatchConfiguredEmailsIgnoringCase() {
+        AppProperties appProperties = new AppProperties();
+        appProperties.getAdmin().setEmails(Arrays.asList(" Admin@Example.com "));
+        AdminAuthorizer adminAuthorizer = new AdminAuthorizer(appProperties);
+
+        assertTrue(adminAuthorizer.isAdmin(principal("admin@example.com")));
+        assertFalse(adminAuthorizer.isAdmin(principal("user@example.com")));
+        assertFalse(adminAuthorizer.isAdmin("anonymousUser"));
+    }
+
+    @Test
+    void isAdmin_ShouldDenyEveryoneByDefault() {
+        AdminAuthorizer adminAuthorizer = new AdminAuthorizer(new AppProperties());
+
+        assertFalse(adminAuthorizer.isAdmin(principal("admin@example.com")));
+    }
+
+    private static UserPrincipal principal(String email) {
+        return new UserPrincipal(1L, email, null, Collections.emptyList());
+    }
+}
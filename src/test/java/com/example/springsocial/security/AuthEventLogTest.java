@@ -0,0 +1,144 @@
+package com.example.springsocial.security;
+
+import com.example.springsocial.config.AppProperties;
+import com.example.springsocial.repository.AuthEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class AuthEventLogTest {
+
+    private static final Instant NOW = Instant.parse("2026-10-18T10:00:00Z");
+
+    private AuthEventRepository authEventRepository;
+    private AppProperties appProperties;
+    private AuthEventLog authEventLog;
+
+    private final List<List<AuthEvent>> batches = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        authEventRepository = mock(AuthEventRepository.class);
+        doAnswer(invocation -> {
+            batches.add(new ArrayList<>(invocation.<List<AuthEvent>>getArgument(0)));
+            return null;
+        }).when(authEventRepository).insertAll(anyList());
+
+        appProperties = new AppProperties();
+        appProperties.getAuthEvents().setCapacity(4);
+        appProperties.getAuthEvents().setLowPriorityFill(0.5);
+        appProperties.getAuthEvents().setBatchSize(3);
+        authEventLog = new AuthEventLog(authEventRepository, appProperties, Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    void flush_ShouldWriteQueuedEventsInBatches() {
+        for (int i = 0; i < 4; i++) {
+            authEventLog.record(AuthEvent.Type.LOGIN_SUCCEEDED, (long) i, "user" + i + "@example.com", "203.0.113.7", null);
+        }
+
+        authEventLog.flush();
+
+        assertEquals(2, batches.size());
+        assertEquals(3, batches.get(0).size());
+        assertEquals(1, batches.get(1).size());
+        assertEquals(NOW, batches.get(0).get(0).getOccurredAt());
+        assertEquals(0, authEventLog.getPendingCount());
+    }
+
+    @Test
+    void record_ShouldDropLowPriorityEventsFirst() {
+        authEventLog.record(AuthEvent.Type.TOKEN_REJECTED, null, null, "198.51.100.1", "/user/me");
+        authEventLog.record(AuthEvent.Type.TOKEN_REJECTED, null, null, "198.51.100.1", "/user/me");
+
+        assertFalse(authEventLog.record(new AuthEvent(AuthEvent.Type.TOKEN_REJECTED, NOW, null, null, null, null)));
+        assertTrue(authEventLog.record(new AuthEvent(AuthEvent.Type.LOGIN_FAILED, NOW, null, "a@example.com", null, null)));
+        assertTrue(authEventLog.record(new AuthEvent(AuthEvent.Type.SIGNUP, NOW, 1L, "b@example.com", null, null)));
+        assertFalse(authEventLog.record(new AuthEvent(AuthEvent.Type.SIGNUP, NOW, 2L, "c@example.com", null, null)));
+
+        assertEquals(2, authEventLog.getDroppedCount());
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        authEventLog.bindTo(registry);
+        assertEquals(1.0, registry.get("auth.events.dropped").tag("priority", "low").functionCounter().count());
+        assertEquals(1.0, registry.get("auth.events.dropped").tag("priority", "high").functionCounter().count());
+    }
+
+    @Test
+    void flush_ShouldRetryAFailedBatchBeforeNewerEvents() {
+        doThrow(new IllegalStateException("down")).doAnswer(invocation -> {
+            batches.add(new ArrayList<>(invocation.<List<AuthEvent>>getArgument(0)));
+            return null;
+        }).when(authEventRepository).insertAll(anyList());
+        authEventLog.record(AuthEvent.Type.SIGNUP, 1L, "first@example.com", null, null);
+
+        authEventLog.flush();
+        assertEquals(1, authEventLog.getPendingCount());
+
+        authEventLog.record(AuthEvent.Type.SIGNUP, 2L, "second@example.com", null, null);
+        authEventLog.flush();
+
+        assertEquals(2, batches.size());
+        assertEquals("first@example.com", batches.get(0).get(0).getEmail());
+        assertEquals("second@example.com", batches.get(1).get(0).getEmail());
+        assertEquals(0, authEventLog.getPendingCount());
+    }
+
+    @Test
+    void getLagMsec_ShouldMeasureTheOldestUnwrittenEvent() {
+        authEventLog.record(new AuthEvent(AuthEvent.Type.SIGNUP, NOW.minusSeconds(3), 1L, null, null, null));
+        authEventLog.record(new AuthEvent(AuthEvent.Type.SIGNUP, NOW.minusSeconds(1), 2L, null, null, null));
+
+        assertEquals(3000, authEventLog.getLagMsec());
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        authEventLog.bindTo(registry);
+        assertEquals(3.0, registry.get("auth.events.lag").timeGauge().value(TimeUnit.SECONDS));
+
+        authEventLog.flush();
+        assertEquals(0, authEventLog.getLagMsec());
+    }
+
+    @Test
+    void record_ShouldTruncateLongDetails() {
+        StringBuilder detail = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            detail.append('x');
+        }
+
+        authEventLog.record(AuthEvent.Type.OAUTH2_LOGIN_FAILED, null, null, null, detail.toString());
+        authEventLog.flush();
+
+        assertEquals(AuthEvent.MAX_DETAIL_LENGTH, batches.get(0).get(0).getDetail().length());
+    }
+
+    @Test
+    void createPartitions_ShouldCoverThisMonthAndTheNext() {
+        authEventLog.createPartitions();
+
+        verify(authEventRepository).createPartition(YearMonth.of(2026, 10));
+        verify(authEventRepository).createPartition(YearMonth.of(2026, 11));
+    }
+
+    @Test
+    void record_ShouldIgnoreEventsWhenDisabled() {
+        appProperties.getAuthEvents().setEnabled(false);
+        authEventLog = new AuthEventLog(authEventRepository, appProperties);
+
+        assertFalse(authEventLog.record(new AuthEvent(AuthEvent.Type.SIGNUP, NOW, 1L, null, null, null)));
+        authEventLog.createPartitions();
+        authEventLog.flush();
+
+        verifyNoInteractions(authEventRepository);
+    }
+}
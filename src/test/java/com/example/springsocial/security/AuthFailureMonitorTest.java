@@ -0,0 +1,93 @@
+package com.example.springsocial.security;
+
+import com.example.springsocial.config.AppProperties;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthFailureMonitorTest {
+
+    private AuthFailureMonitor authFailureMonitor;
+
+    private final Logger monitorLogger = (Logger) LoggerFactory.getLogger(AuthFailureMonitor.class);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @BeforeEach
+    void setUp() {
+        AppProperties appProperties = new AppProperties();
+        appProperties.getAuthFailureLog().setSamplesPerWindow(2);
+        authFailureMonitor = new AuthFailureMonitor(appProperties);
+
+        appender.start();
+        monitorLogger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        monitorLogger.detachAppender(appender);
+    }
+
+    @Test
+    void record_ShouldLogOnlySampledFailuresButCountAll() {
+        for (int i = 0; i < 100; i++) {
+            authFailureMonitor.record(AuthFailureMonitor.Reason.EXPIRED, "Expired JWT token");
+        }
+
+        assertEquals(100, authFailureMonitor.getCount(AuthFailureMonitor.Reason.EXPIRED));
+        assertEquals(2, appender.list.size());
+        assertEquals(Level.WARN, appender.list.get(0).getLevel());
+    }
+
+    @Test
+    void record_ShouldSampleEachReasonSeparately() {
+        for (int i = 0; i < 10; i++) {
+            authFailureMonitor.record(AuthFailureMonitor.Reason.EXPIRED, "Expired JWT token");
+            authFailureMonitor.record(AuthFailureMonitor.Reason.SIGNATURE, "Invalid JWT signature");
+        }
+
+        assertEquals(4, appender.list.size());
+    }
+
+    @Test
+    void logSummary_ShouldReportWindowCountsAndStartNewWindow() {
+        for (int i = 0; i < 10; i++) {
+            authFailureMonitor.record(AuthFailureMonitor.Reason.MALFORMED, "Invalid JWT token");
+        }
+        appender.list.clear();
+
+        authFailureMonitor.logSummary();
+
+        assertEquals(1, appender.list.size());
+        String summary = appender.list.get(0).getFormattedMessage();
+        assertTrue(summary.contains("malformed=10"), summary);
+        assertTrue(summary.contains("8 not logged individually"), summary);
+
+        appender.list.clear();
+        authFailureMonitor.record(AuthFailureMonitor.Reason.MALFORMED, "Invalid JWT token");
+        assertEquals(1, appender.list.size());
+    }
+
+    @Test
+    void logSummary_ShouldStayQuietWithoutFailures() {
+        authFailureMonitor.logSummary();
+
+        assertTrue(appender.list.isEmpty());
+    }
+
+    @Test
+    void record_ShouldLogUnexpectedErrorsWithStackTrace() {
+        IllegalStateException ex = new IllegalStateException("boom");
+
+        authFailureMonitor.record(AuthFailureMonitor.Reason.ERROR, "Could not set user authentication", ex);
+
+        assertEquals(Level.ERROR, appender.list.get(0).getLevel());
+        assertNotNull(appender.list.get(0).getThrowableProxy());
+    }
+}
@@ -1,14 +1,18 @@
 package com.example.springsocial.security;
 
+import com.example.springsocial.config.AppProperties;
 import com.example.springsocial.exception.ResourceNotFoundException;
 import com.example.springsocial.model.User;
+import com.example.springsocial.repository.ReadYourWrites;
 import com.example.springsocial.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
@@ -23,6 +27,12 @@ public class CustomUserDetailsServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Spy
+    private ReadYourWrites readYourWrites = new ReadYourWrites(new AppProperties());
+
+    @Spy
+    private UserPrincipalCache userPrincipalCache = new UserPrincipalCache(new AppProperties(), readYourWrites);
+
     @InjectMocks
     private CustomUserDetailsService customUserDetailsService;
 
@@ -38,43 +48,80 @@ public class CustomUserDetailsServiceTest {
 
     @Test
     public void testLoadUserByUsername_Success() {
-        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
+        when(userRepository.findCredentialsByEmail("test@example.com")).thenReturn(Optional.of(credentials(user)));
 
         UserDetails userDetails = customUserDetailsService.loadUserByUsername("test@example.com");
 
         assertNotNull(userDetails);
         assertEquals("test@example.com", userDetails.getUsername());
-        verify(userRepository, times(1)).findByEmail("test@example.com");
+        verify(userRepository, times(1)).findCredentialsByEmail("test@example.com");
     }
 
     @Test
     public void testLoadUserByUsername_NotFound() {
-        when(userRepository.findByEmail("notfound@example.com")).thenReturn(Optional.empty());
+        when(userRepository.findCredentialsByEmail("notfound@example.com")).thenReturn(Optional.empty());
 
         assertThrows(UsernameNotFoundException.class, () ->
                 customUserDetailsService.loadUserByUsername("notfound@example.com"));
 
-        verify(userRepository, times(1)).findByEmail("notfound@example.com");
+        verify(userRepository, times(1)).findCredentialsByEmail("notfound@example.com");
     }
 
     @Test
     public void testLoadUserById_Success() {
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(userRepository.findCredentialsById(1L)).thenReturn(Optional.of(credentials(user)));
 
         UserDetails userDetails = customUserDetailsService.loadUserById(1L);
 
         assertNotNull(userDetails);
         assertEquals("test@example.com", userDetails.getUsername());
-        verify(userRepository, times(1)).findById(1L);
+        verify(userRepository, times(1)).findCredentialsById(1L);
     }
 
     @Test
     public void testLoadUserById_NotFound() {
-        when(userRepository.findById(2L)).thenReturn(Optional.empty());
+        when(userRepository.findCredentialsById(2L)).thenReturn(Optional.empty());
 
         assertThrows(ResourceNotFoundException.class, () ->
                 customUserDetailsService.loadUserById(2L));
 
-        verify(userRepository, times(1)).findById(2L);
+        verify(userRepository, times(1)).findCredentialsById(2L);
+    }
+
+    @Test
+    public void testLoadUserById_ServedFromCacheUntilInvalidated() {
+        when(userRepository.findCredentialsById(1L)).thenReturn(Optional.of(credentials(user)));
+
+        customUserDetailsService.loadUserById(1L);
+        UserDetails byEmail = customUserDetailsService.loadUserByUsername("test@example.com");
+
+        assertEquals("test@example.com", byEmail.getUsername());
+        verify(userRepository, times(1)).findCredentialsById(1L);
+        verify(userRepository, never()).findCredentialsByEmail(any());
+
+        userPrincipalCache.invalidate(user);
+        customUserDetailsService.loadUserById(1L);
+
+        verify(userRepository, times(2)).findCredentialsById(1L);
+    }
+
+    @Test
+    public void testLoadUserByUsername_MixedCaseRowSharesCacheEntry() {
+        user.setEmail("Test@Example.com");
+        when(userRepository.findCredentialsByEmail("test@example.com")).thenReturn(Optional.of(credentials(user)));
+
+        customUserDetailsService.loadUserByUsername("test@example.com");
+        customUserDetailsService.loadUserById(1L);
+
+        verify(userRepository, never()).findCredentialsById(any());
+
+        userPrincipalCache.invalidate(user);
+        customUserDetailsService.loadUserByUsername("test@example.com");
+
+        verify(userRepository, times(2)).findCredentialsByEmail("test@example.com");
+    }
+
+    private static UserRepository.Credentials credentials(User user) {
+        return new SpelAwareProxyProjectionFactory().createProjection(UserRepository.Credentials.class, user);
     }
-}
\ No newline at end of file
+}
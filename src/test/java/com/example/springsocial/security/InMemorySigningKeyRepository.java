@@ -0,0 +1,55 @@
+package com.example.springsocial.security;
+
+import com.example.springsocial.config.AppProperties;
+import com.example.springsocial.repository.SigningKeyRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Stands in for {@code signing_keys}. Rings built over the same instance behave like nodes
+ * sharing one database.
+ */
+class InMemorySigningKeyRepository extends SigningKeyRepository {
+
+    private final List<StoredKey> keys = new ArrayList<>();
+
+    InMemorySigningKeyRepository() {
+        super(null);
+    }
+
+    SigningKeyRing ring(AppProperties appProperties, Clock clock) {
+        return new SigningKeyRing(appProperties, this, mock(PlatformTransactionManager.class), clock);
+    }
+
+    int size() {
+        return keys.size();
+    }
+
+    @Override
+    public void lock() {
+    }
+
+    @Override
+    public synchronized List<StoredKey> findAll() {
+        List<StoredKey> sorted = new ArrayList<>(keys);
+        sorted.sort(Comparator.comparing(StoredKey::getNotBefore));
+        return sorted;
+    }
+
+    @Override
+    public synchronized void insert(StoredKey key) {
+        keys.add(key);
+    }
+
+    @Override
+    public synchronized void deleteAll(Collection<String> kids) {
+        keys.removeIf(key -> kids.contains(key.getKid()));
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.springsocial.security;
+
+import com.example.springsocial.config.AppProperties;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SignatureException;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtCodecTest {
+
+    private final SecretKey secretKey = Keys.secretKeyFor(SignatureAlgorithm.HS512);
+
+    private final JwtCodec jwtCodec = new JwtCodec(Base64.getEncoder().encodeToString(secretKey.getEncoded()));
+
+    @Test
+    void encode_ShouldProduceTokenReadableByJjwt() {
+        long now = System.currentTimeMillis();
+
+        String token = jwtCodec.encode(7L, now, now + 60000);
+
+        Claims claims = Jwts.parserBuilder().setSigningKey(secretKey).build().parseClaimsJws(token).getBody();
+        assertEquals("7", claims.getSubject());
+        assertEquals((now + 60000) / 1000 * 1000, claims.getExpiration().getTime());
+        assertEquals(now / 1000 * 1000, claims.getIssuedAt().getTime());
+    }
+
+    @Test
+    void encode_ShouldGiveEveryTokenItsOwnJti() {
+        long now = System.currentTimeMillis();
+
+        String first = jwtCodec.encode(7L, now, now + 60000);
+        String second = jwtCodec.encode(7L, now, now + 60000);
+
+        String jti = jwtCodec.decode(first).getTokenId();
+        assertNotNull(jti);
+        assertNotEquals(jti, jwtCodec.decode(second).getTokenId());
+        assertEquals(jti, Jwts.parserBuilder().setSigningKey(secretKey).build().parseClaimsJws(first).getBody().getId());
+    }
+
+    @Test
+    void decode_ShouldReadTokenIssuedByJjwt() {
+        Date expiration = new Date(System.currentTimeMillis() + 60000);
+        String token = Jwts.builder()
+                .setSubject("123")
+                .setIssuedAt(new Date())
+                .setExpiration(expiration)
+                .signWith(secretKey)
+                .compact();
+
+        VerifiedToken verifiedToken = jwtCodec.decode(token);
+
+        assertEquals(123L, verifiedToken.getUserId());
+        assertEquals(expiration.getTime() / 1000 * 1000, verifiedToken.getExpiresAt());
+    }
+
+    @Test
+    void decode_ShouldRejectTamperedSignature() {
+        long now = System.currentTimeMillis();
+        String token = jwtCodec.encode(7L, now, now + 60000);
+        char last = token.charAt(token.length() - 2);
+        String tampered = token.substring(0, token.length() - 2) + (last == 'A' ? 'B' : 'A') + token.charAt(token.length() - 1);
+
+        assertThrows(SignatureException.class, () -> jwtCodec.decode(tampered));
+    }
+
+    @Test
+    void decode_ShouldRejectTamperedPayload() {
+        long now = System.currentTimeMillis();
+        String token = jwtCodec.encode(7L, now, now + 60000);
+        String otherPayload = jwtCodec.encode(8L, now, now + 60000).split("\\.")[1];
+        String[] parts = token.split("\\.");
+
+        assertThrows(SignatureException.class, () -> jwtCodec.decode(parts[0] + "." + otherPayload + "." + parts[2]));
+    }
+
+    @Test
+    void decode_ShouldRejectExpiredToken() {
+        long now = System.currentTimeMillis();
+        String token = jwtCodec.encode(7L, now - 120000, now - 60000);
+
+        assertThrows(ExpiredJwtException.class, () -> jwtCodec.decode(token));
+    }
+
+    @Test
+    void decode_ShouldFallBackForUnexpectedHeader() {
+        String token = Jwts.builder()
+                .setHeaderParam("typ", "JWT")
+                .setSubject("5")
+                .setExpiration(new Date(System.currentTimeMillis() + 60000))
+                .signWith(secretKey)
+                .compact();
+
+        assertEquals(5L, jwtCodec.decode(token).getUserId());
+    }
+
+    @Test
+    void decode_ShouldFallBackForClaimsItCannotScan() {
+        String token = Jwts.builder()
+                .setSubject("9")
+                .claim("name", "Quote \" Inside")
+                .claim("roles", new String[] {"a", "b"})
+                .setExpiration(new Date(System.currentTimeMillis() + 60000))
+                .signWith(secretKey)
+                .compact();
+
+        assertEquals(9L, jwtCodec.decode(token).getUserId());
+    }
+
+    @Test
+    void encode_ShouldRoundTripIdentityClaims() {
+        long now = System.currentTimeMillis();
+
+        String token = jwtCodec.encode(7L, "test@example.com", "ROLE_USER,ROLE_ADMIN", 4L, now, now + 60000);
+        VerifiedToken verifiedToken = jwtCodec.decode(token);
+
+        assertTrue(verifiedToken.hasIdentityClaims());
+        assertEquals("test@example.com", verifiedToken.getEmail());
+        assertEquals(2, verifiedToken.getAuthorities().size());
+        assertEquals("ROLE_ADMIN", verifiedToken.getAuthorities().get(1).getAuthority());
+        assertEquals(4L, verifiedToken.getVersion());
+    }
+
+    @Test
+    void encode_ShouldEscapeIdentityClaimsForJjwt() {
+        long now = System.currentTimeMillis();
+
+        String token = jwtCodec.encode(7L, "\"quoted\"@example.com", "ROLE_USER", null, now, now + 60000);
+        VerifiedToken verifiedToken = jwtCodec.decode(token);
+
+        assertEquals("\"quoted\"@example.com", verifiedToken.getEmail());
+        assertNull(verifiedToken.getVersion());
+    }
+
+    @Test
+    void decode_ShouldRejectMalformedToken() {
+        assertThrows(MalformedJwtException.class, () -> jwtCodec.decode("invalid.jwt.token.string"));
+        assertThrows(IllegalArgumentException.class, () -> jwtCodec.decode(""));
+    }
+
+    @Test
+    void scanner_ShouldReadFlatClaims() {
+        JwtCodec.ClaimsScanner scanner = new JwtCodec.ClaimsScanner();
+        byte[] json = "{ \"iss\":\"me\", \"sub\":\"42\", \"admin\":true, \"exp\":1700000000 }".getBytes();
+
+        assertTrue(scanner.scan(json, json.length));
+        assertEquals(42L, scanner.sub);
+        assertEquals(1700000000L, scanner.exp);
+    }
+
+    @Test
+    void scanner_ShouldRejectNestedOrNonNumericClaims() {
+        JwtCodec.ClaimsScanner scanner = new JwtCodec.ClaimsScanner();
+        byte[] nested = "{\"sub\":\"42\",\"ctx\":{\"a\":1}}".getBytes();
+        byte[] textSubject = "{\"sub\":\"alice\"}".getBytes();
+        byte[] noSubject = "{\"exp\":1}".getBytes();
+
+        assertFalse(scanner.scan(nested, nested.length));
+        assertFalse(scanner.scan(textSubject, textSubject.length));
+        assertFalse(scanner.scan(noSubject, noSubject.length));
+    }
+
+    @Test
+    void es256_ShouldRoundTripAndBeReadableByJjwt() {
+        SigningKeyRing keyRing = es256KeyRing();
+        JwtCodec es256Codec = new JwtCodec(null, keyRing);
+        long now = System.currentTimeMillis();
+
+        String token = es256Codec.encode(7L, "test@example.com", "ROLE_USER", 2L, now, now + 60000);
+
+        assertEquals(7L, es256Codec.decode(token).getUserId());
+        assertEquals("test@example.com", es256Codec.decode(token).getEmail());
+        Claims claims = Jwts.parserBuilder().setSigningKey(keyRing.getActiveKey().getPublicKey()).build()
+                .parseClaimsJws(token).getBody();
+        assertEquals("7", claims.getSubject());
+    }
+
+    @Test
+    void es256_ShouldReadTokenIssuedByJjwtWithKid() {
+        SigningKeyRing keyRing = es256KeyRing();
+        JwtCodec es256Codec = new JwtCodec(null, keyRing);
+        SigningKeyRing.SigningKey key = keyRing.getActiveKey();
+        String token = Jwts.builder()
+                .setHeaderParam("kid", key.getKid())
+                .setSubject("11")
+                .setExpiration(new Date(System.currentTimeMillis() + 60000))
+                .signWith(key.getPrivateKey(), SignatureAlgorithm.ES256)
+                .compact();
+
+        assertEquals(11L, es256Codec.decode(token).getUserId());
+    }
+
+    @Test
+    void es256_ShouldKeepVerifyingRotatedKeysAndRejectOthers() {
+        InMemorySigningKeyRepository repository = new InMemorySigningKeyRepository();
+        long now = System.currentTimeMillis();
+        String beforeRotation = new JwtCodec(null, es256KeyRing(repository, Clock.systemUTC()))
+                .encode(7L, now, now + 60000);
+
+        // Another node, once the next key has taken over
+        SigningKeyRing keyRing = es256KeyRing(repository, Clock.offset(Clock.systemUTC(), Duration.ofDays(1)));
+        JwtCodec es256Codec = new JwtCodec(null, keyRing);
+
+        assertEquals(7L, es256Codec.decode(beforeRotation).getUserId());
+        assertNotEquals(keyRing.getActiveKey(), keyRing.getKeyByEncodedHeader(beforeRotation.split("\\.")[0]));
+        String foreign = new JwtCodec(null, es256KeyRing()).encode(7L, now, now + 60000);
+        assertThrows(SignatureException.class, () -> es256Codec.decode(foreign));
+    }
+
+    @Test
+    void es256_ShouldAcceptHs512TokensOnlyWhileSecretIsConfigured() {
+        String secret = Base64.getEncoder().encodeToString(secretKey.getEncoded());
+        long now = System.currentTimeMillis();
+        String hs512Token = jwtCodec.encode(7L, now, now + 60000);
+
+        assertEquals(7L, new JwtCodec(secret, es256KeyRing()).decode(hs512Token).getUserId());
+        assertThrows(UnsupportedJwtException.class, () -> new JwtCodec(null, es256KeyRing()).decode(hs512Token));
+    }
+
+    private static SigningKeyRing es256KeyRing() {
+        return es256KeyRing(new InMemorySigningKeyRepository(), Clock.systemUTC());
+    }
+
+    private static SigningKeyRing es256KeyRing(InMemorySigningKeyRepository repository, Clock clock) {
+        AppProperties appProperties = new AppProperties();
+        appProperties.getAuth().setSigningAlgorithm(SigningKeyRing.ES256);
+        appProperties.getAuth().setTokenExpirationMsec(60000);
+        appProperties.getAuth().setSigningKeySecret("test-signing-key-secret");
+        return repository.ring(appProperties, clock);
+    }
+}
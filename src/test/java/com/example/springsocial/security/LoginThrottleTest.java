@@ -0,0 +1,111 @@
+package com.example.springsocial.security;
+
+import com.example.springsocial.config.AppProperties;
+import com.example.springsocial.exception.TooManyRequestsException;
+import com.example.springsocial.repository.LoginThrottleRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class LoginThrottleTest {
+
+    private LoginThrottleRepository loginThrottleRepository;
+    private AppProperties appProperties;
+
+    @BeforeEach
+    void setUp() {
+        loginThrottleRepository = mock(LoginThrottleRepository.class);
+        appProperties = new AppProperties();
+        appProperties.getLoginThrottle().setEmailBurst(2);
+        appProperties.getLoginThrottle().setEmailPerMinute(1);
+        appProperties.getLoginThrottle().setAddressBurst(3);
+        appProperties.getLoginThrottle().setAddressPerMinute(1);
+    }
+
+    @Test
+    void check_ShouldThrottleEmailRegardlessOfCaseAndAddress() {
+        LoginThrottle loginThrottle = new LoginThrottle(loginThrottleRepository, appProperties);
+
+        loginThrottle.check("Victim@Example.com", "198.51.100.1");
+        loginThrottle.check(" victim@example.com", "198.51.100.2");
+        TooManyRequestsException ex = assertThrows(TooManyRequestsException.class,
+                () -> loginThrottle.check("victim@example.com", "198.51.100.3"));
+
+        assertEquals(60, ex.getRetryAfterSeconds());
+        assertEquals(1, loginThrottle.getThrottledCount());
+        verifyNoInteractions(loginThrottleRepository);
+    }
+
+    @Test
+    void check_ShouldThrottleAddressAcrossEmails() {
+        LoginThrottle loginThrottle = new LoginThrottle(loginThrottleRepository, appProperties);
+
+        for (int i = 0; i < 3; i++) {
+            loginThrottle.check("user" + i + "@example.com", "198.51.100.1");
+        }
+
+        assertThrows(TooManyRequestsException.class, () -> loginThrottle.check("user9@example.com", "198.51.100.1"));
+        loginThrottle.check("user9@example.com", "198.51.100.2");
+    }
+
+    @Test
+    void checkLookup_ShouldThrottleAddressWithoutSpendingLoginAttempts() {
+        appProperties.getLoginThrottle().setLookupBurst(2);
+        appProperties.getLoginThrottle().setLookupPerMinute(1);
+        LoginThrottle loginThrottle = new LoginThrottle(loginThrottleRepository, appProperties);
+
+        loginThrottle.checkLookup("198.51.100.1");
+        loginThrottle.checkLookup("198.51.100.1");
+        TooManyRequestsException ex = assertThrows(TooManyRequestsException.class,
+                () -> loginThrottle.checkLookup("198.51.100.1"));
+
+        assertEquals(60, ex.getRetryAfterSeconds());
+        loginThrottle.checkLookup("198.51.100.2");
+        for (int i = 0; i < 3; i++) {
+            loginThrottle.check("user" + i + "@example.com", "198.51.100.1");
+        }
+    }
+
+    @Test
+    void check_ShouldDoNothingWhenDisabled() {
+        appProperties.getLoginThrottle().setEnabled(false);
+        LoginThrottle loginThrottle = new LoginThrottle(loginThrottleRepository, appProperties);
+
+        for (int i = 0; i < 10; i++) {
+            loginThrottle.check("victim@example.com", "198.51.100.1");
+        }
+        assertEquals(0, loginThrottle.getThrottledCount());
+    }
+
+    @Test
+    void check_ShouldUseRepositoryInJdbcMode() {
+        appProperties.getLoginThrottle().setStore(LoginThrottle.STORE_JDBC);
+        LoginThrottle loginThrottle = new LoginThrottle(loginThrottleRepository, appProperties);
+        when(loginThrottleRepository.tryAcquire(eq("address:198.51.100.1"), eq(3.0), anyDouble(), anyLong()))
+                .thenReturn(Collections.singletonList(2.0));
+        when(loginThrottleRepository.tryAcquire(eq("email:victim@example.com"), eq(2.0), anyDouble(), anyLong()))
+                .thenReturn(Collections.emptyList());
+
+        assertThrows(TooManyRequestsException.class, () -> loginThrottle.check("Victim@example.com", "198.51.100.1"));
+
+        loginThrottle.evictIdle();
+        verify(loginThrottleRepository).deleteIdle(anyLong());
+    }
+
+    @Test
+    void bindTo_ShouldRegisterThrottleMetrics() {
+        LoginThrottle loginThrottle = new LoginThrottle(loginThrottleRepository, appProperties);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        loginThrottle.bindTo(registry);
+        loginThrottle.check("a@example.com", "198.51.100.1");
+
+        assertEquals(1.0, registry.get("auth.login.throttle.buckets").tag("key", "email").gauge().value());
+        assertEquals(0.0, registry.get("auth.login.throttled").tag("key", "address").functionCounter().count());
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.springsocial.security;
+
+import com.example.springsocial.config.AppProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NegativeTokenCacheTest {
+
+    private AppProperties appProperties;
+
+    private NegativeTokenCache cache;
+
+    @BeforeEach
+    void setUp() {
+        appProperties = new AppProperties();
+        appProperties.getNegativeTokenCache().setMaxEntries(64);
+        cache = new NegativeTokenCache(appProperties);
+    }
+
+    @Test
+    void isRejected_ShouldRememberRejectedTokens() {
+        cache.reject("bad-token");
+
+        assertTrue(cache.isRejected("bad-token"));
+        assertFalse(cache.isRejected("other-token"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void isRejected_ShouldForgetTokensAfterTtl() {
+        appProperties.getNegativeTokenCache().setTtlMsec(-1);
+        cache = new NegativeTokenCache(appProperties);
+
+        cache.reject("bad-token");
+
+        assertFalse(cache.isRejected("bad-token"));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    void reject_ShouldStayBoundedUnderDistinctTokens() {
+        for (int i = 0; i < 10000; i++) {
+            cache.reject("junk-" + i);
+        }
+
+        assertTrue(cache.size() <= 64, "size: " + cache.size());
+        assertTrue(cache.isRejected("junk-9999"));
+        assertTrue(cache.getEvictionCount() >= 10000 - 64);
+    }
+
+    @Test
+    void reject_ShouldBeSafeUnderConcurrentUse() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch done = new CountDownLatch(8);
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            executor.execute(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    cache.reject("junk-" + thread + "-" + i);
+                    cache.isRejected("junk-" + thread + "-" + (i / 2));
+                }
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertTrue(cache.size() <= 64);
+    }
+
+    @Test
+    void disabled_ShouldNeverReject() {
+        appProperties.getNegativeTokenCache().setEnabled(false);
+        cache = new NegativeTokenCache(appProperties);
+
+        cache.reject("bad-token");
+
+        assertFalse(cache.isRejected("bad-token"));
+    }
+}
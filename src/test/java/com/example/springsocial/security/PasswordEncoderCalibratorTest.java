@@ -0,0 +1,54 @@
+package com.example.springsocial.security;
+
+import com.example.springsocial.config.AppProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordEncoderCalibratorTest {
+
+    @Test
+    void chooseCost_ShouldDoubleUntilTargetIsReached() {
+        assertEquals(12, PasswordEncoderCalibrator.chooseCost(200, 10, 50, 14));
+        assertEquals(10, PasswordEncoderCalibrator.chooseCost(90, 10, 50, 14));
+    }
+
+    @Test
+    void chooseCost_ShouldStayWithinBounds() {
+        assertEquals(14, PasswordEncoderCalibrator.chooseCost(1_000_000, 10, 1, 14));
+        assertEquals(10, PasswordEncoderCalibrator.chooseCost(1, 10, 1_000, 14));
+    }
+
+    @Test
+    void create_ShouldPrefixHashesWithAlgorithmAndCost() {
+        PasswordEncoder encoder = PasswordEncoderCalibrator.create(settings(4, 4));
+
+        String hash = encoder.encode("secret");
+
+        assertTrue(hash.startsWith("{bcrypt}$2a$04$"), hash);
+        assertTrue(encoder.matches("secret", hash));
+        assertFalse(encoder.upgradeEncoding(hash));
+    }
+
+    @Test
+    void create_ShouldVerifyAndUpgradeLegacyHashes() {
+        PasswordEncoder encoder = PasswordEncoderCalibrator.create(settings(5, 5));
+        String legacyHash = new BCryptPasswordEncoder(4).encode("secret");
+        String weakerHash = "{bcrypt}" + new BCryptPasswordEncoder(4).encode("secret");
+
+        assertTrue(encoder.matches("secret", legacyHash));
+        assertFalse(encoder.matches("wrong", legacyHash));
+        assertTrue(encoder.upgradeEncoding(legacyHash));
+        assertTrue(encoder.upgradeEncoding(weakerHash));
+    }
+
+    private static AppProperties.PasswordHashing settings(int minCost, int maxCost) {
+        AppProperties.PasswordHashing settings = new AppProperties().getPasswordHashing();
+        settings.setMinCost(minCost);
+        settings.setMaxCost(maxCost);
+        settings.setTargetMsec(1);
+        return settings;
+    }
+}
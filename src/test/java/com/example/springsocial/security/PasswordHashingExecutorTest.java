@@ -0,0 +1,106 @@
+package com.example.springsocial.security;
+
+import com.example.springsocial.config.AppProperties;
+import com.example.springsocial.config.SqlRecorder;
+import com.example.springsocial.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingExecutorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private PasswordHashingExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        AppProperties appProperties = new AppProperties();
+        appProperties.getPasswordHashing().setThreads(1);
+        appProperties.getPasswordHashing().setQueueCapacity(1);
+        appProperties.getPasswordHashing().setRetryAfterSeconds(3);
+        meterRegistry = new SimpleMeterRegistry();
+        executor = new PasswordHashingExecutor(appProperties, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void submit_ShouldRunTaskOffTheCallingThread() {
+        String caller = Thread.currentThread().getName();
+
+        String worker = executor.submit("login", () -> Thread.currentThread().getName()).join();
+
+        assertNotEquals(caller, worker);
+        assertTrue(worker.startsWith("password-hashing-"));
+        assertEquals(1, meterRegistry.get("auth.password.hashing").tag("operation", "login").timer().count());
+    }
+
+    @Test
+    void submit_ShouldRejectWith503WhenQueueIsFull() throws InterruptedException {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Object> busy = executor.submit("login", () -> {
+            running.countDown();
+            await(release);
+            return null;
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Object> queued = executor.submit("login", () -> null);
+
+        ServiceUnavailableException ex = assertThrows(ServiceUnavailableException.class,
+                () -> executor.submit("login", () -> null));
+
+        assertEquals(1, executor.getQueueDepth());
+        assertEquals("3", ex.getResponseHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals(1.0, meterRegistry.get("auth.password.hashing.rejections").counter().count());
+
+        release.countDown();
+        busy.join();
+        queued.join();
+    }
+
+    @Test
+    void submit_ShouldCompleteExceptionallyWhenTaskFails() {
+        CompletableFuture<Object> future = executor.submit("signup", () -> {
+            throw new IllegalStateException("boom");
+        });
+
+        Exception ex = assertThrows(Exception.class, future::join);
+        assertTrue(ex.getCause() instanceof IllegalStateException);
+    }
+
+    @Test
+    void submit_ShouldCarryTheRequestsSqlStatsOntoThePool() {
+        SqlRecorder.RequestStats stats = new SqlRecorder.RequestStats();
+        SqlRecorder.RequestStats previous = SqlRecorder.attach(stats);
+        CompletableFuture<SqlRecorder.RequestStats> during;
+        try {
+            during = executor.submit("login", SqlRecorder::current);
+        } finally {
+            SqlRecorder.attach(previous);
+        }
+
+        assertSame(stats, during.join());
+        assertNull(executor.submit("login", SqlRecorder::current).join());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.springsocial.security;
+
+import com.example.springsocial.model.User;
+import com.example.springsocial.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PasswordUpgradeServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    @Mock
+    private UserPrincipalCache userPrincipalCache;
+
+    @InjectMocks
+    private PasswordUpgradeService passwordUpgradeService;
+
+    private final UserPrincipal principal =
+            new UserPrincipal(1L, "test@example.com", "old-hash", Collections.emptyList());
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @AfterEach
+    void tearDown() {
+        passwordUpgradeService.shutdown();
+    }
+
+    @Test
+    void upgradeIfNeeded_ShouldRehashOutdatedHash() {
+        when(passwordEncoder.upgradeEncoding("old-hash")).thenReturn(true);
+        when(passwordEncoder.encode("secret")).thenReturn("new-hash");
+        when(userRepository.updatePasswordIfUnchanged(1L, "old-hash", "new-hash")).thenReturn(1);
+
+        passwordUpgradeService.upgradeIfNeeded(principal, "secret");
+
+        // The rehash runs on the service's own background thread
+        ArgumentCaptor<User> invalidated = ArgumentCaptor.forClass(User.class);
+        verify(userPrincipalCache, timeout(5000)).invalidate(invalidated.capture());
+        assertEquals(1L, invalidated.getValue().getId());
+        assertEquals("test@example.com", invalidated.getValue().getEmail());
+    }
+
+    @Test
+    void upgradeIfNeeded_ShouldLeaveCurrentHashAlone() {
+        when(passwordEncoder.upgradeEncoding("old-hash")).thenReturn(false);
+
+        passwordUpgradeService.upgradeIfNeeded(principal, "secret");
+
+        verify(passwordEncoder, never()).encode(any());
+        verifyNoInteractions(userRepository, userPrincipalCache);
+    }
+
+    @Test
+    void upgradeIfNeeded_ShouldNotOverwriteConcurrentPasswordChange() {
+        when(passwordEncoder.upgradeEncoding("old-hash")).thenReturn(true);
+        when(passwordEncoder.encode("secret")).thenReturn("new-hash");
+        when(userRepository.updatePasswordIfUnchanged(1L, "old-hash", "new-hash")).thenReturn(0);
+
+        passwordUpgradeService.upgradeIfNeeded(principal, "secret");
+
+        verify(userRepository, timeout(5000)).updatePasswordIfUnchanged(1L, "old-hash", "new-hash");
+        verify(userPrincipalCache, after(200).never()).invalidate(any());
+    }
+
+    @Test
+    void upgradeIfNeeded_ShouldIgnoreOtherPrincipals() {
+        passwordUpgradeService.upgradeIfNeeded("anonymous", "secret");
+        passwordUpgradeService.upgradeIfNeeded(null, "secret");
+
+        verifyNoInteractions(passwordEncoder, userRepository);
+    }
+}
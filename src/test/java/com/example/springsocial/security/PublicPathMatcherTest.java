@@ -0,0 +1,52 @@
+package com.example.springsocial.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PublicPathMatcherTest {
+
+    private static final List<String> PATTERNS = Arrays.asList(
+            "/", "/error", "/favicon.ico", "/**/*.png", "/**/*.js", "/auth/**", "/oauth2/**", "/.well-known/**");
+
+    private final PublicPathMatcher matcher = new PublicPathMatcher(PATTERNS);
+
+    @Test
+    void matches_ShouldAgreeWithAntPatterns() {
+        AntPathMatcher antPathMatcher = new AntPathMatcher();
+        List<String> paths = Arrays.asList(
+                "/", "/error", "/errors", "/favicon.ico", "/logo.png", "/static/img/logo.png", "/logo.png/raw",
+                "/js/app.js", "/app.json", "/auth", "/auth/login", "/auth/signup/extra", "/authx/login",
+                "/oauth2/authorize/google", "/.well-known/jwks.json", "/user/me", "/user/me.txt", "/api/auth/login");
+
+        for (String path : paths) {
+            boolean expected = PATTERNS.stream().anyMatch(pattern -> antPathMatcher.match(pattern, path));
+            assertEquals(expected, matcher.matches(path), path);
+        }
+    }
+
+    @Test
+    void matches_ShouldUseServletPathAndPathInfo() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setServletPath("/auth");
+        request.setPathInfo("/login");
+
+        assertTrue(matcher.matches(request));
+
+        request.setServletPath("/user/me");
+        request.setPathInfo(null);
+        assertFalse(matcher.matches(request));
+    }
+
+    @Test
+    void constructor_ShouldRejectPatternsItCannotCompile() {
+        assertThrows(IllegalArgumentException.class, () -> new PublicPathMatcher("/users/*/avatar"));
+        assertThrows(IllegalArgumentException.class, () -> new PublicPathMatcher("/**"));
+        assertThrows(IllegalArgumentException.class, () -> new PublicPathMatcher("/**/*.{png,jpg}"));
+    }
+}
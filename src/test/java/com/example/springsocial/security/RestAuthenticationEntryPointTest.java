@@ -27,6 +27,9 @@ class RestAuthenticationEntryPointTest {
     @Mock
     private AuthenticationException authException;
 
+    @Mock
+    private AuthFailureMonitor authFailureMonitor;
+
     @InjectMocks
     private RestAuthenticationEntryPoint entryPoint;
 
@@ -68,6 +71,18 @@ class RestAuthenticationEntryPointTest {
         verify(authException).getMessage(); // Verify logger called getMessage()
     }
 
+    @Test
+    void commence_ShouldRecordFailureWithMonitor() throws Exception {
+        // Given
+        when(authException.getMessage()).thenReturn("Full authentication is required");
+
+        // When
+        entryPoint.commence(request, response, authException);
+
+        // Then
+        verify(authFailureMonitor).record(AuthFailureMonitor.Reason.UNAUTHORIZED, "Full authentication is required");
+    }
+
     @Test
     void commence_ShouldPropagateIOExceptions() throws Exception {
         // Given
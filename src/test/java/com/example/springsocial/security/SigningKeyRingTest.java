@@ -0,0 +1,158 @@
+package com.example.springsocial.security;
+
+import com.example.springsocial.config.AppProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SigningKeyRingTest {
+
+    private static final long ROTATION_MSEC = 3600000;
+
+    private AppProperties appProperties;
+    private InMemorySigningKeyRepository repository;
+    private MutableClock clock;
+
+    @BeforeEach
+    void setUp() {
+        appProperties = new AppProperties();
+        appProperties.getAuth().setSigningAlgorithm(SigningKeyRing.ES256);
+        appProperties.getAuth().setTokenExpirationMsec(60000);
+        appProperties.getAuth().setKeyRotationMsec(ROTATION_MSEC);
+        appProperties.getAuth().setSigningKeySecret("test-signing-key-secret");
+        repository = new InMemorySigningKeyRepository();
+        clock = new MutableClock(Instant.parse("2026-01-01T00:00:00Z"));
+    }
+
+    @Test
+    void constructor_ShouldPublishNextKeyBeforeItSigns() {
+        SigningKeyRing keyRing = repository.ring(appProperties, clock);
+
+        List<Map<String, Object>> keys = keys(keyRing);
+
+        assertTrue(keyRing.isEnabled());
+        assertEquals(2, keys.size());
+        assertEquals(2, repository.size());
+        assertTrue(keys.stream().anyMatch(jwk -> keyRing.getActiveKey().getKid().equals(jwk.get("kid"))));
+    }
+
+    @Test
+    void nodesSharingStorage_ShouldSignWithAndPublishTheSameKeys() {
+        SigningKeyRing first = repository.ring(appProperties, clock);
+        SigningKeyRing second = repository.ring(appProperties, clock);
+
+        assertEquals(first.getActiveKey().getKid(), second.getActiveKey().getKid());
+        assertEquals(first.toJwkSet(), second.toJwkSet());
+        assertEquals(first.getActiveKey().getPublicKey(), second.getKey(first.getActiveKey().getKid()).getPublicKey());
+    }
+
+    @Test
+    void refresh_ShouldPromotePublishedKeyOnceDueAndRetainRetiredKey() {
+        SigningKeyRing keyRing = repository.ring(appProperties, clock);
+        SigningKeyRing.SigningKey first = keyRing.getActiveKey();
+        List<Map<String, Object>> before = keys(keyRing);
+
+        clock.advance(ROTATION_MSEC);
+        keyRing.refresh();
+
+        SigningKeyRing.SigningKey second = keyRing.getActiveKey();
+        assertNotEquals(first.getKid(), second.getKid());
+        assertTrue(before.stream().anyMatch(jwk -> second.getKid().equals(jwk.get("kid"))));
+        assertSame(first, keyRing.getKey(first.getKid()));
+        assertEquals(3, keys(keyRing).size());
+    }
+
+    @Test
+    void refresh_ShouldDropRetiredKeysOnceTheirTokensHaveExpired() {
+        SigningKeyRing keyRing = repository.ring(appProperties, clock);
+        SigningKeyRing.SigningKey first = keyRing.getActiveKey();
+
+        clock.advance(ROTATION_MSEC + 60001);
+        keyRing.refresh();
+
+        assertNull(keyRing.getKey(first.getKid()));
+        assertEquals(2, keys(keyRing).size());
+        assertEquals(2, repository.size());
+    }
+
+    @Test
+    void constructor_ShouldRejectStoredKeysEncryptedWithAnotherSecret() {
+        repository.ring(appProperties, clock);
+        appProperties.getAuth().setSigningKeySecret("another-secret");
+
+        assertThrows(IllegalStateException.class, () -> repository.ring(appProperties, clock));
+    }
+
+    @Test
+    void constructor_ShouldRequireSigningKeySecret() {
+        appProperties.getAuth().setSigningKeySecret(null);
+
+        assertThrows(IllegalStateException.class, () -> repository.ring(appProperties, clock));
+    }
+
+    @Test
+    void toJwkSet_ShouldDescribeP256PublicKeys() {
+        SigningKeyRing keyRing = repository.ring(appProperties, clock);
+
+        Map<String, Object> jwk = keys(keyRing).get(0);
+
+        assertEquals("EC", jwk.get("kty"));
+        assertEquals("P-256", jwk.get("crv"));
+        assertEquals("ES256", jwk.get("alg"));
+        assertEquals(43, ((String) jwk.get("x")).length());
+        assertEquals(43, ((String) jwk.get("y")).length());
+        assertFalse(jwk.containsKey("d"));
+    }
+
+    @Test
+    void hs512_ShouldLeaveRingEmpty() {
+        SigningKeyRing keyRing = repository.ring(new AppProperties(), clock);
+
+        keyRing.refresh();
+
+        assertFalse(keyRing.isEnabled());
+        assertNull(keyRing.getActiveKey());
+        assertTrue(keys(keyRing).isEmpty());
+        assertEquals(0, repository.size());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> keys(SigningKeyRing keyRing) {
+        return (List<Map<String, Object>>) keyRing.toJwkSet().get("keys");
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(long millis) {
+            now = now.plusMillis(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -1,11 +1,13 @@
 package com.example.springsocial.security;
 
+import com.example.springsocial.config.AppProperties;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
@@ -33,6 +35,27 @@ class TokenAuthenticationFilterTest {
     @Mock
     private CustomUserDetailsService customUserDetailsService;
 
+    @Mock
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Mock
+    private NegativeTokenCache negativeTokenCache;
+
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+
+    @Mock
+    private AuthFailureMonitor authFailureMonitor;
+
+    @Mock
+    private PublicPathMatcher publicPathMatcher;
+
+    @Mock
+    private AuthEventLog authEventLog;
+
+    @Spy
+    private AppProperties appProperties = new AppProperties();
+
     @Mock
     private FilterChain filterChain;
 
@@ -55,22 +78,75 @@ class TokenAuthenticationFilterTest {
         request.addHeader("Authorization", "Bearer " + token);
         UserDetails userDetails = new User("testUser", "password", Collections.emptyList());
 
-        when(tokenProvider.validateToken(token)).thenReturn(true);
-        when(tokenProvider.getUserIdFromToken(token)).thenReturn(userId);
+        VerifiedToken verifiedToken = new VerifiedToken(userId, System.currentTimeMillis() + 60000);
+        when(tokenProvider.verifyToken(token)).thenReturn(verifiedToken);
+        when(customUserDetailsService.loadUserById(userId)).thenReturn(userDetails);
+
+        tokenAuthenticationFilter.doFilterInternal(request, response, filterChain);
+
+        assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+        verify(verifiedTokenCache, times(1)).put(token, verifiedToken);
+        verify(filterChain, times(1)).doFilter(request, response);
+    }
+
+    @Test
+    void testCachedTokenSkipsVerification() throws ServletException, IOException {
+        String token = "cached.jwt.token";
+        Long userId = 1L;
+
+        request.addHeader("Authorization", "Bearer " + token);
+        UserDetails userDetails = new User("testUser", "password", Collections.emptyList());
+
+        when(verifiedTokenCache.get(token)).thenReturn(new VerifiedToken(userId, System.currentTimeMillis() + 60000));
         when(customUserDetailsService.loadUserById(userId)).thenReturn(userDetails);
 
         tokenAuthenticationFilter.doFilterInternal(request, response, filterChain);
 
         assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+        verifyNoInteractions(tokenProvider);
         verify(filterChain, times(1)).doFilter(request, response);
     }
 
+    @Test
+    void testStatelessPrincipalSkipsUserLookup() throws ServletException, IOException {
+        String token = "stateless.jwt.token";
+        appProperties.getAuth().setStatelessPrincipal(true);
+
+        request.addHeader("Authorization", "Bearer " + token);
+        when(tokenProvider.verifyToken(token)).thenReturn(new VerifiedToken(
+                7L, System.currentTimeMillis() + 60000, "test@example.com", "ROLE_USER", 3L));
+
+        tokenAuthenticationFilter.doFilterInternal(request, response, filterChain);
+
+        UserPrincipal principal = (UserPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        assertEquals(7L, principal.getId());
+        assertEquals("test@example.com", principal.getEmail());
+        assertEquals(3L, principal.getVersion());
+        assertEquals("ROLE_USER", principal.getAuthorities().iterator().next().getAuthority());
+        verifyNoInteractions(customUserDetailsService);
+    }
+
+    @Test
+    void testIdentityClaimsIgnoredWhenStatelessModeIsOff() throws ServletException, IOException {
+        String token = "stateless.jwt.token";
+        request.addHeader("Authorization", "Bearer " + token);
+        UserDetails userDetails = new User("testUser", "password", Collections.emptyList());
+
+        when(tokenProvider.verifyToken(token)).thenReturn(new VerifiedToken(
+                7L, System.currentTimeMillis() + 60000, "test@example.com", "ROLE_USER", 3L));
+        when(customUserDetailsService.loadUserById(7L)).thenReturn(userDetails);
+
+        tokenAuthenticationFilter.doFilterInternal(request, response, filterChain);
+
+        assertSame(userDetails, SecurityContextHolder.getContext().getAuthentication().getPrincipal());
+    }
+
     @Test
     void testInvalidToken() throws ServletException, IOException {
         String token = "invalid.jwt.token";
         request.addHeader("Authorization", "Bearer " + token);
 
-        when(tokenProvider.validateToken(token)).thenReturn(false);
+        when(tokenProvider.verifyToken(token)).thenReturn(null);
 
         tokenAuthenticationFilter.doFilterInternal(request, response, filterChain);
 
@@ -83,7 +159,7 @@ class TokenAuthenticationFilterTest {
         String token = "expired.jwt.token";
         request.addHeader("Authorization", "Bearer " + token);
 
-        when(tokenProvider.validateToken(token)).thenReturn(false);
+        when(tokenProvider.verifyToken(token)).thenReturn(null);
 
         tokenAuthenticationFilter.doFilterInternal(request, response, filterChain);
 
@@ -106,7 +182,7 @@ class TokenAuthenticationFilterTest {
         request.addHeader("Authorization", "Bearer " + token);
 
         // Mock token validation to return false (simulating an invalid token)
-        when(tokenProvider.validateToken(token)).thenReturn(false); 
+        when(tokenProvider.verifyToken(token)).thenReturn(null); 
 
         // Execute the filter with the malformed token
         tokenAuthenticationFilter.doFilterInternal(request, response, filterChain);
@@ -118,4 +194,60 @@ class TokenAuthenticationFilterTest {
         verify(filterChain, times(1)).doFilter(request, response);
     }
 
-}
\ No newline at end of file
+    @Test
+    void testRevokedTokenIsNotAuthenticated() throws ServletException, IOException {
+        String token = "revoked.jwt.token";
+        request.addHeader("Authorization", "Bearer " + token);
+
+        VerifiedToken verifiedToken = new VerifiedToken(1L, System.currentTimeMillis() + 60000, "jti-1");
+        when(verifiedTokenCache.get(token)).thenReturn(verifiedToken);
+        when(tokenRevocationService.isRevoked(verifiedToken)).thenReturn(true);
+
+        tokenAuthenticationFilter.doFilterInternal(request, response, filterChain);
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verifyNoInteractions(customUserDetailsService);
+        verify(verifiedTokenCache).invalidate(token);
+        verify(negativeTokenCache).reject(token);
+        verify(filterChain).doFilter(request, response);
+    }
+
+    @Test
+    void testRejectedTokenIsRemembered() throws ServletException, IOException {
+        String token = "invalid.jwt.token";
+        request.addHeader("Authorization", "Bearer " + token);
+
+        when(tokenProvider.verifyToken(token)).thenReturn(null);
+
+        tokenAuthenticationFilter.doFilterInternal(request, response, filterChain);
+
+        verify(negativeTokenCache).reject(token);
+        verify(verifiedTokenCache, never()).put(anyString(), any());
+    }
+
+    @Test
+    void testRecentlyRejectedTokenSkipsVerification() throws ServletException, IOException {
+        String token = "invalid.jwt.token";
+        request.addHeader("Authorization", "Bearer " + token);
+
+        when(negativeTokenCache.isRejected(token)).thenReturn(true);
+
+        tokenAuthenticationFilter.doFilterInternal(request, response, filterChain);
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verifyNoInteractions(tokenProvider);
+        verify(filterChain).doFilter(request, response);
+    }
+
+    @Test
+    void testPublicPathSkipsTokenHandling() throws ServletException, IOException {
+        request.setServletPath("/auth/login");
+        request.addHeader("Authorization", "Bearer some.jwt.token");
+        when(publicPathMatcher.matches(request)).thenReturn(true);
+
+        tokenAuthenticationFilter.doFilter(request, response, filterChain);
+
+        verifyNoInteractions(verifiedTokenCache, tokenProvider, customUserDetailsService);
+        verify(filterChain).doFilter(request, response);
+    }
+}
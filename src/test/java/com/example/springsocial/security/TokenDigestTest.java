@@ -0,0 +1,20 @@
+package com.example.springsocial.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenDigestTest {
+
+    @Test
+    void of_ShouldGiveTheSameKeyForTheSameToken() {
+        assertEquals(TokenDigest.of("header.payload.signature"), TokenDigest.of("header.payload.signature"));
+        assertEquals(32, TokenDigest.of("header.payload.signature").remaining());
+    }
+
+    @Test
+    void of_ShouldKeepNonAsciiTokensApart() {
+        assertNotEquals(TokenDigest.of("junké"), TokenDigest.of("junkè"));
+        assertNotEquals(TokenDigest.of("junké"), TokenDigest.of("junk?"));
+    }
+}
@@ -55,7 +55,7 @@ class TokenProviderTest {
         when(authProperties.getTokenExpirationMsec()).thenReturn(EXPIRATION_TIME);
         
         // Create the TokenProvider instance with our mock AppProperties
-        tokenProvider = new TokenProvider(appProperties);
+        tokenProvider = new TokenProvider(appProperties, null, new AuthFailureMonitor(new AppProperties()));
     }
 
     @Test
@@ -196,4 +196,63 @@ class TokenProviderTest {
         // Verify validation succeeds for valid token
         assertTrue(tokenProvider.validateToken(token));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testVerifyToken_ValidToken() {
+        Date expiration = new Date(System.currentTimeMillis() + EXPIRATION_TIME);
+        String token = Jwts.builder()
+                .setSubject("42")
+                .setIssuedAt(new Date())
+                .setExpiration(expiration)
+                .signWith(SECRET_KEY)
+                .compact();
+
+        VerifiedToken verifiedToken = tokenProvider.verifyToken(token);
+
+        assertNotNull(verifiedToken);
+        assertEquals(42L, verifiedToken.getUserId());
+        // JWT timestamps have second precision
+        assertEquals(expiration.getTime() / 1000 * 1000, verifiedToken.getExpiresAt());
+    }
+
+    @Test
+    void testVerifyToken_InvalidToken() {
+        assertNull(tokenProvider.verifyToken("invalid.jwt.token.string"));
+    }
+
+    @Test
+    void testCreateToken_StatelessPrincipalCarriesIdentityClaims() {
+        when(authProperties.isStatelessPrincipal()).thenReturn(true);
+
+        User user = new User();
+        user.setId(5L);
+        user.setEmail("test@example.com");
+        user.setVersion(2L);
+        Authentication authentication = new UsernamePasswordAuthenticationToken(
+            UserPrincipal.create(user), null, null);
+
+        String token = tokenProvider.createToken(authentication);
+
+        Claims claims = Jwts.parserBuilder().setSigningKey(SECRET_KEY).build().parseClaimsJws(token).getBody();
+        assertEquals("test@example.com", claims.get("email"));
+        assertEquals("ROLE_USER", claims.get("auth"));
+        assertEquals(2, claims.get("ver", Number.class).intValue());
+
+        VerifiedToken verifiedToken = tokenProvider.verifyToken(token);
+        assertTrue(verifiedToken.hasIdentityClaims());
+        assertEquals(5L, verifiedToken.getUserId());
+        assertEquals(2L, verifiedToken.getVersion());
+    }
+
+    @Test
+    void testVerifyToken_RecordsFailureReason() {
+        AuthFailureMonitor authFailureMonitor = new AuthFailureMonitor(new AppProperties());
+        TokenProvider monitoredProvider = new TokenProvider(appProperties, null, authFailureMonitor);
+
+        assertNull(monitoredProvider.verifyToken("invalid.token.here"));
+        assertNull(monitoredProvider.verifyToken(""));
+
+        assertEquals(1, authFailureMonitor.getCount(AuthFailureMonitor.Reason.MALFORMED));
+        assertEquals(1, authFailureMonitor.getCount(AuthFailureMonitor.Reason.EMPTY));
+    }
+}
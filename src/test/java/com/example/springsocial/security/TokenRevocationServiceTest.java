@@ -0,0 +1,128 @@
+package com.example.springsocial.security;
+
+import com.example.springsocial.config.AppProperties;
+import com.example.springsocial.model.RevokedToken;
+import com.example.springsocial.repository.RevokedTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Instant;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class TokenRevocationServiceTest {
+
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+
+    private TokenRevocationService tokenRevocationService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        AppProperties appProperties = new AppProperties();
+        appProperties.getTokenRevocation().setBucketMsec(60000);
+        appProperties.getTokenRevocation().setExpectedRevocationsPerBucket(1000);
+        tokenRevocationService = new TokenRevocationService(revokedTokenRepository, appProperties);
+    }
+
+    @Test
+    void isRevoked_ShouldNotQueryDatabaseWithoutBloomHit() {
+        VerifiedToken verifiedToken = token("live", 30000);
+
+        assertFalse(tokenRevocationService.isRevoked(verifiedToken));
+        verifyNoInteractions(revokedTokenRepository);
+    }
+
+    @Test
+    void revoke_ShouldPersistAndBeConfirmedByDatabase() {
+        VerifiedToken verifiedToken = token("revoked", 30000);
+        when(revokedTokenRepository.existsById("revoked")).thenReturn(true);
+
+        assertTrue(tokenRevocationService.revoke(verifiedToken));
+
+        verify(revokedTokenRepository).save(any(RevokedToken.class));
+        assertTrue(tokenRevocationService.isRevoked(verifiedToken));
+        assertEquals(1, tokenRevocationService.getDatabaseCheckCount());
+    }
+
+    @Test
+    void isRevoked_ShouldRememberFalsePositiveUntilTheBucketChanges() {
+        // "lookalike" is in the filter, but the database says it is not revoked: a false positive
+        VerifiedToken verifiedToken = token("lookalike", 30000);
+        tokenRevocationService.revoke(verifiedToken);
+        when(revokedTokenRepository.existsById("lookalike")).thenReturn(false);
+
+        assertFalse(tokenRevocationService.isRevoked(verifiedToken));
+        assertFalse(tokenRevocationService.isRevoked(verifiedToken));
+        assertEquals(1, tokenRevocationService.getDatabaseCheckCount());
+
+        tokenRevocationService.revoke(token("other", 30000));
+        when(revokedTokenRepository.existsById("lookalike")).thenReturn(true);
+
+        assertTrue(tokenRevocationService.isRevoked(verifiedToken));
+        assertEquals(2, tokenRevocationService.getDatabaseCheckCount());
+    }
+
+    @Test
+    void revoke_ShouldIgnoreTokensWithoutJtiOrAlreadyExpired() {
+        assertFalse(tokenRevocationService.revoke(new VerifiedToken(1L, System.currentTimeMillis() + 30000)));
+        assertFalse(tokenRevocationService.revoke(token("expired", -1000)));
+        verifyNoInteractions(revokedTokenRepository);
+    }
+
+    @Test
+    void load_ShouldRestoreRevocationsFromDatabase() {
+        long expiresAt = System.currentTimeMillis() + 30000;
+        RevokedTokenRepository.RevocationEntry entry = entry("restored", expiresAt);
+        when(revokedTokenRepository.findUnexpired(any())).thenReturn(Collections.singletonList(entry));
+        when(revokedTokenRepository.existsById("restored")).thenReturn(true);
+
+        tokenRevocationService.load();
+
+        assertTrue(tokenRevocationService.isRevoked(new VerifiedToken(1L, expiresAt, "restored")));
+    }
+
+    @Test
+    void poll_ShouldPickUpRevocationsFromOtherNodes() {
+        long expiresAt = System.currentTimeMillis() + 30000;
+        RevokedTokenRepository.RevocationEntry entry = entry("remote", expiresAt);
+        when(revokedTokenRepository.findRevokedSince(any(), any())).thenReturn(Collections.singletonList(entry));
+        when(revokedTokenRepository.existsById("remote")).thenReturn(true);
+
+        tokenRevocationService.poll();
+
+        assertTrue(tokenRevocationService.isRevoked(new VerifiedToken(1L, expiresAt, "remote")));
+    }
+
+    @Test
+    void purgeExpired_ShouldDropBucketsOnceTheirTokensExpire() {
+        tokenRevocationService.revoke(token("soon", 1000));
+        tokenRevocationService.revoke(token("later", 600000));
+        assertEquals(2, tokenRevocationService.getBucketCount());
+
+        RevokedTokenRepository.RevocationEntry stale = entry("stale", System.currentTimeMillis() - 600000);
+        when(revokedTokenRepository.findRevokedSince(any(), any())).thenReturn(Collections.singletonList(stale));
+        tokenRevocationService.poll();
+        tokenRevocationService.purgeExpired();
+
+        assertEquals(2, tokenRevocationService.getBucketCount());
+        verify(revokedTokenRepository).deleteExpired(any(Instant.class));
+    }
+
+    private static VerifiedToken token(String tokenId, long expiresInMsec) {
+        return new VerifiedToken(1L, System.currentTimeMillis() + expiresInMsec, tokenId);
+    }
+
+    private static RevokedTokenRepository.RevocationEntry entry(String tokenId, long expiresAt) {
+        RevokedTokenRepository.RevocationEntry entry = mock(RevokedTokenRepository.RevocationEntry.class);
+        when(entry.getTokenId()).thenReturn(tokenId);
+        when(entry.getExpiresAt()).thenReturn(Instant.ofEpochMilli(expiresAt));
+        return entry;
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.springsocial.security;
+
+import com.example.springsocial.config.AppProperties;
+import com.example.springsocial.exception.ResourceNotFoundException;
+import com.example.springsocial.model.User;
+import com.example.springsocial.repository.ReadYourWrites;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserPrincipalCacheTest {
+
+    private AppProperties appProperties;
+
+    private UserPrincipalCache cache;
+
+    @BeforeEach
+    void setUp() {
+        appProperties = new AppProperties();
+        cache = new UserPrincipalCache(appProperties, new ReadYourWrites(appProperties));
+    }
+
+    @Test
+    void getById_ShouldLoadOnceAndServeBothKeys() {
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.getById(1L, id -> {
+            loads.incrementAndGet();
+            return principal(id, "test@example.com");
+        });
+        UserPrincipal byId = cache.getById(1L, id -> fail("should be cached"));
+        UserPrincipal byEmail = cache.getByEmail("test@example.com", email -> fail("should be cached"));
+
+        assertEquals(1, loads.get());
+        assertSame(byId, byEmail);
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void invalidate_ShouldDropBothKeys() {
+        cache.getById(1L, id -> principal(id, "old@example.com"));
+
+        User user = new User();
+        user.setId(1L);
+        user.setEmail("new@example.com");
+        cache.invalidate(user);
+
+        assertEquals("new@example.com", cache.getById(1L, id -> principal(id, "new@example.com")).getEmail());
+        assertThrows(ResourceNotFoundException.class, () -> cache.getByEmail("old@example.com", email -> {
+            throw new ResourceNotFoundException("User", "email", email);
+        }));
+    }
+
+    @Test
+    void getById_ShouldExpireAfterTtl() throws InterruptedException {
+        appProperties.getUserCache().setTtlMsec(1);
+        cache = new UserPrincipalCache(appProperties, new ReadYourWrites(appProperties));
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.getById(1L, id -> principal(id + loads.incrementAndGet(), "test@example.com"));
+        Thread.sleep(5);
+        cache.getById(1L, id -> principal(id + loads.incrementAndGet(), "test@example.com"));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void getById_ShouldNotCacheLoadThatRacedWithInvalidation() {
+        User user = new User();
+        user.setId(1L);
+
+        cache.getById(1L, id -> {
+            cache.invalidate(user);
+            return principal(id, "stale@example.com");
+        });
+
+        assertEquals("fresh@example.com", cache.getById(1L, id -> principal(id, "fresh@example.com")).getEmail());
+    }
+
+    @Test
+    void getById_ShouldCoalesceConcurrentMisses() throws Exception {
+        int threads = 8;
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loaderStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoader = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            List<Future<UserPrincipal>> results = new ArrayList<>();
+            results.add(executor.submit(() -> cache.getById(1L, id -> {
+                loads.incrementAndGet();
+                loaderStarted.countDown();
+                await(releaseLoader);
+                return principal(id, "test@example.com");
+            })));
+            assertTrue(loaderStarted.await(5, TimeUnit.SECONDS));
+
+            for (int i = 1; i < threads; i++) {
+                results.add(executor.submit(() -> cache.getById(1L, id -> {
+                    loads.incrementAndGet();
+                    return principal(id, "test@example.com");
+                })));
+            }
+            while (cache.getCoalescedLoadCount() < threads - 1) {
+                Thread.sleep(1);
+            }
+            releaseLoader.countDown();
+
+            for (Future<UserPrincipal> result : results) {
+                assertEquals(1L, result.get(5, TimeUnit.SECONDS).getId());
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void getById_ShouldPropagateLoaderFailureWithoutCaching() {
+        assertThrows(ResourceNotFoundException.class, () -> cache.getById(2L, id -> {
+            throw new ResourceNotFoundException("User", "id", id);
+        }));
+
+        assertEquals(2L, cache.getById(2L, id -> principal(id, "late@example.com")).getId());
+    }
+
+    @Test
+    void getById_ShouldBypassCacheWhenDisabled() {
+        appProperties.getUserCache().setEnabled(false);
+        cache = new UserPrincipalCache(appProperties, new ReadYourWrites(appProperties));
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.getById(1L, id -> principal(id + loads.incrementAndGet(), "test@example.com"));
+        cache.getById(1L, id -> principal(id + loads.incrementAndGet(), "test@example.com"));
+
+        assertEquals(2, loads.get());
+    }
+
+    private static UserPrincipal principal(Long id, String email) {
+        return new UserPrincipal(id, email, "password", Collections.emptyList());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
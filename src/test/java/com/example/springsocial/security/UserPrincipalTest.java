@@ -65,4 +65,18 @@ public class UserPrincipalTest {
         assertEquals(user.getEmail(), userPrincipal.getUsername());
         assertEquals(String.valueOf(user.getId()), userPrincipal.getName());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCreateUserPrincipalFromVerifiedToken() {
+        VerifiedToken verifiedToken = new VerifiedToken(1L, System.currentTimeMillis() + 60000,
+                "test@example.com", "ROLE_USER", 3L);
+
+        UserPrincipal userPrincipal = UserPrincipal.create(verifiedToken);
+
+        assertEquals(1L, userPrincipal.getId());
+        assertEquals("test@example.com", userPrincipal.getUsername());
+        assertEquals(3L, userPrincipal.getVersion());
+        assertNull(userPrincipal.getPassword());
+        assertTrue(userPrincipal.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_USER")));
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.springsocial.security;
+
+import com.example.springsocial.config.AppProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerifiedTokenCacheTest {
+
+    private AppProperties appProperties;
+
+    private VerifiedTokenCache cache;
+
+    @BeforeEach
+    void setUp() {
+        appProperties = new AppProperties();
+        appProperties.getTokenCache().setMaxEntries(10);
+        cache = new VerifiedTokenCache(appProperties);
+    }
+
+    @Test
+    void get_ShouldReturnCachedToken() {
+        VerifiedToken verifiedToken = new VerifiedToken(1L, System.currentTimeMillis() + 60000);
+
+        cache.put("token", verifiedToken);
+
+        assertSame(verifiedToken, cache.get("token"));
+        assertNull(cache.get("other-token"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void get_ShouldEvictExpiredToken() {
+        cache.put("token", new VerifiedToken(1L, System.currentTimeMillis() + 60000));
+        cache.put("expiring", new VerifiedToken(2L, System.currentTimeMillis() + 60000));
+        cache.put("expiring", new VerifiedToken(2L, System.currentTimeMillis() + 1));
+
+        sleep(5);
+
+        assertNull(cache.get("expiring"));
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    void put_ShouldIgnoreAlreadyExpiredToken() {
+        cache.put("token", new VerifiedToken(1L, System.currentTimeMillis() - 1));
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void put_ShouldStayWithinMaxEntries() {
+        for (int i = 0; i < 100; i++) {
+            cache.put("token-" + i, new VerifiedToken((long) i, System.currentTimeMillis() + 60000));
+        }
+
+        assertTrue(cache.size() <= 10);
+        assertNotNull(cache.get("token-99"));
+    }
+
+    @Test
+    void get_ShouldAlwaysMissWhenDisabled() {
+        appProperties.getTokenCache().setEnabled(false);
+        cache = new VerifiedTokenCache(appProperties);
+
+        cache.put("token", new VerifiedToken(1L, System.currentTimeMillis() + 60000));
+
+        assertNull(cache.get("token"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void bindTo_ShouldExposeHitAndMissCounters() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+
+        cache.put("token", new VerifiedToken(1L, System.currentTimeMillis() + 60000));
+        cache.get("token");
+        cache.get("unknown");
+
+        assertEquals(1.0, registry.get("auth.token.cache.requests").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, registry.get("auth.token.cache.requests").tag("result", "miss").functionCounter().count());
+        assertEquals(1.0, registry.get("auth.token.cache.size").gauge().value());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package com.example.springsocial.security.oauth2;
 
+import com.example.springsocial.config.AppProperties;
 import com.example.springsocial.exception.OAuth2AuthenticationProcessingException;
 import com.example.springsocial.model.AuthProvider;
 import com.example.springsocial.model.User;
+import com.example.springsocial.repository.ReadYourWrites;
 import com.example.springsocial.repository.UserRepository;
 import com.example.springsocial.security.UserPrincipal;
+import com.example.springsocial.security.UserPrincipalCache;
 import com.example.springsocial.security.oauth2.user.OAuth2UserInfo;
 import com.example.springsocial.security.oauth2.user.OAuth2UserInfoFactory;
 import org.junit.jupiter.api.BeforeEach;
@@ -38,6 +41,15 @@ class CustomOAuth2UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private UserPrincipalCache userPrincipalCache;
+
+    @Mock
+    private ProfileRefreshQueue profileRefreshQueue;
+
+    @Spy
+    private ReadYourWrites readYourWrites = new ReadYourWrites(new AppProperties());
+
     @Spy
     @InjectMocks
     private CustomOAuth2UserService customOAuth2UserService;
@@ -48,6 +60,11 @@ class CustomOAuth2UserServiceTest {
 
     @BeforeEach
     void setUp() {
+        lenient().doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return null;
+        }).when(profileRefreshQueue).writeThrough(any(), any());
+
         // Setup test OAuth2UserRequest using proper builder pattern
         ClientRegistration clientRegistration = ClientRegistration.withRegistrationId("google")
                 .clientId("client-id")
@@ -107,42 +124,70 @@ class CustomOAuth2UserServiceTest {
     @Test
     void processOAuth2User_ShouldRegisterNewUser_WhenUserNotExists() {
         // Arrange
-        when(userRepository.findByEmail(any())).thenReturn(Optional.empty());
-
-        User savedUser = new User();
-        savedUser.setEmail("test@example.com");
-        savedUser.setProvider(AuthProvider.google);
-        when(userRepository.save(any())).thenReturn(savedUser);
+        when(userRepository.findByProviderAndProviderId(AuthProvider.google, "12345")).thenReturn(Optional.empty());
+        when(userRepository.insertIfAbsent(any())).thenReturn(Optional.of(7L));
 
         // Act
         OAuth2User result = customOAuth2UserService.processOAuth2User(oAuth2UserRequest, oAuth2User);
 
         // Assert
         assertNotNull(result);
-        verify(userRepository).save(any());
+        verify(userRepository).insertIfAbsent(any());
+        verify(userRepository, never()).save(any());
+        assertEquals(7L, ((UserPrincipal) result).getId());
         assertEquals("test@example.com", ((UserPrincipal) result).getEmail());
     }
 
+    @Test
+    void processOAuth2User_ShouldUseExistingUser_WhenConcurrentFirstLoginWins() {
+        // Arrange
+        User existingUser = googleUser("Test User", "http://example.com/pic.jpg");
+        when(userRepository.findByProviderAndProviderId(AuthProvider.google, "12345"))
+                .thenReturn(Optional.empty(), Optional.of(existingUser));
+        when(userRepository.insertIfAbsent(any())).thenReturn(Optional.empty());
+
+        // Act
+        OAuth2User result = customOAuth2UserService.processOAuth2User(oAuth2UserRequest, oAuth2User);
+
+        // Assert
+        assertEquals(42L, ((UserPrincipal) result).getId());
+        verify(userRepository, never()).updateProviderProfile(any(), any(), any(), any());
+    }
+
     @Test
     void processOAuth2User_ShouldUpdateExistingUser_WhenUserExists() {
         // Arrange
-        User existingUser = new User();
-        existingUser.setEmail("test@example.com");
-        existingUser.setProvider(AuthProvider.google);
-        existingUser.setName("Old Name");
-        existingUser.setImageUrl("http://example.com/old-pic.jpg");
+        User existingUser = googleUser("Old Name", "http://example.com/old-pic.jpg");
 
-        when(userRepository.findByEmail(any())).thenReturn(Optional.of(existingUser));
-        when(userRepository.save(any())).thenReturn(existingUser);
+        when(userRepository.findByProviderAndProviderId(AuthProvider.google, "12345")).thenReturn(Optional.of(existingUser));
 
         // Act
         OAuth2User result = customOAuth2UserService.processOAuth2User(oAuth2UserRequest, oAuth2User);
 
         // Assert
         assertNotNull(result);
-        verify(userRepository).save(existingUser);
+        verify(userRepository).updateProviderProfile(42L, "Test User", "http://example.com/pic.jpg", "12345");
+        verify(userRepository, never()).save(any());
         assertEquals("Test User", existingUser.getName());
         assertEquals("http://example.com/pic.jpg", existingUser.getImageUrl());
+        assertEquals(4L, existingUser.getVersion());
+    }
+
+    @Test
+    void processOAuth2User_ShouldNotWrite_WhenProfileUnchanged() {
+        // Arrange
+        User existingUser = googleUser("Test User", "http://example.com/pic.jpg");
+
+        when(userRepository.findByProviderAndProviderId(AuthProvider.google, "12345")).thenReturn(Optional.of(existingUser));
+
+        // Act
+        OAuth2User result = customOAuth2UserService.processOAuth2User(oAuth2UserRequest, oAuth2User);
+
+        // Assert
+        assertEquals(42L, ((UserPrincipal) result).getId());
+        verify(userRepository).findByProviderAndProviderId(AuthProvider.google, "12345");
+        verifyNoMoreInteractions(userRepository);
+        verifyNoInteractions(userPrincipalCache);
     }
 
     @Test
@@ -202,10 +247,7 @@ class CustomOAuth2UserServiceTest {
     @Test
     void registerNewUser_ShouldCreateNewUserWithCorrectDetails() {
         // Arrange
-        User savedUser = new User();
-        savedUser.setEmail("test@example.com");
-        savedUser.setProvider(AuthProvider.google);
-        when(userRepository.save(any())).thenReturn(savedUser);
+        when(userRepository.insertIfAbsent(any())).thenReturn(Optional.of(1L));
 
         // Create a test OAuth2UserInfo using the attributes map
         OAuth2UserInfo userInfo = OAuth2UserInfoFactory.getOAuth2UserInfo("google", attributes);
@@ -215,19 +257,18 @@ class CustomOAuth2UserServiceTest {
 
         // Assert
         assertNotNull(result);
+        assertEquals(1L, result.getId());
         assertEquals("test@example.com", result.getEmail());
+        assertEquals("12345", result.getProviderId());
         assertEquals(AuthProvider.google, result.getProvider());
-        verify(userRepository).save(any());
+        verify(userRepository).insertIfAbsent(result);
+        verify(userPrincipalCache).invalidate(result);
     }
 
     @Test
     void updateExistingUser_ShouldUpdateNameAndImageUrl() {
         // Arrange
-        User existingUser = new User();
-        existingUser.setName("Old Name");
-        existingUser.setImageUrl("http://example.com/old-pic.jpg");
-
-        when(userRepository.save(any())).thenReturn(existingUser);
+        User existingUser = googleUser("Old Name", "http://example.com/old-pic.jpg");
 
         // Create a test OAuth2UserInfo using the attributes map
         OAuth2UserInfo userInfo = OAuth2UserInfoFactory.getOAuth2UserInfo("google", attributes);
@@ -239,6 +280,54 @@ class CustomOAuth2UserServiceTest {
         assertNotNull(result);
         assertEquals("Test User", result.getName());
         assertEquals("http://example.com/pic.jpg", result.getImageUrl());
-        verify(userRepository).save(existingUser);
+        verify(userRepository).updateProviderProfile(42L, "Test User", "http://example.com/pic.jpg", "12345");
+        verify(userPrincipalCache).invalidate(existingUser);
+    }
+
+    @Test
+    void updateExistingUser_ShouldQueueNameAndImageUrl() {
+        // Arrange
+        User existingUser = googleUser("Old Name", "http://example.com/old-pic.jpg");
+        OAuth2UserInfo userInfo = OAuth2UserInfoFactory.getOAuth2UserInfo("google", attributes);
+        when(profileRefreshQueue.enqueue(existingUser, "Test User", "http://example.com/pic.jpg")).thenReturn(true);
+
+        // Act
+        User result = customOAuth2UserService.updateExistingUser(existingUser, userInfo);
+
+        // Assert
+        assertEquals("Test User", result.getName());
+        assertEquals("http://example.com/pic.jpg", result.getImageUrl());
+        assertEquals(3L, result.getVersion());
+        verifyNoInteractions(userRepository, userPrincipalCache);
+    }
+
+    @Test
+    void updateExistingUser_ShouldWriteChangedProviderIdImmediately() {
+        // Arrange
+        User existingUser = googleUser("Test User", "http://example.com/pic.jpg");
+        existingUser.setProviderId("old-id");
+        OAuth2UserInfo userInfo = OAuth2UserInfoFactory.getOAuth2UserInfo("google", attributes);
+
+        // Act
+        User result = customOAuth2UserService.updateExistingUser(existingUser, userInfo);
+
+        // Assert
+        assertEquals("12345", result.getProviderId());
+        verify(profileRefreshQueue, never()).enqueue(any(), any(), any());
+        verify(profileRefreshQueue).writeThrough(eq(42L), any());
+        verify(userRepository).updateProviderProfile(42L, "Test User", "http://example.com/pic.jpg", "12345");
+        verify(userPrincipalCache).invalidate(existingUser);
+    }
+
+    private static User googleUser(String name, String imageUrl) {
+        User user = new User();
+        user.setId(42L);
+        user.setEmail("test@example.com");
+        user.setProvider(AuthProvider.google);
+        user.setProviderId("12345");
+        user.setName(name);
+        user.setImageUrl(imageUrl);
+        user.setVersion(3L);
+        return user;
     }
 }
\ No newline at end of file
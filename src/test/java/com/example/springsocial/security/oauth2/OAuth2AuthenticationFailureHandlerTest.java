@@ -1,5 +1,7 @@
 package com.example.springsocial.security.oauth2;
 
+import com.example.springsocial.security.AuthEvent;
+import com.example.springsocial.security.AuthEventLog;
 import com.example.springsocial.util.CookieUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -28,6 +30,9 @@ class OAuth2AuthenticationFailureHandlerTest {
     @Mock
     private HttpCookieOAuth2AuthorizationRequestRepository authRequestRepository;
 
+    @Mock
+    private AuthEventLog authEventLog;
+
     @Mock
     private AuthenticationException exception;
 
@@ -40,6 +45,7 @@ class OAuth2AuthenticationFailureHandlerTest {
         request = new MockHttpServletRequest();
         response = new MockHttpServletResponse();
         failureHandler.httpCookieOAuth2AuthorizationRequestRepository = authRequestRepository;
+        failureHandler.authEventLog = authEventLog;
     }
 
     @Test
@@ -61,6 +67,7 @@ class OAuth2AuthenticationFailureHandlerTest {
 
             verify(authRequestRepository).removeAuthorizationRequestCookies(request, response);
             verify(mockRedirectStrategy).sendRedirect(eq(request), eq(response), contains("http://localhost:3000/login?error=InvalidUser"));
+            verify(authEventLog).record(AuthEvent.Type.OAUTH2_LOGIN_FAILED, null, null, "127.0.0.1", "InvalidUser");
         }
     }
 
@@ -2,6 +2,7 @@ package com.example.springsocial.security.oauth2;
 
 import com.example.springsocial.config.AppProperties;
 import com.example.springsocial.exception.BadRequestException;
+import com.example.springsocial.security.AuthEventLog;
 import com.example.springsocial.security.TokenProvider;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -31,6 +32,9 @@ class OAuth2AuthenticationSuccessHandlerTest {
     @Mock
     private HttpCookieOAuth2AuthorizationRequestRepository authRequestRepository;
 
+    @Mock
+    private AuthEventLog authEventLog;
+
     @Mock
     private Authentication authentication;
 
@@ -41,7 +45,7 @@ class OAuth2AuthenticationSuccessHandlerTest {
     void setUp() {
         MockitoAnnotations.openMocks(this);
         when(appProperties.getOauth2()).thenReturn(oauth2);
-        successHandler = new OAuth2AuthenticationSuccessHandler(tokenProvider, appProperties, authRequestRepository);
+        successHandler = new OAuth2AuthenticationSuccessHandler(tokenProvider, appProperties, authRequestRepository, authEventLog);
     }
 
     @Test
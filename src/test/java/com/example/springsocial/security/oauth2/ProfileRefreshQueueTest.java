@@ -0,0 +1,178 @@
+package com.example.springsocial.security.oauth2;
+
+import com.example.springsocial.config.AppProperties;
+import com.example.springsocial.model.User;
+import com.example.springsocial.repository.UserRepository;
+import com.example.springsocial.repository.UserRepositoryCustom.ProviderProfile;
+import com.example.springsocial.security.UserPrincipalCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProfileRefreshQueueTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserPrincipalCache userPrincipalCache;
+
+    private AppProperties appProperties;
+
+    private ProfileRefreshQueue queue;
+
+    private final List<List<ProviderProfile>> batches = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        appProperties = new AppProperties();
+        appProperties.getProfileRefresh().setBatchSize(2);
+        appProperties.getProfileRefresh().setMaxPending(3);
+        queue = new ProfileRefreshQueue(userRepository, userPrincipalCache, appProperties);
+    }
+
+    @Test
+    void enqueue_ShouldCoalesceRepeatedRefreshesForTheSameUser() {
+        recordBatches();
+
+        assertTrue(queue.enqueue(user(1L), "First", "http://example.com/1.jpg"));
+        assertTrue(queue.enqueue(user(1L), "Second", "http://example.com/2.jpg"));
+        queue.flush();
+
+        assertEquals(1, batches.size());
+        assertEquals(1, batches.get(0).size());
+        assertEquals("Second", batches.get(0).get(0).getName());
+        assertEquals("http://example.com/2.jpg", batches.get(0).get(0).getImageUrl());
+        assertEquals(0, queue.getPendingCount());
+    }
+
+    @Test
+    void flush_ShouldWriteInBatchesAndInvalidateCachedPrincipals() {
+        recordBatches();
+        queue.enqueue(user(1L), "One", null);
+        queue.enqueue(user(2L), "Two", null);
+        queue.enqueue(user(3L), "Three", null);
+
+        queue.flush();
+
+        assertEquals(2, batches.size());
+        assertEquals(3, batches.stream().mapToInt(List::size).sum());
+        ArgumentCaptor<User> invalidated = ArgumentCaptor.forClass(User.class);
+        verify(userPrincipalCache, times(3)).invalidate(invalidated.capture());
+        assertTrue(invalidated.getAllValues().stream().allMatch(user -> user.getEmail().endsWith("@example.com")));
+    }
+
+    @Test
+    void flush_ShouldDoNothingWhenEmpty() {
+        queue.flush();
+
+        verifyNoInteractions(userRepository, userPrincipalCache);
+    }
+
+    @Test
+    void flush_ShouldKeepProfilesQueuedWhenTheWriteFails() {
+        when(userRepository.updateProviderProfiles(any())).thenThrow(new IllegalStateException("down"));
+        queue.enqueue(user(1L), "One", null);
+
+        queue.flush();
+
+        assertEquals(1, queue.getPendingCount());
+        verifyNoInteractions(userPrincipalCache);
+    }
+
+    @Test
+    void enqueue_ShouldRefuseNewUsersWhenFull() {
+        queue.enqueue(user(1L), "One", null);
+        queue.enqueue(user(2L), "Two", null);
+        queue.enqueue(user(3L), "Three", null);
+
+        assertFalse(queue.enqueue(user(4L), "Four", null));
+        assertTrue(queue.enqueue(user(3L), "Three again", null));
+    }
+
+    @Test
+    void enqueue_ShouldRefuseWhenDisabled() {
+        appProperties.getProfileRefresh().setEnabled(false);
+        queue = new ProfileRefreshQueue(userRepository, userPrincipalCache, appProperties);
+
+        assertFalse(queue.enqueue(user(1L), "One", null));
+    }
+
+    @Test
+    void writeThrough_ShouldDropTheQueuedProfileAndWrite() {
+        queue.enqueue(user(1L), "One", null);
+        List<String> writes = new ArrayList<>();
+
+        queue.writeThrough(1L, () -> writes.add("direct"));
+
+        assertEquals(List.of("direct"), writes);
+        assertEquals(0, queue.getPendingCount());
+    }
+
+    @Test
+    void writeThrough_ShouldWaitForABatchBeingFlushed() throws Exception {
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> writes = Collections.synchronizedList(new ArrayList<>());
+        when(userRepository.updateProviderProfiles(any())).thenAnswer(invocation -> {
+            flushing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            writes.add("batch");
+            return 1;
+        });
+        queue.enqueue(user(1L), "Old", null);
+        Thread flusher = new Thread(queue::flush);
+        flusher.start();
+        assertTrue(flushing.await(5, TimeUnit.SECONDS));
+
+        Thread writer = new Thread(() -> queue.writeThrough(1L, () -> writes.add("direct")));
+        writer.start();
+        writer.join(200);
+        release.countDown();
+        writer.join(5000);
+        flusher.join(5000);
+
+        assertEquals(List.of("batch", "direct"), writes);
+    }
+
+    @Test
+    void shutdown_ShouldFlushAndRefuseFurtherRefreshes() {
+        recordBatches();
+        queue.enqueue(user(1L), "One", null);
+
+        queue.shutdown();
+
+        assertEquals(1, batches.size());
+        assertFalse(queue.enqueue(user(2L), "Two", null));
+    }
+
+    private void recordBatches() {
+        when(userRepository.updateProviderProfiles(any())).thenAnswer(invocation -> {
+            Collection<ProviderProfile> batch = invocation.getArgument(0);
+            batches.add(new ArrayList<>(batch));
+            return batch.size();
+        });
+    }
+
+    private static User user(Long id) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail("user" + id + "@example.com");
+        return user;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.springsocial.service;
+
+import com.example.springsocial.config.AppProperties;
+import com.example.springsocial.repository.UserExportRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserExportServiceTest {
+
+    private UserExportRepository userExportRepository;
+    private UserExportService userExportService;
+
+    @BeforeEach
+    void setUp() {
+        userExportRepository = mock(UserExportRepository.class);
+        AppProperties appProperties = new AppProperties();
+        appProperties.getUserExport().setPageSize(2);
+        userExportService = new UserExportService(userExportRepository, new ObjectMapper(), appProperties);
+
+        when(userExportRepository.findPageAfter(0L, 2)).thenReturn(Arrays.asList(row(1), row(2)));
+        when(userExportRepository.findPageAfter(2L, 2)).thenReturn(Collections.singletonList(
+                new UserExportRepository.Row(3, "Quote \"Me\", Please", "three@example.com", true,
+                        "http://example.com/3.jpg", "google", "g-3")));
+    }
+
+    @Test
+    void exportUsers_ShouldWriteNdjsonPageByPage() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long written = userExportService.exportUsers(output, false, 0L);
+
+        assertEquals(3, written);
+        String[] lines = output.toString(StandardCharsets.UTF_8.name()).split("\n");
+        assertEquals(3, lines.length);
+        JsonNode last = new ObjectMapper().readTree(lines[2]);
+        assertEquals(3, last.get("id").asLong());
+        assertEquals("Quote \"Me\", Please", last.get("name").asText());
+        assertTrue(last.get("emailVerified").asBoolean());
+        assertFalse(last.has("password"));
+        assertTrue(new ObjectMapper().readTree(lines[0]).get("imageUrl").isNull());
+        verify(userExportRepository).findPageAfter(0L, 2);
+        verify(userExportRepository).findPageAfter(2L, 2);
+        verifyNoMoreInteractions(userExportRepository);
+    }
+
+    @Test
+    void exportUsers_ShouldFlushOncePerPage() throws Exception {
+        AtomicInteger flushes = new AtomicInteger();
+        ByteArrayOutputStream output = new ByteArrayOutputStream() {
+            @Override
+            public void flush() {
+                flushes.incrementAndGet();
+            }
+        };
+
+        userExportService.exportUsers(output, false, 0L);
+
+        assertEquals(2, flushes.get());
+        String ndjson = output.toString(StandardCharsets.UTF_8.name());
+        assertTrue(ndjson.startsWith("{\"id\":1,"));
+        assertTrue(ndjson.contains("}\n{\"id\":2,"));
+    }
+
+    @Test
+    void exportUsers_ShouldWriteQuotedCsv() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        userExportService.exportUsers(output, true, 0L);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8.name()).split("\n");
+        assertEquals(UserExportService.CSV_HEADER, lines[0]);
+        assertEquals("1,\"User 1\",\"user1@example.com\",false,,\"local\",", lines[1]);
+        assertEquals("3,\"Quote \"\"Me\"\", Please\",\"three@example.com\",true,\"http://example.com/3.jpg\",\"google\",\"g-3\"",
+                lines[3]);
+    }
+
+    @Test
+    void exportUsers_ShouldResumeAfterTheGivenId() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long written = userExportService.exportUsers(output, false, 2L);
+
+        assertEquals(1, written);
+        verify(userExportRepository, never()).findPageAfter(0L, 2);
+    }
+
+    private static UserExportRepository.Row row(long id) {
+        return new UserExportRepository.Row(id, "User " + id, "user" + id + "@example.com", false, null, "local", null);
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.springsocial.service;
+
+import com.example.springsocial.config.AppProperties;
+import com.example.springsocial.exception.BadRequestException;
+import com.example.springsocial.payload.UserImportResult;
+import com.example.springsocial.repository.UserCopyRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class UserImportServiceTest {
+
+    private UserCopyRepository userCopyRepository;
+    private UserImportService userImportService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        userCopyRepository = mock(UserCopyRepository.class);
+        PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
+        when(passwordEncoder.encode(anyString())).thenAnswer(invocation -> "hashed:" + invocation.getArgument(0));
+        // Every row is inserted unless its email is taken
+        when(userCopyRepository.copyLocalUsers(anyList())).thenAnswer(invocation -> {
+            List<UserCopyRepository.Row> rows = invocation.getArgument(0);
+            return rows.stream().map(UserCopyRepository.Row::getEmail)
+                    .filter(email -> !email.startsWith("taken"))
+                    .collect(Collectors.toSet());
+        });
+
+        AppProperties appProperties = new AppProperties();
+        appProperties.getBulkImport().setChunkSize(2);
+        appProperties.getBulkImport().setHashingThreads(2);
+        userImportService = new UserImportService(userCopyRepository, passwordEncoder, new ObjectMapper(), appProperties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userImportService.shutdown();
+    }
+
+    @Test
+    void importUsers_ShouldLoadNdjsonInChunksWithHashedPasswords() throws Exception {
+        UserImportResult result = userImportService.importUsers(input(
+                "{\"name\":\"A\",\"email\":\"a@example.com\",\"password\":\"pa\"}",
+                "{\"name\":\"B\",\"email\":\"b@example.com\",\"password\":\"pb\"}",
+                "",
+                "{\"name\":\"C\",\"email\":\"c@example.com\",\"password\":\"pc\"}"), UserImportService.NDJSON);
+
+        assertEquals(3, result.getImported());
+        assertTrue(result.getRejections().isEmpty());
+
+        ArgumentCaptor<List<UserCopyRepository.Row>> chunks = captor();
+        verify(userCopyRepository, times(2)).copyLocalUsers(chunks.capture());
+        UserCopyRepository.Row first = chunks.getAllValues().get(0).get(0);
+        assertEquals(1, first.getLine());
+        assertEquals("hashed:pa", first.getPasswordHash());
+        assertEquals(4, chunks.getAllValues().get(1).get(0).getLine());
+    }
+
+    @Test
+    void importUsers_ShouldReportConflictsAndInvalidRowsByLine() throws Exception {
+        UserImportResult result = userImportService.importUsers(input(
+                "{\"name\":\"A\",\"email\":\"taken@example.com\",\"password\":\"pa\"}",
+                "not json",
+                "{\"name\":\"B\",\"email\":\"not-an-email\",\"password\":\"pb\"}",
+                "{\"name\":\"C\",\"email\":\"c@example.com\"}",
+                "{\"name\":\"D\",\"email\":\"d@example.com\",\"password\":\"pd\"}"), UserImportService.NDJSON);
+
+        assertEquals(1, result.getImported());
+        assertEquals(1, result.getConflicts());
+        assertEquals(3, result.getInvalid());
+        assertEquals(Arrays.asList(2L, 3L, 4L, 1L), result.getRejections().stream()
+                .map(UserImportResult.Rejection::getLine).collect(Collectors.toList()));
+        assertEquals(UserImportService.CONFLICT, result.getRejections().get(3).getReason());
+    }
+
+    @Test
+    void importUsers_ShouldReportRepeatedEmailInChunkAsConflict() throws Exception {
+        when(userCopyRepository.copyLocalUsers(anyList())).thenReturn(new HashSet<>(Arrays.asList("a@example.com")));
+
+        UserImportResult result = userImportService.importUsers(input(
+                "{\"name\":\"A\",\"email\":\"a@example.com\",\"password\":\"pa\"}",
+                "{\"name\":\"A2\",\"email\":\"a@example.com\",\"password\":\"pa\"}"), UserImportService.NDJSON);
+
+        assertEquals(1, result.getImported());
+        assertEquals(1, result.getConflicts());
+        assertEquals(2, result.getRejections().get(0).getLine());
+    }
+
+    @Test
+    void importUsers_ShouldReadCsvColumnsByHeader() throws Exception {
+        UserImportResult result = userImportService.importUsers(input(
+                "email,password,name",
+                "a@example.com,pa,\"Doe, \"\"Jane\"\"\"",
+                "b@example.com,pb"), "text/csv; charset=UTF-8");
+
+        assertEquals(1, result.getImported());
+        assertEquals(1, result.getInvalid());
+        assertEquals(3, result.getRejections().get(0).getLine());
+
+        ArgumentCaptor<List<UserCopyRepository.Row>> chunks = captor();
+        verify(userCopyRepository).copyLocalUsers(chunks.capture());
+        assertEquals("Doe, \"Jane\"", chunks.getValue().get(0).getName());
+    }
+
+    @Test
+    void importUsers_ShouldRejectCsvWithoutRequiredColumns() {
+        assertThrows(BadRequestException.class,
+                () -> userImportService.importUsers(input("name,email"), UserImportService.CSV));
+    }
+
+    @Test
+    void importUsers_ShouldCapReportedRejections() throws Exception {
+        AppProperties appProperties = new AppProperties();
+        appProperties.getBulkImport().setMaxReportedRejections(1);
+        UserImportService capped = new UserImportService(userCopyRepository, mock(PasswordEncoder.class),
+                new ObjectMapper(), appProperties);
+
+        UserImportResult result = capped.importUsers(input("x", "y", "z"), UserImportService.NDJSON);
+        capped.shutdown();
+
+        assertEquals(3, result.getInvalid());
+        assertEquals(1, result.getRejections().size());
+        assertTrue(result.isRejectionsTruncated());
+    }
+
+    @Test
+    void splitCsv_ShouldRejectUnterminatedQuotes() {
+        assertThrows(IllegalArgumentException.class, () -> UserImportService.splitCsv("\"open,field"));
+        assertEquals(Arrays.asList("", "b", ""), UserImportService.splitCsv(",b,"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<UserCopyRepository.Row>> captor() {
+        return ArgumentCaptor.forClass(List.class);
+    }
+
+    private static InputStream input(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+}
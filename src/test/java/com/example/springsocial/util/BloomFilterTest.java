@@ -0,0 +1,44 @@
+package com.example.springsocial.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BloomFilterTest {
+
+    @Test
+    public void testMightContain_neverMissesInsertedValues() {
+        BloomFilter bloomFilter = new BloomFilter(1000, 0.01);
+
+        for (int i = 0; i < 1000; i++) {
+            bloomFilter.put("token-" + i);
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(bloomFilter.mightContain("token-" + i));
+        }
+    }
+
+    @Test
+    public void testMightContain_falsePositiveRateIsNearConfigured() {
+        BloomFilter bloomFilter = new BloomFilter(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            bloomFilter.put("revoked-" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (bloomFilter.mightContain("live-" + i)) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+    }
+
+    @Test
+    public void testConstructor_rejectsInvalidSizing() {
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1.0));
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.springsocial.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PooledIdAllocatorTest {
+
+    @Test
+    void nextId_ShouldHandOutEachBlockBeforeTakingTheNext() {
+        AtomicLong sequence = new AtomicLong(1);
+        AtomicLong nextvals = new AtomicLong();
+        PooledIdAllocator allocator = new PooledIdAllocator(3, () -> {
+            nextvals.incrementAndGet();
+            return sequence.getAndAdd(3);
+        });
+
+        for (long expected = 1; expected <= 7; expected++) {
+            assertEquals(expected, allocator.nextId());
+        }
+        assertEquals(3, nextvals.get());
+    }
+
+    @Test
+    void nextId_ShouldNotOverlapAnotherAllocatorOnTheSameSequence() {
+        AtomicLong sequence = new AtomicLong(1);
+        PooledIdAllocator first = new PooledIdAllocator(2, () -> sequence.getAndAdd(2));
+        PooledIdAllocator second = new PooledIdAllocator(2, () -> sequence.getAndAdd(2));
+
+        assertEquals(1, first.nextId());
+        assertEquals(3, second.nextId());
+        assertEquals(2, first.nextId());
+        assertEquals(4, second.nextId());
+        assertEquals(5, first.nextId());
+    }
+
+    @Test
+    void constructor_ShouldRejectEmptyBlocks() {
+        assertThrows(IllegalArgumentException.class, () -> new PooledIdAllocator(0, () -> 1));
+    }
+}
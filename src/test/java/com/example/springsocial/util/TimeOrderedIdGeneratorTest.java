@@ -0,0 +1,73 @@
+package com.example.springsocial.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeOrderedIdGeneratorTest {
+
+    private static final long NOW = Instant.parse("2026-10-18T12:00:00Z").toEpochMilli();
+
+    @Test
+    void nextId_ShouldEncodeTimestampAndNode() {
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(5, () -> NOW);
+
+        long id = generator.nextId();
+
+        assertEquals(Instant.ofEpochMilli(NOW), TimeOrderedIdGenerator.timestampOf(id));
+        assertEquals(5, (id >>> TimeOrderedIdGenerator.COUNTER_BITS) & TimeOrderedIdGenerator.MAX_NODE_ID);
+        assertTrue(id < (1L << 53), "ids must be exact as JavaScript numbers");
+    }
+
+    @Test
+    void nextId_ShouldIncreaseWithinAndAcrossMilliseconds() {
+        AtomicLong clock = new AtomicLong(NOW);
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(0, clock::get);
+
+        long previous = generator.nextId();
+        for (int i = 0; i < 1000; i++) {
+            if (i % 300 == 0) {
+                clock.incrementAndGet();
+            }
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            previous = id;
+        }
+    }
+
+    @Test
+    void nextId_ShouldStayUniqueWhenClockStepsBack() {
+        AtomicLong clock = new AtomicLong(NOW);
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(0, clock::get);
+        Set<Long> ids = new HashSet<>();
+
+        long previous = generator.nextId();
+        ids.add(previous);
+        clock.addAndGet(-5_000);
+        for (int i = 0; i < 500; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            assertTrue(ids.add(id));
+            previous = id;
+        }
+    }
+
+    @Test
+    void nextId_ShouldNotCollideAcrossNodes() {
+        long a = new TimeOrderedIdGenerator(1, () -> NOW).nextId();
+        long b = new TimeOrderedIdGenerator(2, () -> NOW).nextId();
+
+        assertNotEquals(a, b);
+    }
+
+    @Test
+    void constructor_ShouldRejectOutOfRangeNodeId() {
+        assertThrows(IllegalArgumentException.class, () -> new TimeOrderedIdGenerator(-1));
+        assertThrows(IllegalArgumentException.class, () -> new TimeOrderedIdGenerator(TimeOrderedIdGenerator.MAX_NODE_ID + 1));
+    }
+}
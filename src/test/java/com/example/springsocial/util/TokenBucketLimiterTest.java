@@ -0,0 +1,90 @@
+package com.example.springsocial.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketLimiterTest {
+
+    private static final long MINUTE = 60_000;
+
+    @Test
+    void tryAcquire_ShouldAllowBurstThenReportWait() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(3, 6, MINUTE, 1000);
+
+        assertEquals(0, limiter.tryAcquire("a", 0));
+        assertEquals(0, limiter.tryAcquire("a", 0));
+        assertEquals(0, limiter.tryAcquire("a", 0));
+        assertEquals(10_000, limiter.tryAcquire("a", 0));
+        assertEquals(4_000, limiter.tryAcquire("a", 6_000));
+    }
+
+    @Test
+    void tryAcquire_ShouldRefillOverTimeUpToCapacity() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(2, 6, MINUTE, 1000);
+        limiter.tryAcquire("a", 0);
+        limiter.tryAcquire("a", 0);
+
+        assertEquals(0, limiter.tryAcquire("a", 10_000));
+        assertTrue(limiter.tryAcquire("a", 10_000) > 0);
+
+        assertEquals(0, limiter.tryAcquire("a", 10 * MINUTE));
+        assertEquals(0, limiter.tryAcquire("a", 10 * MINUTE));
+        assertTrue(limiter.tryAcquire("a", 10 * MINUTE) > 0);
+    }
+
+    @Test
+    void tryAcquire_ShouldKeepKeysIndependent() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1, 1, MINUTE, 1000);
+
+        assertEquals(0, limiter.tryAcquire("a", 0));
+        assertTrue(limiter.tryAcquire("a", 0) > 0);
+        assertEquals(0, limiter.tryAcquire("b", 0));
+    }
+
+    @Test
+    void evictIdle_ShouldDropOnlyBucketsIdleForTheFullPeriod() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(5, 60, 10_000, 1000);
+        limiter.tryAcquire("idle", 0);
+        limiter.tryAcquire("busy", 0);
+
+        assertEquals(0, limiter.evictIdle(5_000));
+        limiter.tryAcquire("busy", 8_000);
+
+        assertEquals(1, limiter.evictIdle(10_000));
+        assertEquals(1, limiter.size());
+
+        assertEquals(0, limiter.evictIdle(17_000));
+        assertEquals(1, limiter.evictIdle(18_000));
+        assertEquals(0, limiter.size());
+    }
+
+    @Test
+    void evictIdle_ShouldCatchUpAfterLongGaps() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(5, 60, 10_000, 1000);
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire("key-" + i, i * 100L);
+        }
+
+        assertEquals(100, limiter.evictIdle(10 * MINUTE));
+        assertEquals(0, limiter.size());
+    }
+
+    @Test
+    void evictIdle_ShouldNotEvictBeforeBucketHasRefilled() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(5, 1, 1000, 1000);
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire("a", 0);
+        }
+
+        assertEquals(0, limiter.evictIdle(MINUTE));
+        assertTrue(limiter.tryAcquire("a", MINUTE + 1) == 0);
+        assertTrue(limiter.tryAcquire("a", MINUTE + 1) > 0);
+    }
+
+    @Test
+    void constructor_ShouldRejectInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketLimiter(0, 1, MINUTE, 1000));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketLimiter(1, 0, MINUTE, 1000));
+    }
+}